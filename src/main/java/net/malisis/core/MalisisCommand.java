@@ -13,17 +13,26 @@
 
 package net.malisis.core;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import net.malisis.core.configuration.Settings;
+import net.malisis.core.network.BulkTransport;
+import net.malisis.core.util.profiler.HookProfiler;
+import net.minecraft.client.Minecraft;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.ChatComponentTranslation;
+
+import org.apache.commons.lang3.StringUtils;
 
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -43,6 +52,7 @@ public class MalisisCommand extends CommandBase {
     public MalisisCommand() {
         parameters.add("config");
         parameters.add("version");
+        parameters.add("stats");
     }
 
     /**
@@ -78,6 +88,10 @@ public class MalisisCommand extends CommandBase {
 
         if (!parameters.contains(params[0])) throw new WrongUsageException("malisiscore.commands.usage", new Object[0]);
 
+        // the other commands are client only
+        if (FMLCommonHandler.instance().getEffectiveSide() == Side.SERVER && !params[0].equals("stats"))
+            throw new WrongUsageException("malisiscore.commands.usage", new Object[0]);
+
         switch (params[0]) {
             case "config":
                 configCommand(sender, params);
@@ -93,6 +107,9 @@ public class MalisisCommand extends CommandBase {
                 if (mod != null)
                     MalisisCore.message("malisiscore.commands.modversion", mod.getName(), mod.getVersion());
                 break;
+            case "stats":
+                statsCommand(sender, params);
+                break;
             case "gui":
                 // Minecraft.getMinecraft().displayGuiScreen(new UIWindow(100, 100).createScreenProxy());
                 break;
@@ -103,9 +120,17 @@ public class MalisisCommand extends CommandBase {
         }
     }
 
+    /**
+     * Checks if the <b>sender</b> can use this {@link MalisisCommand}.<br>
+     * Server side, only the stats are available, and only to the operators.
+     *
+     * @param icommandsender the icommandsender
+     * @return true, if allowed
+     */
     @Override
     public boolean canCommandSenderUseCommand(ICommandSender icommandsender) {
-        return true;
+        if (FMLCommonHandler.instance().getEffectiveSide() == Side.CLIENT) return true;
+        return icommandsender.canCommandSenderUseCommand(getRequiredPermissionLevel(), getCommandName());
     }
 
     @Override
@@ -146,4 +171,50 @@ public class MalisisCommand extends CommandBase {
                 MalisisCore.message("malisiscore.commands.noconfiguration", mod.getName());
         }
     }
+
+    /**
+     * Handles the stats command.<br>
+     * Displays the stats collected by the {@link HookProfiler} and the {@link BulkTransport}, or clears them with the
+     * <i>reset</i> parameter. The stats are sent to the <b>sender</b> only. When connected to a dedicated server, the
+     * command is also sent to the server so that its stats are displayed as well.
+     *
+     * @param sender the sender
+     * @param params the params
+     */
+    public void statsCommand(ICommandSender sender, String[] params) {
+        boolean server = FMLCommonHandler.instance().getEffectiveSide() == Side.SERVER;
+        if (server) sender.addChatMessage(new ChatComponentTranslation("malisiscore.commands.stats.server"));
+
+        BulkTransport bulkTransport = MalisisCore.network.getBulkTransport();
+        if (params.length > 1 && params[1].equals("reset")) {
+            bulkTransport.reset();
+            if (HookProfiler.enabled) HookProfiler.get().reset();
+            sender.addChatMessage(new ChatComponentTranslation("malisiscore.commands.stats.reset"));
+        } else {
+            List<String> report = new ArrayList<>();
+            if (HookProfiler.enabled) report.addAll(HookProfiler.get().getReport());
+            else sender.addChatMessage(new ChatComponentTranslation("malisiscore.commands.stats.disabled"));
+            report.addAll(bulkTransport.getReport());
+
+            if (report.isEmpty() && HookProfiler.enabled)
+                sender.addChatMessage(new ChatComponentTranslation("malisiscore.commands.stats.empty"));
+            // the lines are sent as is, they are not translated nor formatted
+            for (String line : report) sender.addChatMessage(new ChatComponentText(line));
+        }
+
+        if (!server) sendToServer(params);
+    }
+
+    /**
+     * Sends the command to the server, unless it is the integrated server, which shares its stats with the client.
+     *
+     * @param params the params
+     */
+    @SideOnly(Side.CLIENT)
+    private void sendToServer(String[] params) {
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.isIntegratedServerRunning() || mc.thePlayer == null) return;
+
+        mc.thePlayer.sendChatMessage("/" + getCommandName() + " " + StringUtils.join(params, " "));
+    }
 }
@@ -22,10 +22,13 @@ import net.malisis.core.client.gui.MalisisGui;
 import net.malisis.core.configuration.ConfigurationGui;
 import net.malisis.core.configuration.Settings;
 import net.malisis.core.network.MalisisNetwork;
+import net.malisis.core.renderer.BakedShape;
 import net.malisis.core.tileentity.MultiBlockTileEntity;
+import net.malisis.core.util.ChunkWatchers;
 import net.malisis.core.util.chunkblock.ChunkBlockHandler;
 import net.malisis.core.util.finiteliquid.FiniteLiquid;
 import net.malisis.core.util.finiteliquid.FiniteLiquidRenderer;
+import net.malisis.core.util.profiler.HookProfiler;
 import net.malisis.core.util.replacement.ReplacementTool;
 import net.malisis.core.util.syncer.Syncer;
 import net.minecraft.client.Minecraft;
@@ -37,6 +40,7 @@ import net.minecraft.util.EnumChatFormatting;
 import net.minecraft.util.StatCollector;
 import net.minecraftforge.client.ClientCommandHandler;
 import net.minecraftforge.client.event.GuiOpenEvent;
+import net.minecraftforge.client.event.TextureStitchEvent;
 import net.minecraftforge.common.MinecraftForge;
 
 import org.apache.logging.log4j.Logger;
@@ -46,6 +50,7 @@ import cpw.mods.fml.common.Mod;
 import cpw.mods.fml.common.Mod.EventHandler;
 import cpw.mods.fml.common.event.FMLInitializationEvent;
 import cpw.mods.fml.common.event.FMLPreInitializationEvent;
+import cpw.mods.fml.common.event.FMLServerStartingEvent;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.registry.GameRegistry;
 import cpw.mods.fml.relauncher.Side;
@@ -154,6 +159,10 @@ public class MalisisCore implements IMalisisMod {
         MinecraftForge.EVENT_BUS.register(instance);
         MinecraftForge.EVENT_BUS.register(ReplacementTool.instance());
         MinecraftForge.EVENT_BUS.register(ChunkBlockHandler.get());
+        MinecraftForge.EVENT_BUS.register(ChunkWatchers.get());
+        FMLCommonHandler.instance().bus().register(ChunkWatchers.get());
+        FMLCommonHandler.instance().bus().register(ChunkBlockHandler.get());
+        if (HookProfiler.enabled) FMLCommonHandler.instance().bus().register(HookProfiler.get());
         // MinecraftForge.EVENT_BUS.register(ChunkCollision.client);
 
         log = event.getModLog();
@@ -162,6 +171,8 @@ public class MalisisCore implements IMalisisMod {
 
         MalisisNetwork.createMessages(event.getAsmData());
         Syncer.get().discover(event.getAsmData());
+        FMLCommonHandler.instance().bus().register(Syncer.get());
+        MinecraftForge.EVENT_BUS.register(Syncer.get());
     }
 
     /**
@@ -177,6 +188,17 @@ public class MalisisCore implements IMalisisMod {
             new FiniteLiquidRenderer().registerFor(FiniteLiquid.class);
     }
 
+    /**
+     * Server starting event.<br>
+     * Registers the {@link MalisisCommand} server side, so the stats of the server can be displayed.
+     *
+     * @param event the event
+     */
+    @EventHandler
+    public void serverStarting(FMLServerStartingEvent event) {
+        event.registerServerCommand(new MalisisCommand());
+    }
+
     /**
      * Gui close event.<br>
      * Used to cancel the closing of the configuration GUI when opened from command line.
@@ -192,6 +214,18 @@ public class MalisisCore implements IMalisisMod {
         event.setCanceled(true);
     }
 
+    /**
+     * Texture stitch event.<br>
+     * Invalidates the {@link BakedShape BakedShapes} once the block icons have been stitched again.
+     *
+     * @param event the event
+     */
+    @SideOnly(Side.CLIENT)
+    @SubscribeEvent
+    public void onTextureStitchEvent(TextureStitchEvent.Post event) {
+        if (event.map.getTextureType() == 0) BakedShape.invalidateAll();
+    }
+
     /**
      * Open the configuration GUI for the {@link IMalisisMod}.
      *
@@ -250,7 +250,7 @@ public class GuiRenderer extends MalisisRenderer {
 
         applyTexture(shape, rp);
 
-        for (Face face : s.getFaces()) drawFace(face, face.getParameters());
+        for (Face face : s.getFaces()) drawFace(face, face.readParameters());
     }
 
     public void drawRectangle(int x, int y, int z, int width, int height, int color, int alpha) {
@@ -22,8 +22,10 @@ import java.util.WeakHashMap;
 import net.malisis.core.MalisisCore;
 import net.malisis.core.client.gui.MalisisGui;
 import net.malisis.core.inventory.message.OpenInventoryMessage;
+import net.malisis.core.inventory.message.UpdateInventorySlotsMessage;
 import net.malisis.core.inventory.player.PlayerInventory;
 import net.malisis.core.util.EntityUtils;
+import net.malisis.core.util.ItemUtils;
 import net.minecraft.client.entity.EntityClientPlayerMP;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
@@ -69,6 +71,20 @@ public class MalisisInventory implements IInventory {
     private EventBus bus = new EventBus();
     /** Current inventory state. */
     public InventoryState state = new InventoryState();
+    /** Incremented each time a slot of this {@link MalisisInventory} changes. */
+    private long changeCount;
+    /** ItemStacks last sent to the opened containers. */
+    private ItemStack[] sentItemStacks;
+    /** Change count when the slots were last sent to the opened containers. */
+    private long sentChanges;
+    /** Number of times the slots were checked for the opened containers. */
+    private int updates;
+    /** Server tick of the last check for the opened containers. */
+    private int updateTick = -1;
+    /** Number of updates sent to the opened containers. */
+    private int updateVersion;
+    /** Changed slots of the last update, serialized once for all the opened containers. */
+    private UpdateInventorySlotsMessage.SharedRecords sharedUpdate;
 
     /**
      * Instantiates a new {@link MalisisInventory}.
@@ -384,6 +400,100 @@ public class MalisisInventory implements IInventory {
         return true;
     }
 
+    /**
+     * Increments the change counter of this {@link MalisisInventory}.<br>
+     * Called by {@link MalisisSlot#markDirty()} when a slot changes.
+     *
+     * @return the new value of the counter
+     */
+    long nextChangeId() {
+        return ++changeCount;
+    }
+
+    /**
+     * Gets the number of slot changes that happened in this {@link MalisisInventory}.<br>
+     * {@link MalisisInventoryContainer Containers} only check the slots that changed since the last value they saw.
+     *
+     * @return the change count
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Gets the version of the last update for the opened containers.<br>
+     * Containers that already sent the previous version only need to send {@link #getSharedUpdate()}.
+     *
+     * @return the update version
+     */
+    public int getUpdateVersion() {
+        return updateVersion;
+    }
+
+    /**
+     * Gets the changed slots of the last update, serialized once for all the opened containers.
+     *
+     * @return the shared update
+     */
+    public UpdateInventorySlotsMessage.SharedRecords getSharedUpdate() {
+        return sharedUpdate;
+    }
+
+    /**
+     * Checks the slots changed since the last update, and serializes them once for all the opened containers.<br>
+     * Only the first call for a given tick does the work, so the containers of every player watching this
+     * {@link MalisisInventory} share the same update.
+     *
+     * @param tick the current server tick
+     */
+    public void updateOpenedContainers(int tick) {
+        if (tick == updateTick) return;
+        updateTick = tick;
+
+        boolean fullCheck = updates++ % MalisisInventoryContainer.FULL_CHECK_INTERVAL == 0;
+        if (!fullCheck && changeCount == sentChanges) return;
+
+        if (sentItemStacks == null || sentItemStacks.length != size) sentItemStacks = new ItemStack[size];
+        UpdateInventorySlotsMessage.Packet packet = new UpdateInventorySlotsMessage.Packet(0);
+        for (int i = 0; i < size; i++) {
+            MalisisSlot slot = slots[i];
+            if (!fullCheck && slot.getChangeId() <= sentChanges) continue;
+
+            ItemStack itemStack = slot.getItemStack();
+            if (ItemStack.areItemStacksEqual(itemStack, sentItemStacks[i])) continue;
+            // itemStack modified in place, its cached serialization is outdated
+            if (slot.getChangeId() <= sentChanges) slot.markDirty();
+
+            if (ItemUtils.isSizeChangeOnly(itemStack, sentItemStacks[i])) packet.addSlotSize(inventoryId, slot);
+            else packet.addSlot(inventoryId, slot);
+            sentItemStacks[i] = itemStack != null ? itemStack.copy() : null;
+        }
+        sentChanges = changeCount;
+
+        if (packet.isEmpty()) return;
+        sharedUpdate = packet.share();
+        updateVersion++;
+    }
+
+    /**
+     * Adds the last update of this {@link MalisisInventory} to the <b>packet</b> of an opened container.<br>
+     * Containers that sent the previous version only get the shared update. Containers that missed a version, or never
+     * sent one, get the whole content of the inventory instead.
+     *
+     * @param packet      the packet
+     * @param sentVersion the version last sent by the container, or -1 if none
+     * @return the version sent with the packet
+     */
+    public int addUpdate(UpdateInventorySlotsMessage.Packet packet, int sentVersion) {
+        if (sentVersion == updateVersion) return sentVersion;
+
+        if (sentVersion < 0 || sentVersion != updateVersion - 1) {
+            for (MalisisSlot slot : slots) packet.addSlot(inventoryId, slot);
+        } else packet.addShared(sharedUpdate);
+
+        return updateVersion;
+    }
+
     // #end getters/setters
 
     /**
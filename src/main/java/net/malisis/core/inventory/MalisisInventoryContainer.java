@@ -33,6 +33,10 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.Container;
 import net.minecraft.item.ItemStack;
+import net.minecraft.server.MinecraftServer;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntLongHashMap;
 
 /**
  * Complete rewrite of {@link Container}.
@@ -85,6 +89,11 @@ public class MalisisInventoryContainer extends Container {
     public static final int DRAG_TYPE_ONE = 1;
     /** Dragging the itemStack to pick up itemStacks held by crossed slots. */
     public static final int DRAG_TYPE_PICKUP = 2;
+    /**
+     * Number of updates between two checks of all the slots, to catch the itemStacks modified without the slot being
+     * notified.
+     */
+    public static final int FULL_CHECK_INTERVAL = 20;
 
     /** Player that opened this {@link MalisisInventoryContainer}. */
     protected EntityPlayer owner;
@@ -100,6 +109,8 @@ public class MalisisInventoryContainer extends Container {
     protected int draggedAmount = 0;
     /** The dragged slots. */
     protected Set<MalisisSlot> draggedSlots = new HashSet<>();
+    /** Whether the slots were dragged over since the picked itemStack was last spread among them. */
+    private boolean spreadPending = false;
     /**
      * Type drag action. Can be DRAG_TYPE_SPREAD, DRAG_TYPE_ONE or DRAG_TYPE_PICKUP. Set to -1 if not currently
      * dragging.
@@ -107,6 +118,12 @@ public class MalisisInventoryContainer extends Container {
     protected int dragType = -1;
     /** Stores the last itemStack that was shift clicked. Used for shift double click. */
     protected ItemStack lastShiftClicked;
+    /** Change count of each inventory when its slots were last checked. */
+    private TIntLongHashMap checkedChanges = new TIntLongHashMap();
+    /** Version of the last update sent for each shared inventory. */
+    private TIntIntHashMap sentVersions = new TIntIntHashMap();
+    /** Number of updates since the last time all the slots were checked. */
+    private int updates = 0;
 
     /**
      * Instantiates a new {@link MalisisInventoryContainer}.
@@ -259,6 +276,8 @@ public class MalisisInventoryContainer extends Container {
 
         for (MalisisInventory inventory : inventories.values()) {
             if (inventory.getInventoryId() != 0) {
+                // the content sent is at least as recent as the current update
+                sentVersions.put(inventory.getInventoryId(), inventory.getUpdateVersion());
                 ArrayList<MalisisSlot> slots = new ArrayList<>(Arrays.asList(inventory.getSlots()));
                 UpdateInventorySlotsMessage
                         .updateSlots(inventory.getInventoryId(), slots, (EntityPlayerMP) owner, windowId);
@@ -267,12 +286,48 @@ public class MalisisInventoryContainer extends Container {
     }
 
     /**
-     * Sends all changes for base inventory, player's inventory, picked up itemStack and dragged itemStacks.
+     * Sends the whole content of the inventories and the picked itemStack to the client, whatever it is expected to
+     * hold already.<br>
+     * Used when the client and server may disagree, like when actions from the client were dropped.
+     */
+    public void resync() {
+        if (!(owner instanceof EntityPlayerMP)) {
+            MalisisCore.log.error("MalisisInventoryContainer tried to resync inventory contents CLIENT side !.");
+            return;
+        }
+
+        UpdateInventorySlotsMessage.Packet packet = new UpdateInventorySlotsMessage.Packet(windowId);
+        for (MalisisInventory inventory : inventories.values()) {
+            int inventoryId = inventory.getInventoryId();
+            for (MalisisSlot slot : inventory.getSlots()) {
+                packet.addSlot(inventoryId, slot);
+                if (inventoryId == 0) slot.updateCache(owner);
+            }
+            if (inventoryId != 0) sentVersions.put(inventoryId, inventory.getUpdateVersion());
+        }
+        packet.setPickedItemStack(pickedItemStack);
+        pickedItemStackCache = pickedItemStack != null ? pickedItemStack.copy() : null;
+
+        UpdateInventorySlotsMessage.send(packet, (EntityPlayerMP) owner);
+    }
+
+    /**
+     * Sends all changes for base inventory, player's inventory, picked up itemStack and dragged itemStacks.<br>
+     * All the changes are sent in a single packet. Only the slots marked dirty since the last update are checked,
+     * except every {@value #FULL_CHECK_INTERVAL} updates where all the slots are.
      */
     @Override
     public void detectAndSendChanges() {
-        for (MalisisInventory inventory : inventories.values()) detectAndSendInventoryChanges(inventory);
-        detectAndSendPickedItemStack();
+        if (!(owner instanceof EntityPlayerMP)) {
+            MalisisCore.log.error("MalisisInventoryContainer tried to send inventory slots CLIENT side !.");
+            return;
+        }
+
+        boolean fullCheck = updates++ % FULL_CHECK_INTERVAL == 0;
+        UpdateInventorySlotsMessage.Packet packet = new UpdateInventorySlotsMessage.Packet(windowId);
+        for (MalisisInventory inventory : inventories.values()) detectInventoryChanges(inventory, packet, fullCheck);
+        detectPickedItemStack(packet);
+        UpdateInventorySlotsMessage.send(packet, (EntityPlayerMP) owner);
     }
 
     /**
@@ -286,17 +341,58 @@ public class MalisisInventoryContainer extends Container {
             return;
         }
 
-        ArrayList<MalisisSlot> changedSlots = new ArrayList<>();
+        UpdateInventorySlotsMessage.Packet packet = new UpdateInventorySlotsMessage.Packet(windowId);
+        detectInventoryChanges(inventory, packet, true);
+        UpdateInventorySlotsMessage.send(packet, (EntityPlayerMP) owner);
+    }
+
+    /**
+     * Adds the changed slots of the {@link MalisisInventory} to the packet.<br>
+     * Slots whose itemStack only changed in size are sent without their item and NBT.
+     *
+     * @param inventory the inventory
+     * @param packet    the packet
+     * @param fullCheck whether to check all the slots, or only the ones changed since last check
+     */
+    protected void detectInventoryChanges(MalisisInventory inventory, UpdateInventorySlotsMessage.Packet packet,
+            boolean fullCheck) {
+        int inventoryId = inventory.getInventoryId();
+        if (inventoryId != 0) {
+            detectSharedInventoryChanges(inventory, packet);
+            return;
+        }
+
+        long changes = inventory.getChangeCount();
+        long checked = checkedChanges.get(inventoryId);
+        if (!fullCheck && changes == checked) return;
 
         for (MalisisSlot slot : inventory.getSlots()) {
-            if (slot.hasChanged(owner)) {
-                changedSlots.add(slot);
-                slot.updateCache(owner);
-            }
+            if (!fullCheck && slot.getChangeId() <= checked) continue;
+            if (!slot.hasChanged(owner)) continue;
+            // itemStack modified in place, its cached serialization is outdated
+            if (slot.getChangeId() <= checked) slot.markDirty();
+
+            if (slot.hasSizeChangedOnly(owner)) packet.addSlotSize(inventoryId, slot);
+            else packet.addSlot(inventoryId, slot);
+            slot.updateCache(owner);
         }
+        checkedChanges.put(inventoryId, changes);
+    }
+
+    /**
+     * Adds the changes of an inventory that can be opened by several players to the packet.<br>
+     * The changes are detected and serialized once by the {@link MalisisInventory} for all the players, and only
+     * copied into each packet.
+     *
+     * @param inventory the inventory
+     * @param packet    the packet
+     */
+    protected void detectSharedInventoryChanges(MalisisInventory inventory, UpdateInventorySlotsMessage.Packet packet) {
+        int inventoryId = inventory.getInventoryId();
+        inventory.updateOpenedContainers(MinecraftServer.getServer().getTickCounter());
 
-        if (changedSlots.size() > 0) UpdateInventorySlotsMessage
-                .updateSlots(inventory.getInventoryId(), changedSlots, (EntityPlayerMP) owner, windowId);
+        int sentVersion = sentVersions.containsKey(inventoryId) ? sentVersions.get(inventoryId) : -1;
+        sentVersions.put(inventoryId, inventory.addUpdate(packet, sentVersion));
     }
 
     /**
@@ -308,9 +404,20 @@ public class MalisisInventoryContainer extends Container {
             return;
         }
 
+        UpdateInventorySlotsMessage.Packet packet = new UpdateInventorySlotsMessage.Packet(windowId);
+        detectPickedItemStack(packet);
+        UpdateInventorySlotsMessage.send(packet, (EntityPlayerMP) owner);
+    }
+
+    /**
+     * Adds the currently picked itemStack to the packet if changed.
+     *
+     * @param packet the packet
+     */
+    protected void detectPickedItemStack(UpdateInventorySlotsMessage.Packet packet) {
         if (ItemStack.areItemStacksEqual(pickedItemStack, pickedItemStackCache)) return;
 
-        UpdateInventorySlotsMessage.updatePickedItemStack(pickedItemStack, (EntityPlayerMP) owner, windowId);
+        packet.setPickedItemStack(pickedItemStack);
         pickedItemStackCache = pickedItemStack != null ? pickedItemStack.copy() : null;
     }
 
@@ -418,13 +525,14 @@ public class MalisisInventoryContainer extends Container {
      * @return the item stack
      */
     private ItemStack handleDropPickedStack(boolean fullStack) {
-        ItemUtils.ItemStackSplitter iss = new ItemUtils.ItemStackSplitter(pickedItemStack);
-        iss.split(fullStack ? ItemUtils.FULL_STACK : 1);
+        ItemUtils.ItemStackSplitter iss = ItemUtils.splitter(pickedItemStack);
+        ItemStack split = iss.split(fullStack ? ItemUtils.FULL_STACK : 1);
+        ItemStack source = iss.source;
 
-        owner.dropPlayerItemWithRandomChoice(iss.split, true);
-        setPickedItemStack(iss.source);
+        owner.dropPlayerItemWithRandomChoice(split, true);
+        setPickedItemStack(source);
 
-        return iss.source;
+        return source;
     }
 
     /**
@@ -544,17 +652,18 @@ public class MalisisInventoryContainer extends Container {
 
         if (!slot.isState(PLAYER_EXTRACT)) return null;
 
-        ItemUtils.ItemStackSplitter iss = new ItemUtils.ItemStackSplitter(slot.getItemStack());
-        iss.split(fullStack ? ItemUtils.FULL_STACK : 1);
+        ItemUtils.ItemStackSplitter iss = ItemUtils.splitter(slot.getItemStack());
+        ItemStack split = iss.split(fullStack ? ItemUtils.FULL_STACK : 1);
+        int amount = iss.amount;
 
         slot.setItemStack(iss.source);
         // if (slot.hasChanged())
         slot.onSlotChanged();
-        owner.dropPlayerItemWithRandomChoice(iss.split, true);
+        owner.dropPlayerItemWithRandomChoice(split, true);
 
-        if (iss.amount != 0) slot.onPickupFromSlot(owner, iss.split);
+        if (amount != 0) slot.onPickupFromSlot(owner, split);
 
-        return iss.split;
+        return split;
     }
 
     /**
@@ -576,12 +685,12 @@ public class MalisisInventoryContainer extends Container {
                 if (slot.isState(PLAYER_EXTRACT)) {
                     MalisisSlot s = inventory.getSlot(i);
                     if (s.getItemStack() != null && s.getItemStack().stackSize != s.getItemStack().getMaxStackSize()) {
-                        ItemUtils.ItemStacksMerger ism = new ItemStacksMerger(s.getItemStack(), pickedItemStack);
+                        ItemStacksMerger ism = ItemUtils.merger(s.getItemStack(), pickedItemStack);
                         ism.merge();
+                        pickedItemStack = ism.into;
                         s.setItemStack(ism.merge);
                         // if (s.hasChanged())
                         s.onSlotChanged();
-                        pickedItemStack = ism.into;
                     }
                 }
                 i++;
@@ -666,6 +775,7 @@ public class MalisisInventoryContainer extends Container {
 
         // released the mouse button used to start dragging an itemStack
         if (action == DRAG_END) {
+            if (spreadPending) spreadDraggedItemStack();
             int amountMerged = 0;
             for (MalisisSlot s : draggedSlots) {
                 if (s.isItemValid(pickedItemStack) && s.isState(PLAYER_INSERT)) {
@@ -699,11 +809,12 @@ public class MalisisInventoryContainer extends Container {
 
             if (!slot.isState(PLAYER_EXTRACT)) return pickedItemStack;
 
-            ItemUtils.ItemStacksMerger ism = new ItemStacksMerger(slot.getItemStack(), pickedItemStack);
+            ItemStacksMerger ism = ItemUtils.merger(slot.getItemStack(), pickedItemStack);
             ism.merge();
+            ItemStack left = ism.merge;
 
             setPickedItemStack(ism.into);
-            slot.setItemStack(ism.merge);
+            slot.setItemStack(left);
             // if (slot.hasChanged())
             slot.onSlotChanged();
 
@@ -713,6 +824,10 @@ public class MalisisInventoryContainer extends Container {
         // we can't insert into slot, so no need to add to list
         if (!slot.isState(PLAYER_INSERT)) return pickedItemStack;
 
+        // the pending spread must not include a slot exceeding the dragged amount
+        if (spreadPending && !draggedSlots.contains(slot) && draggedSlots.size() >= draggedAmount)
+            spreadDraggedItemStack();
+
         // add the current slot to the list of dragged slots
         draggedSlots.add(slot);
 
@@ -727,6 +842,20 @@ public class MalisisInventoryContainer extends Container {
         // action == DRAG_ADD_SLOT
         if (draggedSlots.size() <= 1) // do not start spreading before it's dragged at least over two slots
             return pickedItemStack;
+
+        // the server only needs the spread when the dragging ends, so a burst of slots added is only spread once
+        if (owner instanceof EntityPlayerMP) spreadPending = true;
+        else spreadDraggedItemStack();
+
+        return pickedItemStack;
+    }
+
+    /**
+     * Spreads the picked itemStack among the dragged slots, and sets the dragged itemStack of each slot.
+     */
+    private void spreadDraggedItemStack() {
+        spreadPending = false;
+
         int amountPerSlot = dragType == DRAG_TYPE_SPREAD ? Math.max(draggedAmount / draggedSlots.size(), 1) : 1;
         int amountTotal = 0;
 
@@ -739,7 +868,7 @@ public class MalisisInventoryContainer extends Container {
                 if (slotStack != null) // work on a copy because we don't want to alter the slot itemStack
                     slotStack = slotStack.copy();
 
-                ItemUtils.ItemStacksMerger ism = new ItemStacksMerger(itemStack, slotStack);
+                ItemStacksMerger ism = ItemUtils.merger(itemStack, slotStack);
                 ism.merge(amountPerSlot, s.getSlotStackLimit());
                 if (s.getItemStack() != null) ism.into.stackSize -= s.getItemStack().stackSize;
                 s.setDraggedItemStack(ism.into);
@@ -749,7 +878,14 @@ public class MalisisInventoryContainer extends Container {
         }
 
         pickedItemStack.stackSize = draggedAmount - amountTotal;
-        return pickedItemStack;
+    }
+
+    /**
+     * Cancels the current dragging, if any, and gives back to the picked itemStack the amount being spread.<br>
+     * Used when a drag action from the client was dropped, so the dragging does not stay stuck server side.
+     */
+    public void resetDrag() {
+        func_94533_d();
     }
 
     /**
@@ -765,6 +901,7 @@ public class MalisisInventoryContainer extends Container {
 
         draggedSlots.clear();
         draggedAmount = 0;
+        spreadPending = false;
 
         dragType = -1;
     }
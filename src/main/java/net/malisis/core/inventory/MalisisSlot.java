@@ -22,6 +22,10 @@ import net.malisis.core.util.ItemUtils.ItemStacksMerger;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemStack;
 
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
 /**
  * Slots contained by {@link MalisisInventory}
  *
@@ -44,6 +48,14 @@ public class MalisisSlot {
     public int slotNumber;
     /** {@link InventoryState} of this slot. */
     protected InventoryState state = new InventoryState();
+    /** Value of the change counter of the {@link MalisisInventory} when this {@link MalisisSlot} last changed. */
+    private long changeId;
+    /** Serialized {@link #itemStack}, reused until this {@link MalisisSlot} changes. */
+    private byte[] encodedItemStack;
+    /** Change id of this {@link MalisisSlot} when {@link #encodedItemStack} was serialized. */
+    private long encodedChangeId;
+    /** ItemStack that was serialized in {@link #encodedItemStack}. */
+    private ItemStack encodedFor;
 
     /**
      * Instantiates a new {@link MalisisSlot}.
@@ -93,6 +105,7 @@ public class MalisisSlot {
      */
     public void setInventory(MalisisInventory inventory) {
         this.inventory = inventory;
+        markDirty();
     }
 
     /**
@@ -121,6 +134,7 @@ public class MalisisSlot {
      */
     public void setItemStack(ItemStack itemStack) {
         this.itemStack = itemStack;
+        markDirty();
     }
 
     /**
@@ -139,6 +153,7 @@ public class MalisisSlot {
      */
     public void setDraggedItemStack(ItemStack itemStack) {
         this.draggedItemStack = itemStack;
+        markDirty();
     }
 
     /**
@@ -211,9 +226,46 @@ public class MalisisSlot {
      * Called when itemStack is set.
      */
     public void onSlotChanged() {
+        markDirty();
         this.inventory.onSlotChanged(this);
     }
 
+    /**
+     * Marks this {@link MalisisSlot} as changed, so that its content is checked by the opened
+     * {@link MalisisInventoryContainer containers} on their next update.
+     */
+    public void markDirty() {
+        if (inventory != null) changeId = inventory.nextChangeId();
+    }
+
+    /**
+     * Gets the value of the change counter of the {@link MalisisInventory} when this {@link MalisisSlot} last changed.
+     *
+     * @return the change id
+     */
+    public long getChangeId() {
+        return changeId;
+    }
+
+    /**
+     * Gets the {@link ItemStack} of this {@link MalisisSlot} serialized as by {@link ByteBufUtils#writeItemStack}.<br>
+     * The bytes are cached until the slot changes, so the itemStack NBT is only serialized once whatever the number of
+     * times and players it is sent to. The returned array must not be modified.
+     *
+     * @return the serialized itemStack
+     */
+    public byte[] getEncodedItemStack() {
+        if (encodedItemStack == null || encodedChangeId != changeId || encodedFor != itemStack) {
+            ByteBuf buf = Unpooled.buffer();
+            ByteBufUtils.writeItemStack(buf, itemStack);
+            encodedItemStack = new byte[buf.readableBytes()];
+            buf.readBytes(encodedItemStack);
+            encodedChangeId = changeId;
+            encodedFor = itemStack;
+        }
+        return encodedItemStack;
+    }
+
     /**
      * Called when itemStack is picked up from this {@link MalisisSlot}.
      *
@@ -236,6 +288,7 @@ public class MalisisSlot {
 
         int start = itemStack.stackSize;
         itemStack.stackSize = Math.min(stackSize, Math.min(itemStack.getMaxStackSize(), getSlotStackLimit()));
+        markDirty();
         return itemStack.stackSize - start;
     }
 
@@ -258,12 +311,12 @@ public class MalisisSlot {
      * @return the {@link ItemStack} extracted
      */
     public ItemStack extract(int amount) {
-        ItemStackSplitter iss = new ItemUtils.ItemStackSplitter(getItemStack());
-        iss.split(amount);
+        ItemStackSplitter iss = ItemUtils.splitter(getItemStack());
+        ItemStack split = iss.split(amount);
         setItemStack(iss.source);
         // if (hasChanged())
         onSlotChanged();
-        return iss.split;
+        return split;
     }
 
     /**
@@ -302,7 +355,7 @@ public class MalisisSlot {
 
         if (!isItemValid(insert)) return insert;
 
-        ItemStacksMerger ism = new ItemUtils.ItemStacksMerger(insert, itemStack);
+        ItemStacksMerger ism = ItemUtils.merger(insert, itemStack);
         if (!ism.canMerge() || isFull()) {
             if (!force) return insert;
 
@@ -315,12 +368,13 @@ public class MalisisSlot {
         }
 
         ism.merge(amount, getSlotStackLimit());
+        ItemStack left = ism.merge;
         setItemStack(ism.into);
 
         // if (hasChanged())
         onSlotChanged();
 
-        return ism.merge;
+        return left;
     }
 
     /**
@@ -347,6 +401,17 @@ public class MalisisSlot {
                 || !ItemStack.areItemStacksEqual(draggedItemStack, cachedDragged);
     }
 
+    /**
+     * Checks whether only the stack size of this {@link MalisisSlot} has changed for the {@link EntityPlayer}, in which
+     * case the player can be sent the new size instead of the full {@link ItemStack}.
+     *
+     * @param player the player
+     * @return true, if the item, damage and NBT are the same as the cached ones
+     */
+    public boolean hasSizeChangedOnly(EntityPlayer player) {
+        return ItemUtils.isSizeChangeOnly(itemStack, cachedItemStacks.get(player));
+    }
+
     /**
      * Update the cached {@link ItemStack itemStacks} of this {@link MalisisSlot} for the {@link EntityPlayer}.
      *
@@ -13,13 +13,18 @@
 
 package net.malisis.core.inventory.message;
 
+import java.util.Map;
+
 import net.malisis.core.MalisisCore;
 import net.malisis.core.inventory.MalisisInventoryContainer;
 import net.malisis.core.inventory.MalisisInventoryContainer.ActionType;
 import net.malisis.core.network.MalisisMessage;
 import net.minecraft.client.Minecraft;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.Container;
 
+import com.google.common.collect.MapMaker;
+
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
 import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
@@ -36,13 +41,24 @@ import io.netty.buffer.ByteBuf;
 @MalisisMessage
 public class InventoryActionMessage implements IMessageHandler<InventoryActionMessage.Packet, IMessage> {
 
+    /** Maximum number of actions a player can send in a burst. */
+    public static int maxActions = 64;
+    /** Number of actions per second a player can send once the burst is spent. */
+    public static int actionsPerSecond = 32;
+
+    /** Action limits for each player. */
+    private Map<EntityPlayerMP, ActionLimiter> limiters = new MapMaker().weakKeys().makeMap();
+
     public InventoryActionMessage() {
         MalisisCore.network.registerMessage(this, Packet.class, Side.SERVER);
     }
 
     /**
      * Handles the {@link Packet} received from the client. Pass the action to the {@link MalisisInventoryContainer},
-     * and send the changes back to the client.
+     * and send the changes back to the client.<br>
+     * Actions exceeding the player limit are dropped, and the whole inventory content is sent back to the client so it
+     * does not keep the results of the actions the server ignored. The dragging is reset when an action is dropped, as
+     * the following drag actions would not match the state of the server anymore.
      *
      * @param message the message
      * @param ctx     the ctx
@@ -52,16 +68,40 @@ public class InventoryActionMessage implements IMessageHandler<InventoryActionMe
     public IMessage onMessage(Packet message, MessageContext ctx) {
         if (ctx.side != Side.SERVER) return null;
 
-        Container c = ctx.getServerHandler().playerEntity.openContainer;
+        EntityPlayerMP player = ctx.getServerHandler().playerEntity;
+        Container c = player.openContainer;
         if (message.windowId != c.windowId || !(c instanceof MalisisInventoryContainer)) return null;
 
         MalisisInventoryContainer container = (MalisisInventoryContainer) c;
+        ActionLimiter limiter = getLimiter(player);
+        if (!limiter.tryAcquire(message.action, container.getDragType(), System.nanoTime())) {
+            container.resetDrag();
+            if (limiter.markDropped()) container.resync();
+            return null;
+        }
+
         container.handleAction(message.action, message.inventoryId, message.slotNumber, message.code);
-        container.detectAndSendChanges();
+        if (limiter.clearDropped()) container.resync();
+        else container.detectAndSendChanges();
 
         return null;
     }
 
+    /**
+     * Gets the {@link ActionLimiter} for the player.
+     *
+     * @param player the player
+     * @return the limiter
+     */
+    private ActionLimiter getLimiter(EntityPlayerMP player) {
+        ActionLimiter limiter = limiters.get(player);
+        if (limiter == null) {
+            limiter = new ActionLimiter(System.nanoTime());
+            limiters.put(player, limiter);
+        }
+        return limiter;
+    }
+
     /**
      * Sends GUI action to the server {@link MalisisInventoryContainer}.
      *
@@ -77,6 +117,73 @@ public class InventoryActionMessage implements IMessageHandler<InventoryActionMe
         MalisisCore.network.sendToServer(packet);
     }
 
+    /**
+     * {@link ActionLimiter} is a token bucket limiting the number of actions a player can send.<br>
+     * The bucket holds up to {@link InventoryActionMessage#maxActions} tokens, refilled at
+     * {@link InventoryActionMessage#actionsPerSecond}.<br>
+     * Slots dragged over while spreading an itemStack are free, because the server only records them. The end and
+     * reset of the dragging are never dropped, so the server does not keep dragging.
+     */
+    static class ActionLimiter {
+
+        private double tokens = maxActions;
+        private long lastRefill;
+        private boolean dropped = false;
+
+        ActionLimiter(long now) {
+            lastRefill = now;
+        }
+
+        /**
+         * Takes a token from the bucket for the action, if needed.
+         *
+         * @param action   the action
+         * @param dragType the current drag type of the container
+         * @param now      the current time, in nanoseconds
+         * @return true, if the action is allowed
+         */
+        public boolean tryAcquire(ActionType action, int dragType, long now) {
+            tokens = Math.min(maxActions, tokens + (now - lastRefill) * actionsPerSecond / 1000000000D);
+            lastRefill = now;
+
+            if (action == ActionType.DRAG_ADD_SLOT && (dragType == MalisisInventoryContainer.DRAG_TYPE_SPREAD
+                    || dragType == MalisisInventoryContainer.DRAG_TYPE_ONE))
+                return true;
+
+            if (action == ActionType.DRAG_END || action == ActionType.DRAG_RESET) {
+                tokens = Math.max(0, tokens - 1);
+                return true;
+            }
+
+            if (tokens < 1) return false;
+
+            tokens--;
+            return true;
+        }
+
+        /**
+         * Marks that an action was dropped.
+         *
+         * @return true, if it is the first action dropped since the last action allowed
+         */
+        public boolean markDropped() {
+            boolean first = !dropped;
+            dropped = true;
+            return first;
+        }
+
+        /**
+         * Clears the dropped flag.
+         *
+         * @return true, if actions were dropped before this one
+         */
+        public boolean clearDropped() {
+            boolean wasDropped = dropped;
+            dropped = false;
+            return wasDropped;
+        }
+    }
+
     /**
      * The packet holding the data
      */
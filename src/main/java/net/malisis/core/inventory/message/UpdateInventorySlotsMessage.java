@@ -14,8 +14,7 @@
 package net.malisis.core.inventory.message;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.List;
 
 import net.malisis.core.MalisisCore;
 import net.malisis.core.inventory.MalisisInventory;
@@ -35,6 +34,7 @@ import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 /**
  * Message to update the slots in the opened {@link MalisisInventoryContainer} on the client.
@@ -45,8 +45,6 @@ import io.netty.buffer.ByteBuf;
 @MalisisMessage
 public class UpdateInventorySlotsMessage implements IMessageHandler<UpdateInventorySlotsMessage.Packet, IMessage> {
 
-    public static int PICKEDITEM = -1;
-
     public UpdateInventorySlotsMessage() {
         MalisisCore.network.registerMessage(this, Packet.class, Side.CLIENT);
     }
@@ -60,7 +58,7 @@ public class UpdateInventorySlotsMessage implements IMessageHandler<UpdateInvent
      */
     @Override
     public IMessage onMessage(Packet message, MessageContext ctx) {
-        if (ctx.side == Side.CLIENT) updateSlots(message.inventoryId, message.slots, message.windowId);
+        if (ctx.side == Side.CLIENT) updateSlots(message);
 
         return null;
     }
@@ -68,31 +66,42 @@ public class UpdateInventorySlotsMessage implements IMessageHandler<UpdateInvent
     /**
      * Handles the reception of packets that update the inventory of the client.
      *
-     * @param inventoryId the inventory id
-     * @param slots       the slots
-     * @param windowId    the window id
+     * @param packet the packet
      */
     @SideOnly(Side.CLIENT)
-    private void updateSlots(int inventoryId, HashMap<Integer, ItemStack> slots, int windowId) {
+    private void updateSlots(Packet packet) {
         EntityClientPlayerMP player = Minecraft.getMinecraft().thePlayer;
         Container c = player.openContainer;
-        if (windowId != c.windowId || !(c instanceof MalisisInventoryContainer)) return;
+        if (packet.windowId != c.windowId || !(c instanceof MalisisInventoryContainer)) return;
 
         MalisisInventoryContainer container = (MalisisInventoryContainer) c;
-        if (inventoryId == PICKEDITEM) {
-            container.setPickedItemStack(slots.get(-1));
-            return;
-        }
-
-        MalisisInventory inventory = container.getInventory(inventoryId);
-        if (inventory == null) return;
+        for (SlotRecord record : packet.records) {
+            MalisisInventory inventory = container.getInventory(record.inventoryId);
+            if (inventory == null) continue;
 
-        for (Entry<Integer, ItemStack> entry : slots.entrySet()) {
-            Integer slotNumber = entry.getKey();
-            ItemStack itemStack = entry.getValue();
+            if (!record.sizeOnly) {
+                inventory.setItemStack(record.slotNumber, record.itemStack);
+                continue;
+            }
 
-            inventory.setItemStack(slotNumber, itemStack);
+            ItemStack itemStack = inventory.getItemStack(record.slotNumber);
+            if (itemStack == null) continue;
+            itemStack = itemStack.copy();
+            itemStack.stackSize = record.stackSize;
+            inventory.setItemStack(record.slotNumber, itemStack);
         }
+
+        if (packet.hasPickedItemStack) container.setPickedItemStack(packet.pickedItemStack);
+    }
+
+    /**
+     * Sends the {@link Packet} to the player if it holds any update.
+     *
+     * @param packet the packet
+     * @param player the player
+     */
+    public static void send(Packet packet, EntityPlayerMP player) {
+        if (!packet.isEmpty()) MalisisCore.network.sendTo(packet, player);
     }
 
     /**
@@ -103,9 +112,9 @@ public class UpdateInventorySlotsMessage implements IMessageHandler<UpdateInvent
      * @param windowId  the window id
      */
     public static void updatePickedItemStack(ItemStack itemStack, EntityPlayerMP player, int windowId) {
-        Packet packet = new Packet(PICKEDITEM, windowId);
-        packet.draggedItemStack(itemStack);
-        MalisisCore.network.sendTo(packet, player);
+        Packet packet = new Packet(windowId);
+        packet.setPickedItemStack(itemStack);
+        send(packet, player);
     }
 
     /**
@@ -117,58 +126,183 @@ public class UpdateInventorySlotsMessage implements IMessageHandler<UpdateInvent
      * @param windowId    the window id
      */
     public static void updateSlots(int inventoryId, ArrayList<MalisisSlot> slots, EntityPlayerMP player, int windowId) {
-        Packet packet = new Packet(inventoryId, windowId);
-        for (MalisisSlot slot : slots) packet.addSlot(slot);
-        MalisisCore.network.sendTo(packet, player);
+        Packet packet = new Packet(windowId);
+        for (MalisisSlot slot : slots) packet.addSlot(inventoryId, slot);
+        send(packet, player);
     }
 
-    public static class Packet implements IMessage {
+    /**
+     * {@link SlotRecord} holds the update of a single slot, either the full {@link ItemStack} or only its size.
+     */
+    private static class SlotRecord {
 
         private int inventoryId;
-        private HashMap<Integer, ItemStack> slots = new HashMap<>();
+        private int slotNumber;
+        private boolean sizeOnly;
+        private ItemStack itemStack;
+        private byte[] encodedItemStack;
+        private int stackSize;
+
+        public SlotRecord(int inventoryId, int slotNumber) {
+            this.inventoryId = inventoryId;
+            this.slotNumber = slotNumber;
+        }
+    }
+
+    /**
+     * {@link SharedRecords} holds slot records serialized once, to be appended to the {@link Packet packets} of every
+     * player watching the same {@link MalisisInventory}.<br>
+     * The buffer is never modified once created, so the same instance is shared by all the packets.
+     */
+    public static class SharedRecords {
+
+        private final int count;
+        private final ByteBuf data;
+
+        private SharedRecords(int count, ByteBuf data) {
+            this.count = count;
+            this.data = data;
+        }
+
+        /**
+         * Gets the number of records.
+         *
+         * @return the count
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the serialized size of the records.
+         *
+         * @return the size in bytes
+         */
+        public int getSize() {
+            return data.readableBytes();
+        }
+    }
+
+    /**
+     * {@link Packet} holding the slots updates of all the inventories of a container, and the picked itemStack.
+     */
+    public static class Packet implements IMessage {
+
         private int windowId;
+        private List<SlotRecord> records = new ArrayList<>();
+        private List<SharedRecords> sharedRecords = new ArrayList<>();
+        private boolean hasPickedItemStack;
+        private ItemStack pickedItemStack;
 
         public Packet() {}
 
-        public Packet(int inventoryId, int windowId) {
-            this.inventoryId = inventoryId;
+        public Packet(int windowId) {
             this.windowId = windowId;
         }
 
-        public void addSlot(MalisisSlot slot) {
-            slots.put(slot.slotNumber, slot.getItemStack());
+        /**
+         * Adds the full {@link ItemStack} of the slot to this {@link Packet}.
+         *
+         * @param inventoryId the inventory id
+         * @param slot        the slot
+         */
+        public void addSlot(int inventoryId, MalisisSlot slot) {
+            SlotRecord record = new SlotRecord(inventoryId, slot.slotNumber);
+            record.encodedItemStack = slot.getEncodedItemStack();
+            records.add(record);
+        }
+
+        /**
+         * Adds the stack size of the slot to this {@link Packet}.<br>
+         * The client already holds the same {@link ItemStack} with a different size.
+         *
+         * @param inventoryId the inventory id
+         * @param slot        the slot
+         */
+        public void addSlotSize(int inventoryId, MalisisSlot slot) {
+            SlotRecord record = new SlotRecord(inventoryId, slot.slotNumber);
+            record.sizeOnly = true;
+            record.stackSize = slot.getItemStack().stackSize;
+            records.add(record);
         }
 
-        public void setSlots(HashMap<Integer, ItemStack> slots) {
-            if (slots != null) this.slots = slots;
+        /**
+         * Adds the records shared with the packets of the other players to this {@link Packet}.
+         *
+         * @param records the records
+         */
+        public void addShared(SharedRecords records) {
+            if (records != null) sharedRecords.add(records);
         }
 
-        public void draggedItemStack(ItemStack itemStack) {
-            slots.put(-1, itemStack);
+        /**
+         * Serializes the records of this {@link Packet} so they can be added to the packets of several players.
+         *
+         * @return the shared records
+         */
+        public SharedRecords share() {
+            ByteBuf data = Unpooled.buffer();
+            for (SlotRecord record : records) writeRecord(data, record);
+            return new SharedRecords(records.size(), data);
+        }
+
+        /**
+         * Sets the picked {@link ItemStack} to be sent with this {@link Packet}.
+         *
+         * @param itemStack the item stack
+         */
+        public void setPickedItemStack(ItemStack itemStack) {
+            hasPickedItemStack = true;
+            pickedItemStack = itemStack;
+        }
+
+        /**
+         * Checks whether this {@link Packet} holds any update.
+         *
+         * @return true, if empty
+         */
+        public boolean isEmpty() {
+            return records.isEmpty() && sharedRecords.isEmpty() && !hasPickedItemStack;
         }
 
         @Override
         public void fromBytes(ByteBuf buf) {
-            this.inventoryId = buf.readInt();
-            this.windowId = buf.readInt();
-            int size = buf.readInt();
+            windowId = buf.readInt();
+            int size = ByteBufUtils.readVarInt(buf, 5);
+            for (int i = 0; i < size; i++) {
+                SlotRecord record = new SlotRecord(ByteBufUtils.readVarInt(buf, 5), ByteBufUtils.readVarInt(buf, 5));
+                record.sizeOnly = buf.readBoolean();
+                if (record.sizeOnly) record.stackSize = ByteBufUtils.readVarInt(buf, 5);
+                else record.itemStack = ByteBufUtils.readItemStack(buf);
+                records.add(record);
+            }
 
-            for (int i = 0; i < size; i++) slots.put(buf.readInt(), ByteBufUtils.readItemStack(buf));
+            hasPickedItemStack = buf.readBoolean();
+            if (hasPickedItemStack) pickedItemStack = ByteBufUtils.readItemStack(buf);
         }
 
         @Override
         public void toBytes(ByteBuf buf) {
-            buf.writeInt(inventoryId);
+            int count = records.size();
+            for (SharedRecords shared : sharedRecords) count += shared.count;
+
             buf.writeInt(windowId);
-            buf.writeInt(slots.size());
+            ByteBufUtils.writeVarInt(buf, count, 5);
+            for (SlotRecord record : records) writeRecord(buf, record);
+            // shared records are already serialized, only copy their bytes
+            for (SharedRecords shared : sharedRecords)
+                buf.writeBytes(shared.data, shared.data.readerIndex(), shared.data.readableBytes());
 
-            for (Entry<Integer, ItemStack> entry : slots.entrySet()) {
-                Integer slotNumber = entry.getKey();
-                ItemStack itemStack = entry.getValue();
+            buf.writeBoolean(hasPickedItemStack);
+            if (hasPickedItemStack) ByteBufUtils.writeItemStack(buf, pickedItemStack);
+        }
 
-                buf.writeInt(slotNumber);
-                ByteBufUtils.writeItemStack(buf, itemStack);
-            }
+        private static void writeRecord(ByteBuf buf, SlotRecord record) {
+            ByteBufUtils.writeVarInt(buf, record.inventoryId, 5);
+            ByteBufUtils.writeVarInt(buf, record.slotNumber, 5);
+            buf.writeBoolean(record.sizeOnly);
+            if (record.sizeOnly) ByteBufUtils.writeVarInt(buf, record.stackSize, 5);
+            else buf.writeBytes(record.encodedItemStack);
         }
     }
 }
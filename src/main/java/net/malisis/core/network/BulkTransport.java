@@ -0,0 +1,589 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.malisis.core.MalisisCore;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+import com.google.common.collect.MapMaker;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.FMLNetworkEvent.ClientDisconnectionFromServerEvent;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import cpw.mods.fml.relauncher.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * {@link BulkTransport} is the opt-in transport used by {@link MalisisNetwork} for large messages.<br>
+ * The message is serialized once, compressed with a {@link Deflater} when bigger than the threshold, and split into
+ * {@link BulkPacket parts} small enough to be sent in either direction. The receiver reassembles the parts in any
+ * order, inflates the payload and hands the message to the {@link IMessageHandler} registered for its type, as if it
+ * was received directly. Transfers left incomplete are discarded after a timeout, or when the client disconnects.<br>
+ * Messages sent to the server only go through this transport if the mod opted in with
+ * {@link MalisisNetwork#enableBulkToServer()}. The server accepts much smaller transfers than the client, and
+ * disconnects the players going over its limits.
+ *
+ * @author Ordinastie
+ */
+public class BulkTransport implements IMessageHandler<BulkTransport.BulkPacket, IMessage> {
+
+    /** Default size under which messages are sent as is. */
+    public static final int DEFAULT_THRESHOLD = 8192;
+    /** Maximum size of the data held by a single part, below the 32767 bytes limit of client packets. */
+    private static final int PART_SIZE = 30000;
+    /** Maximum size of a reassembled payload received by the client. */
+    public static final int MAX_PAYLOAD = 1 << 24;
+    /** Maximum number of parts of a single transfer. */
+    private static final int MAX_PARTS = MAX_PAYLOAD / PART_SIZE + 1;
+    /** Maximum number of transfers being reassembled from the server. */
+    private static final int MAX_PENDING = 16;
+    /** Maximum number of bytes buffered for the transfers from the server. */
+    private static final int MAX_BUFFERED = 1 << 26;
+    /** Maximum size of a reassembled payload received by the server. */
+    private static final int SERVER_MAX_PAYLOAD = 1 << 20;
+    /** Maximum number of transfers being reassembled for a single player. */
+    private static final int SERVER_MAX_PENDING = 2;
+    /** Maximum number of bytes buffered for the transfers of a single player, enough for any valid transfer. */
+    private static final int SERVER_MAX_BUFFERED = SERVER_MAX_PAYLOAD;
+    /** Default time after which an incomplete transfer is discarded. */
+    public static final long DEFAULT_TIMEOUT = 30000;
+
+    /** The network this {@link BulkTransport} belongs to. */
+    private final MalisisNetwork network;
+    /** Size under which messages are sent as is. */
+    private int threshold = DEFAULT_THRESHOLD;
+    /** Compression level used by the {@link Deflater}. */
+    private int level = Deflater.BEST_SPEED;
+    /** Time in milliseconds after which an incomplete transfer is discarded. */
+    private long timeout = DEFAULT_TIMEOUT;
+    /** Whether messages can be sent to the server through this transport. */
+    private volatile boolean serverBound = false;
+    /** Id of the last transfer sent. */
+    private final AtomicInteger transferId = new AtomicInteger();
+
+    /** Registered message types, by discriminator. */
+    private final Map<Integer, MessageType> types = new HashMap<>();
+    /** Discriminators of the messages handled on the client, by message class. */
+    private final Map<Class<?>, Integer> clientTypes = new HashMap<>();
+    /** Discriminators of the messages handled on the server, by message class. */
+    private final Map<Class<?>, Integer> serverTypes = new HashMap<>();
+    /** Transfers being reassembled, per sender (the player on the server, this transport on the client). */
+    private final Map<Object, Map<Integer, Transfer>> transfers = new MapMaker().weakKeys().makeMap();
+
+    /** Number of messages sent through this transport. */
+    private final AtomicLong messages = new AtomicLong();
+    /** Number of parts sent. */
+    private final AtomicLong parts = new AtomicLong();
+    /** Size of the messages before compression. */
+    private final AtomicLong rawBytes = new AtomicLong();
+    /** Size of the messages after compression. */
+    private final AtomicLong compressedBytes = new AtomicLong();
+    /** Time spent compressing. */
+    private final AtomicLong compressTime = new AtomicLong();
+    /** Time spent decompressing. */
+    private final AtomicLong decompressTime = new AtomicLong();
+
+    public BulkTransport(MalisisNetwork network) {
+        this.network = network;
+    }
+
+    /**
+     * Sets the size under which messages are sent as is.
+     *
+     * @param threshold the threshold in bytes
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Sets the compression level used for the messages.
+     *
+     * @param level the level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Sets the time after which an incomplete transfer is discarded.
+     *
+     * @param timeout the timeout in milliseconds
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets whether messages can be sent to the server through this transport. Should be the same on both sides.
+     *
+     * @param serverBound whether server bound messages are allowed
+     */
+    void setServerBound(boolean serverBound) {
+        this.serverBound = serverBound;
+    }
+
+    /**
+     * Checks whether messages can be sent to the server through this transport.
+     *
+     * @return true, if server bound messages are allowed
+     */
+    public boolean isServerBound() {
+        return serverBound;
+    }
+
+    /**
+     * Registers the message type for the discriminator, so that it can be sent through this transport.
+     *
+     * @param discriminator the discriminator
+     * @param clazz         the message class
+     * @param handler       the handler, or null if it should be instantiated from <b>handlerClass</b>
+     * @param handlerClass  the handler class
+     * @param side          the side the message is handled on
+     */
+    synchronized void register(int discriminator, Class<? extends IMessage> clazz, IMessageHandler handler,
+            Class<? extends IMessageHandler> handlerClass, Side side) {
+        types.put(discriminator, new MessageType(clazz, handler, handlerClass, side));
+        (side == Side.CLIENT ? clientTypes : serverTypes).put(clazz, discriminator);
+    }
+
+    /**
+     * Serializes, compresses and splits the {@link IMessage} to be sent to the <b>side</b>.
+     *
+     * @param message the message
+     * @param side    the side the message is sent to
+     * @return the parts to send, or null if the message should be sent as is
+     */
+    public List<BulkPacket> encode(IMessage message, Side side) {
+        if (side == Side.SERVER && !serverBound) return null;
+
+        Integer discriminator;
+        synchronized (this) {
+            discriminator = (side == Side.CLIENT ? clientTypes : serverTypes).get(message.getClass());
+        }
+        if (discriminator == null) return null;
+
+        ByteBuf buf = Unpooled.buffer();
+        message.toBytes(buf);
+        int rawLength = buf.readableBytes();
+        if (rawLength < threshold || rawLength > (side == Side.SERVER ? SERVER_MAX_PAYLOAD : MAX_PAYLOAD)) return null;
+
+        byte[] raw = new byte[rawLength];
+        buf.readBytes(raw);
+
+        long start = System.nanoTime();
+        Deflater deflater = new Deflater(level);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteBuf data = Unpooled.buffer(rawLength / 2);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            data.writeBytes(buffer, 0, count);
+        }
+        deflater.end();
+        compressTime.addAndGet(System.nanoTime() - start);
+
+        // incompressible data is sent raw, but still split
+        boolean compressed = data.readableBytes() < rawLength;
+        if (!compressed) data = Unpooled.wrappedBuffer(raw);
+
+        int length = data.readableBytes();
+        int count = (length + PART_SIZE - 1) / PART_SIZE;
+        int id = transferId.incrementAndGet();
+        List<BulkPacket> packets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int offset = i * PART_SIZE;
+            byte[] part = new byte[Math.min(PART_SIZE, length - offset)];
+            data.getBytes(offset, part);
+            packets.add(new BulkPacket(id, i, count, discriminator, compressed, rawLength, part));
+        }
+
+        messages.incrementAndGet();
+        parts.addAndGet(count);
+        rawBytes.addAndGet(rawLength);
+        compressedBytes.addAndGet(length);
+        return packets;
+    }
+
+    @Override
+    public IMessage onMessage(BulkPacket message, MessageContext ctx) {
+        EntityPlayerMP player = ctx.side == Side.SERVER ? ctx.getServerHandler().playerEntity : null;
+        Transfer transfer = getTransfer(player != null ? player : this, message);
+        if (transfer == null) return null;
+
+        IMessage inner = transfer.decode();
+        if (inner == null) return null;
+
+        IMessage reply = transfer.getType().getHandler().onMessage(inner, ctx);
+        if (reply != null) {
+            if (player != null) network.sendTo(reply, player);
+            else network.sendToServer(reply);
+        }
+        return null;
+    }
+
+    /**
+     * Receives a part and decodes the message once all its parts are received.
+     *
+     * @param sender  the sender
+     * @param message the part
+     * @return the message, or null if parts are still missing
+     */
+    IMessage receive(Object sender, BulkPacket message) {
+        Transfer transfer = getTransfer(sender, message);
+        return transfer != null ? transfer.decode() : null;
+    }
+
+    /**
+     * Adds the part to its {@link Transfer}. Parts can be received in any order. Incomplete transfers older than the
+     * timeout are discarded first.<br>
+     * Every sender other than this transport is a player, for which the server limits apply. Players going over them
+     * are {@link #drop(Object, String) dropped}.
+     *
+     * @param sender  the sender
+     * @param message the message
+     * @return the transfer if all its parts were received, null otherwise
+     */
+    private synchronized Transfer getTransfer(Object sender, BulkPacket message) {
+        boolean fromServer = sender == this;
+        int maxPayload = fromServer ? MAX_PAYLOAD : SERVER_MAX_PAYLOAD;
+        int maxPending = fromServer ? MAX_PENDING : SERVER_MAX_PENDING;
+        int maxBuffered = fromServer ? MAX_BUFFERED : SERVER_MAX_BUFFERED;
+
+        if (message.part >= maxPayload / PART_SIZE + 1) {
+            drop(sender, "part " + message.part + " out of range");
+            return null;
+        }
+        if (message.part == 0) {
+            MessageType type = types.get(message.discriminator);
+            if (type == null || type.side != (fromServer ? Side.CLIENT : Side.SERVER)) {
+                drop(sender, "unknown message type " + message.discriminator);
+                return null;
+            }
+            if (message.rawLength > maxPayload || message.count > maxPayload / PART_SIZE + 1) {
+                drop(sender, "transfer of " + message.rawLength + " bytes");
+                return null;
+            }
+        }
+
+        Map<Integer, Transfer> pending = transfers.get(sender);
+        if (pending == null) {
+            pending = new HashMap<>();
+            transfers.put(sender, pending);
+        }
+
+        long now = System.currentTimeMillis();
+        int buffered = message.data.length;
+        for (Iterator<Transfer> it = pending.values().iterator(); it.hasNext();) {
+            Transfer transfer = it.next();
+            if (now - transfer.lastUpdate >= timeout) it.remove();
+            else buffered += transfer.size;
+        }
+        if (buffered > maxBuffered) {
+            drop(sender, buffered + " bytes buffered");
+            return null;
+        }
+
+        Transfer transfer = pending.get(message.id);
+        if (transfer == null) {
+            if (pending.size() >= maxPending) {
+                if (!fromServer) drop(sender, "too many pending transfers");
+                else MalisisCore.log.error("[BulkTransport] Too many pending transfers, discarding {}.", message.id);
+                return null;
+            }
+            transfer = new Transfer();
+            pending.put(message.id, transfer);
+        }
+
+        if (!transfer.add(message, now)) return null;
+        pending.remove(message.id);
+        return transfer;
+    }
+
+    /**
+     * Discards all the transfers of a sender that went over the limits. Players are also disconnected.
+     *
+     * @param sender the sender
+     * @param reason the reason
+     */
+    private void drop(Object sender, String reason) {
+        transfers.remove(sender);
+        MalisisCore.log.warn("[BulkTransport] Dropping {} : {}.", sender, reason);
+        if (sender instanceof EntityPlayerMP)
+            ((EntityPlayerMP) sender).playerNetServerHandler.kickPlayerFromServer("Invalid bulk transfer");
+    }
+
+    /**
+     * Gets the number of incomplete transfers from the sender.
+     *
+     * @param sender the sender
+     * @return the pending count
+     */
+    synchronized int getPendingCount(Object sender) {
+        Map<Integer, Transfer> pending = transfers.get(sender);
+        return pending != null ? pending.size() : 0;
+    }
+
+    /**
+     * Discards the incomplete transfers received from the server when the client disconnects, so they don't collide
+     * with the transfers of the next server.
+     *
+     * @param event the event
+     */
+    @SubscribeEvent
+    public synchronized void onClientDisconnection(ClientDisconnectionFromServerEvent event) {
+        transfers.remove(this);
+    }
+
+    /**
+     * Resets the metrics of this {@link BulkTransport}.
+     */
+    public void reset() {
+        messages.set(0);
+        parts.set(0);
+        rawBytes.set(0);
+        compressedBytes.set(0);
+        compressTime.set(0);
+        decompressTime.set(0);
+    }
+
+    /**
+     * Gets the compression ratio and timings of the messages sent and received through this transport.
+     *
+     * @return the report, empty if nothing was sent or received
+     */
+    public List<String> getReport() {
+        long count = messages.get();
+        if (count == 0 && decompressTime.get() == 0) return Collections.emptyList();
+
+        long raw = rawBytes.get();
+        long compressed = compressedBytes.get();
+        List<String> report = new ArrayList<>();
+        report.add(
+                String.format(
+                        "[%s] bulk: %d messages in %d parts, %d -> %d bytes (%.1f%%)",
+                        network.name,
+                        count,
+                        parts.get(),
+                        raw,
+                        compressed,
+                        raw == 0 ? 0D : compressed * 100D / raw));
+        report.add(
+                String.format(
+                        "[%s] bulk: compression %.3f ms, decompression %.3f ms",
+                        network.name,
+                        compressTime.get() / 1000000D,
+                        decompressTime.get() / 1000000D));
+        return report;
+    }
+
+    /**
+     * {@link MessageType} holds the class and the handler of a message registered in the {@link MalisisNetwork}.
+     */
+    private static class MessageType {
+
+        private final Class<? extends IMessage> clazz;
+        private final Class<? extends IMessageHandler> handlerClass;
+        private final Side side;
+        private IMessageHandler handler;
+
+        public MessageType(Class<? extends IMessage> clazz, IMessageHandler handler,
+                Class<? extends IMessageHandler> handlerClass, Side side) {
+            this.clazz = clazz;
+            this.handler = handler;
+            this.handlerClass = handlerClass;
+            this.side = side;
+        }
+
+        public synchronized IMessageHandler getHandler() {
+            if (handler != null) return handler;
+            try {
+                handler = handlerClass.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("Could not instantiate " + handlerClass.getName(), e);
+            }
+            return handler;
+        }
+    }
+
+    /**
+     * {@link Transfer} collects the parts of a message until all of them are received.
+     */
+    private class Transfer {
+
+        private MessageType type;
+        private boolean compressed;
+        private int rawLength;
+        /** Number of parts, known once the first part is received. */
+        private int count = -1;
+        private byte[][] data = new byte[4][];
+        private int received;
+        /** Number of bytes received. */
+        private int size;
+        /** Time the last part was received. */
+        private long lastUpdate;
+
+        public MessageType getType() {
+            return type;
+        }
+
+        /**
+         * Adds the part to this {@link Transfer}.
+         *
+         * @param message the message
+         * @param now     the current time
+         * @return true if all the parts were received
+         */
+        public boolean add(BulkPacket message, long now) {
+            lastUpdate = now;
+            if (message.part >= MAX_PARTS || (count != -1 && message.part >= count)) return false;
+
+            if (message.part == 0) {
+                // already validated by getTransfer()
+                type = types.get(message.discriminator);
+                compressed = message.compressed;
+                rawLength = message.rawLength;
+                count = message.count;
+            }
+
+            if (message.part >= data.length) data = Arrays.copyOf(data, Math.min(MAX_PARTS, message.part * 2));
+            if (data[message.part] == null) {
+                data[message.part] = message.data;
+                size += message.data.length;
+                received++;
+            }
+            return received == count;
+        }
+
+        /**
+         * Reassembles and decompresses the parts, and reads the message from them.
+         *
+         * @return the message, or null if it could not be decoded
+         */
+        public IMessage decode() {
+            ByteBuf buf = Unpooled.wrappedBuffer(Arrays.copyOf(data, count));
+            if (compressed) {
+                long start = System.nanoTime();
+                byte[] input = new byte[buf.readableBytes()];
+                buf.readBytes(input);
+                byte[] output = new byte[rawLength];
+                Inflater inflater = new Inflater();
+                inflater.setInput(input);
+                try {
+                    int length = 0;
+                    while (length < rawLength && !inflater.finished()) {
+                        int count = inflater.inflate(output, length, rawLength - length);
+                        if (count == 0 && inflater.needsInput()) break;
+                        length += count;
+                    }
+                    if (length != rawLength) throw new DataFormatException("Expected " + rawLength + " bytes");
+                } catch (DataFormatException e) {
+                    MalisisCore.log.error("[BulkTransport] Could not decompress {}.", type.clazz.getSimpleName(), e);
+                    return null;
+                } finally {
+                    inflater.end();
+                }
+                decompressTime.addAndGet(System.nanoTime() - start);
+                buf = Unpooled.wrappedBuffer(output);
+            }
+
+            try {
+                IMessage message = type.clazz.newInstance();
+                message.fromBytes(buf);
+                return message;
+            } catch (ReflectiveOperationException e) {
+                MalisisCore.log.error("[BulkTransport] Could not instantiate {}.", type.clazz.getSimpleName(), e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * {@link BulkPacket} is a single part of a message sent through the {@link BulkTransport}.<br>
+     * The first part also holds the discriminator of the message and its size once decompressed.
+     */
+    public static class BulkPacket implements IMessage {
+
+        private int id;
+        private int part;
+        private int count;
+        private int discriminator;
+        private boolean compressed;
+        private int rawLength;
+        private byte[] data;
+
+        public BulkPacket() {}
+
+        public BulkPacket(int id, int part, int count, int discriminator, boolean compressed, int rawLength,
+                byte[] data) {
+            this.id = id;
+            this.part = part;
+            this.count = count;
+            this.discriminator = discriminator;
+            this.compressed = compressed;
+            this.rawLength = rawLength;
+            this.data = data;
+        }
+
+        @Override
+        public void fromBytes(ByteBuf buf) {
+            id = ByteBufUtils.readVarInt(buf, 5);
+            part = ByteBufUtils.readVarInt(buf, 5);
+            if (part == 0) {
+                count = ByteBufUtils.readVarInt(buf, 5);
+                discriminator = ByteBufUtils.readVarInt(buf, 5);
+                compressed = buf.readBoolean();
+                rawLength = ByteBufUtils.readVarInt(buf, 5);
+                if (count <= 0 || count > MAX_PARTS || rawLength <= 0 || rawLength > MAX_PAYLOAD)
+                    throw new IllegalArgumentException("Invalid bulk transfer header");
+            }
+            int length = ByteBufUtils.readVarInt(buf, 5);
+            if (length > PART_SIZE) throw new IllegalArgumentException("Bulk part too large : " + length);
+            data = new byte[length];
+            buf.readBytes(data);
+        }
+
+        @Override
+        public void toBytes(ByteBuf buf) {
+            ByteBufUtils.writeVarInt(buf, id, 5);
+            ByteBufUtils.writeVarInt(buf, part, 5);
+            if (part == 0) {
+                ByteBufUtils.writeVarInt(buf, count, 5);
+                ByteBufUtils.writeVarInt(buf, discriminator, 5);
+                buf.writeBoolean(compressed);
+                ByteBufUtils.writeVarInt(buf, rawLength, 5);
+            }
+            ByteBufUtils.writeVarInt(buf, data.length, 5);
+            buf.writeBytes(data);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import net.minecraft.world.chunk.Chunk;
 import com.google.common.base.Function;
 import com.google.common.collect.Ordering;
 
+import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.discovery.ASMDataTable;
 import cpw.mods.fml.common.discovery.ASMDataTable.ASMData;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
@@ -49,6 +50,10 @@ public class MalisisNetwork extends SimpleNetworkWrapper {
     private int discriminator = 0;
     /** Name of the channel used **/
     protected String name;
+    /** Transport used for the large messages. */
+    protected BulkTransport bulkTransport;
+    /** Discriminator of the {@link BulkTransport.BulkPacket}. */
+    private int bulkDiscriminator;
 
     /**
      * Instantiates a new {@link MalisisNetwork}.
@@ -58,6 +63,11 @@ public class MalisisNetwork extends SimpleNetworkWrapper {
     public MalisisNetwork(String channelName) {
         super(channelName);
         name = channelName;
+        bulkTransport = new BulkTransport(this);
+        // registered directly because the log is not available yet, the server side only if enabled
+        bulkDiscriminator = getNextDiscriminator();
+        super.registerMessage(bulkTransport, BulkTransport.BulkPacket.class, bulkDiscriminator, Side.CLIENT);
+        FMLCommonHandler.instance().bus().register(bulkTransport);
     }
 
     /**
@@ -80,6 +90,70 @@ public class MalisisNetwork extends SimpleNetworkWrapper {
         for (EntityPlayerMP player : EntityUtils.getPlayersWatchingChunk(chunk)) sendTo(message, player);
     }
 
+    /**
+     * Gets the {@link BulkTransport} used by the <i>sendBulk</i> methods.
+     *
+     * @return the bulk transport
+     */
+    public BulkTransport getBulkTransport() {
+        return bulkTransport;
+    }
+
+    /**
+     * Sends the {@link IMessage} to the player through the {@link BulkTransport}.<br>
+     * The message is compressed and split if bigger than the threshold, and sent as is otherwise.
+     *
+     * @param message the message
+     * @param player  the player
+     */
+    public void sendBulkTo(IMessage message, EntityPlayerMP player) {
+        List<BulkTransport.BulkPacket> packets = bulkTransport.encode(message, Side.CLIENT);
+        if (packets == null) sendTo(message, player);
+        else for (BulkTransport.BulkPacket packet : packets) sendTo(packet, player);
+    }
+
+    /**
+     * Sends the {@link IMessage} to all the players currently watching that specific chunk through the
+     * {@link BulkTransport}.<br>
+     * The message is only compressed once, whatever the number of players.
+     *
+     * @param message the message
+     * @param chunk   the chunk
+     */
+    public void sendBulkToPlayersWatchingChunk(IMessage message, Chunk chunk) {
+        List<EntityPlayerMP> players = EntityUtils.getPlayersWatchingChunk(chunk);
+        if (players.isEmpty()) return;
+
+        List<BulkTransport.BulkPacket> packets = bulkTransport.encode(message, Side.CLIENT);
+        for (EntityPlayerMP player : players) {
+            if (packets == null) sendTo(message, player);
+            else for (BulkTransport.BulkPacket packet : packets) sendTo(packet, player);
+        }
+    }
+
+    /**
+     * Allows messages to be sent to the server through the {@link BulkTransport}. Should be called on both sides when
+     * the mod is constructed.<br>
+     * The server only accepts small transfers, and disconnects the players going over its limits.
+     */
+    public void enableBulkToServer() {
+        if (bulkTransport.isServerBound()) return;
+        super.registerMessage(bulkTransport, BulkTransport.BulkPacket.class, bulkDiscriminator, Side.SERVER);
+        bulkTransport.setServerBound(true);
+    }
+
+    /**
+     * Sends the {@link IMessage} to the server through the {@link BulkTransport}.<br>
+     * The message is sent as is unless {@link #enableBulkToServer()} was called.
+     *
+     * @param message the message
+     */
+    public void sendBulkToServer(IMessage message) {
+        List<BulkTransport.BulkPacket> packets = bulkTransport.encode(message, Side.SERVER);
+        if (packets == null) sendToServer(message);
+        else for (BulkTransport.BulkPacket packet : packets) sendToServer(packet);
+    }
+
     /**
      * Register a message with the next discriminator available.
      *
@@ -91,6 +165,7 @@ public class MalisisNetwork extends SimpleNetworkWrapper {
      */
     public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(
             Class<? extends IMessageHandler<REQ, REPLY>> messageHandler, Class<REQ> requestMessageType, Side side) {
+        bulkTransport.register(discriminator, requestMessageType, null, messageHandler, side);
         super.registerMessage(messageHandler, requestMessageType, discriminator++, side);
         MalisisCore.log.info(
                 "Registering " + messageHandler.getSimpleName()
@@ -113,6 +188,7 @@ public class MalisisNetwork extends SimpleNetworkWrapper {
      */
     public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(
             IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestMessageType, Side side) {
+        bulkTransport.register(discriminator, requestMessageType, messageHandler, null, side);
         super.registerMessage(messageHandler, requestMessageType, discriminator++, side);
         MalisisCore.log.info(
                 "Registering " + messageHandler.getClass().getSimpleName()
@@ -0,0 +1,217 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.renderer;
+
+import java.util.Objects;
+
+import net.malisis.core.renderer.element.Face;
+import net.malisis.core.renderer.element.Shape;
+import net.malisis.core.renderer.element.Vertex;
+import net.minecraft.util.AxisAlignedBB;
+
+/**
+ * A {@link Shape} with its transformations, relative positions and texture already applied.<br>
+ * Positions and UVs of the vertexes are stored in a packed float array so that drawing the shape only requires the
+ * lighting to be calculated. A copy of the baked shape is kept for the parameters of the faces and the per vertex
+ * colors and brightness.<br>
+ * Only the {@link RenderParameters} read when baking (bounds, positioning and texture) are kept with the baked shape,
+ * so the lighting parameters can change for each block without baking the shape again.<br>
+ * Baked shapes become invalid when the block textures are stitched again.
+ *
+ * @author Ordinastie
+ *
+ */
+public class BakedShape {
+    /** Number of floats stored per vertex (x, y, z, u, v). */
+    public static final int VERTEX_SIZE = 5;
+
+    /** Current generation of the icons, incremented each time the block textures are stitched. */
+    private static int iconGeneration = 0;
+
+    /** Icon generation at which this {@link BakedShape} was baked. */
+    private final int generation;
+    /** Copy of the {@link Shape} when it was baked. */
+    private final Shape shape;
+    /** Offset of the first vertex of each face, the last element being the total number of vertexes. */
+    private final int[] offsets;
+    /** Packed positions and UVs of all the vertexes. */
+    private final float[] data;
+    /** {@link RenderParameters} used to bake this {@link BakedShape}. */
+    private RenderParameters params;
+    /** Version of the {@link RenderParameters} when this {@link BakedShape} was last checked against them. */
+    private int paramsVersion;
+    /** Values of the {@link RenderParameters#bakedParams} when this {@link BakedShape} was baked. */
+    private Object[] bakedValues;
+    /** Whether this {@link BakedShape} can be reused for other blocks with the same block and metadata. */
+    private boolean cacheable = true;
+
+    /**
+     * Instantiates a new {@link BakedShape}. The shape should already have its matrix, positions and texture applied.
+     *
+     * @param s the shape
+     */
+    public BakedShape(Shape s) {
+        this.generation = iconGeneration;
+        this.shape = new Shape(s);
+
+        Face[] faces = shape.getFaces();
+        offsets = new int[faces.length + 1];
+        for (int i = 0; i < faces.length; i++) offsets[i + 1] = offsets[i] + faces[i].getVertexes().length;
+
+        data = new float[offsets[faces.length] * VERTEX_SIZE];
+        int index = 0;
+        for (Face f : faces) {
+            for (Vertex v : f.getVertexes()) {
+                data[index++] = (float) v.getX();
+                data[index++] = (float) v.getY();
+                data[index++] = (float) v.getZ();
+                data[index++] = (float) v.getU();
+                data[index++] = (float) v.getV();
+            }
+        }
+    }
+
+    /**
+     * Gets the copy of the {@link Shape} baked.
+     *
+     * @return the shape
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Gets the number of faces.
+     *
+     * @return the face count
+     */
+    public int getFaceCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Gets the offset of the first vertex of the face.
+     *
+     * @param face the face index
+     * @return the vertex offset
+     */
+    public int getVertexOffset(int face) {
+        return offsets[face];
+    }
+
+    /**
+     * Gets the packed data for the vertexes. Each vertex uses {@link #VERTEX_SIZE} floats.
+     *
+     * @return the data
+     */
+    public float[] getData() {
+        return data;
+    }
+
+    /**
+     * Checks whether this {@link BakedShape} can be reused for other blocks.
+     *
+     * @return true, if cacheable
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Sets whether this {@link BakedShape} can be reused for other blocks.
+     *
+     * @param cacheable the cacheable
+     */
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Sets the {@link RenderParameters} this {@link BakedShape} was baked with.
+     *
+     * @param params the params
+     */
+    void setParameters(RenderParameters params) {
+        this.params = params;
+        this.paramsVersion = params.version;
+        bakedValues = new Object[params.bakedParams.length];
+        for (int i = 0; i < bakedValues.length; i++) {
+            Object value = params.bakedParams[i].getValue();
+            // bounds can be modified in place
+            bakedValues[i] = value instanceof AxisAlignedBB ? ((AxisAlignedBB) value).copy() : value;
+        }
+    }
+
+    /**
+     * Checks if this {@link BakedShape} was baked with the same values as the <b>params</b>, for the parameters read
+     * when baking.
+     *
+     * @param params the params
+     * @return true, if baked with the params
+     */
+    boolean isBakedWith(RenderParameters params) {
+        if (this.params == params && paramsVersion == params.version) return true;
+
+        for (int i = 0; i < bakedValues.length; i++) {
+            if (!isSameValue(bakedValues[i], params.bakedParams[i].getValue())) return false;
+        }
+
+        // only the parameters not read when baking changed
+        this.params = params;
+        this.paramsVersion = params.version;
+        return true;
+    }
+
+    /**
+     * Compares the values of a parameter. {@link AxisAlignedBB} are compared by their bounds.
+     *
+     * @param baked   the baked value
+     * @param current the current value
+     * @return true, if the values are the same
+     */
+    private static boolean isSameValue(Object baked, Object current) {
+        if (!(baked instanceof AxisAlignedBB) || !(current instanceof AxisAlignedBB))
+            return Objects.equals(baked, current);
+
+        AxisAlignedBB a = (AxisAlignedBB) baked;
+        AxisAlignedBB b = (AxisAlignedBB) current;
+        return a.minX == b.minX && a.minY == b.minY && a.minZ == b.minZ && a.maxX == b.maxX && a.maxY == b.maxY
+                && a.maxZ == b.maxZ;
+    }
+
+    /**
+     * Checks if this {@link BakedShape} was baked with the current icons.
+     *
+     * @return true, if valid
+     */
+    public boolean isValid() {
+        return generation == iconGeneration;
+    }
+
+    /**
+     * Gets the current icon generation.
+     *
+     * @return the icon generation
+     */
+    public static int getIconGeneration() {
+        return iconGeneration;
+    }
+
+    /**
+     * Invalidates all the {@link BakedShape BakedShapes}. Called when the block textures are stitched.
+     */
+    public static void invalidateAll() {
+        iconGeneration++;
+    }
+}
@@ -52,9 +52,12 @@ import net.minecraftforge.common.util.ForgeDirection;
 
 import org.lwjgl.opengl.GL11;
 
+import com.google.common.collect.MapMaker;
+
 import cpw.mods.fml.client.registry.ClientRegistry;
 import cpw.mods.fml.client.registry.ISimpleBlockRenderingHandler;
 import cpw.mods.fml.client.registry.RenderingRegistry;
+import gnu.trove.map.hash.TIntObjectHashMap;
 
 /**
  * Base class for rendering. Handle the rendering for {@link ISimpleBlockRenderingHandler},
@@ -112,8 +115,10 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
     protected Face face;
     /** Current parameters for the shape being rendered. */
     protected RenderParameters rp = new RenderParameters();
-    /** Current parameters for the face being rendered. */
-    protected RenderParameters params;
+    /** Current parameters for the face being rendered. Reused for every face. */
+    protected RenderParameters params = new RenderParameters();
+    /** Parameters used when a {@link Shape} is drawn without parameters. */
+    private RenderParameters defaultParams = new RenderParameters();
     /** Base brightness of the block. */
     protected int baseBrightness;
     /** An override texture set by the renderer. */
@@ -127,6 +132,22 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
     /** Whether at least one vertex has been drawn. */
     protected boolean vertexDrawn = false;
 
+    /** Baked shapes cache, per shape and per block and metadata. Shapes no longer used are dropped with their cache. */
+    private Map<Shape, TIntObjectHashMap<BakedShape>> bakedShapes = new MapMaker().weakKeys().makeMap();
+    /** Icon generation of the baked shapes cache. */
+    private int bakedGeneration = BakedShape.getIconGeneration();
+
+    /** Mixed brightness of the 3x3x3 blocks around the current block. */
+    private int[] neighbourBrightness = new int[27];
+    /** Ambient occlusion values of the 3x3x3 blocks around the current block. */
+    private float[] neighbourAo = new float[27];
+    /** Bit mask of the neighbours for which the brightness has been read. */
+    private int neighbourBrightnessRead;
+    /** Bit mask of the neighbours for which the ambient occlusion has been read. */
+    private int neighbourAoRead;
+    /** Light value of the current block, -1 if not read yet. */
+    private int blockLightValue = -1;
+
     /**
      * Instantiates a new {@link MalisisRenderer}.
      */
@@ -159,6 +180,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
         this.z = 0;
         this.overrideTexture = null;
         this.destroyBlockProgress = null;
+        resetNeighbourhood();
     }
 
     /**
@@ -178,6 +200,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
         this.x = x;
         this.y = y;
         this.z = z;
+        resetNeighbourhood();
     }
 
     /**
@@ -187,6 +210,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
      */
     public void set(IBlockAccess world) {
         this.world = world;
+        resetNeighbourhood();
     }
 
     /**
@@ -437,6 +461,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
     public void prepare(RenderType renderType, double... data) {
         _initialize();
         vertexDrawn = false;
+        resetNeighbourhood();
         this.renderType = renderType;
         if (renderType == RenderType.ISBRH_WORLD) {
             tessellatorShift();
@@ -685,17 +710,156 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
         if (s == null) return;
 
         shape = s;
-        rp = params != null ? params : new RenderParameters();
+        if (params == null) {
+            params = defaultParams;
+            params.reset();
+        }
+        rp = params;
 
         // apply transformations
         s.applyMatrix();
 
         // vertex position
-        if (rp.vertexPositionRelativeToRenderBounds.get()) calcVertexesPosition(getRenderBounds());
+        if (rp.is(RenderParameters.VERTEX_POSITION_RELATIVE)) calcVertexesPosition(getRenderBounds());
+
+        if (rp.is(RenderParameters.APPLY_TEXTURE)) applyTexture(s, rp);
+
+        for (Face f : s.getFaces()) drawFace(f, f.readParameters());
+    }
+
+    /**
+     * Draws a {@link Shape} using a {@link BakedShape} cached for the current block and metadata.<br>
+     * Only the lighting is calculated when the baked shape is drawn, so this should only be used for shapes that are
+     * transformed and textured the same way for every block sharing the same block and metadata. The shape is baked
+     * again when the values of the {@link RenderParameters} read when baking change. Shapes using world sensitive
+     * icons, positioned relatively to the bounds of a block in the world or drawn with an override texture are drawn
+     * normally.
+     *
+     * @param s      the s
+     * @param params the params
+     */
+    public void drawBakedShape(Shape s, RenderParameters params) {
+        if (s == null) return;
+
+        if (params == null) {
+            params = defaultParams;
+            params.reset();
+        }
+
+        // the bounds of the block depend on its state in the world
+        boolean worldBounds = world != null && params.is(RenderParameters.VERTEX_POSITION_RELATIVE)
+                && params.is(RenderParameters.USE_BLOCK_BOUNDS);
+        if (block == null || overrideTexture != null || worldBounds) {
+            drawShape(s, params);
+            return;
+        }
+
+        if (bakedGeneration != BakedShape.getIconGeneration()) {
+            bakedShapes.clear();
+            bakedGeneration = BakedShape.getIconGeneration();
+        }
+
+        TIntObjectHashMap<BakedShape> shapeCache = bakedShapes.get(s);
+        if (shapeCache == null) {
+            shapeCache = new TIntObjectHashMap<>();
+            bakedShapes.put(s, shapeCache);
+        }
+
+        int key = Block.getIdFromBlock(block) << 4 | (blockMetadata & 15);
+        BakedShape baked = shapeCache.get(key);
+        if (baked == null || !baked.isValid() || !baked.isBakedWith(params)) {
+            baked = bakeShape(s, params);
+            if (baked.isCacheable()) shapeCache.put(key, baked);
+        }
+
+        drawBakedShape(baked, params);
+    }
+
+    /**
+     * Bakes a {@link Shape} : applies its transformations, the relative positions and the texture, and stores the
+     * result into a {@link BakedShape}. The {@link Shape} is modified the same way {@link #drawShape(Shape)} would.
+     *
+     * @param s      the s
+     * @param params the params
+     * @return the baked shape
+     */
+    public BakedShape bakeShape(Shape s, RenderParameters params) {
+        shape = s;
+        rp = params;
+
+        s.applyMatrix();
+
+        if (rp.is(RenderParameters.VERTEX_POSITION_RELATIVE)) calcVertexesPosition(getRenderBounds());
+
+        if (rp.is(RenderParameters.APPLY_TEXTURE)) applyTexture(s, rp);
+
+        BakedShape baked = new BakedShape(s);
+        baked.setParameters(rp);
+        // icons depending on the world can't be shared between blocks
+        for (Face f : s.getFaces()) {
+            if (f.readParameters().useWorldSensitiveIcon.merged(rp.useWorldSensitiveIcon)) baked.setCacheable(false);
+        }
+
+        return baked;
+    }
+
+    /**
+     * Draws a {@link BakedShape} with specified {@link RenderParameters}. Only the lighting is calculated for each
+     * vertex.
+     *
+     * @param baked  the baked
+     * @param params the params
+     */
+    public void drawBakedShape(BakedShape baked, RenderParameters params) {
+        if (baked == null) return;
+
+        if (params == null) {
+            params = defaultParams;
+            params.reset();
+        }
+        shape = baked.getShape();
+        rp = params;
+
+        float[] data = baked.getData();
+        Face[] faces = shape.getFaces();
+        for (int i = 0; i < faces.length; i++) {
+            Face f = faces[i];
+            if (!prepareFace(f, f.readParameters())) continue;
+
+            Vertex[] vertexes = f.getVertexes();
+            int offset = baked.getVertexOffset(i) * BakedShape.VERTEX_SIZE;
+            for (int j = 0; j < vertexes.length; j++) {
+                drawBakedVertex(vertexes[j], j, data, offset);
+                offset += BakedShape.VERTEX_SIZE;
+            }
+
+            nextFace();
+        }
+    }
+
+    /**
+     * Draws a single baked {@link Vertex}. The position and UVs are read from the packed <b>data</b>, the vertex itself
+     * is only used for its own color, alpha and brightness, and is not modified.
+     *
+     * @param vertex the vertex
+     * @param number the offset inside the face. (Used for AO)
+     * @param data   the packed data of the {@link BakedShape}
+     * @param offset the offset of the vertex inside the data
+     */
+    protected void drawBakedVertex(Vertex vertex, int number, float[] data, int offset) {
+        int[][] aoMatrix = params.getAoMatrix(number);
+        int brightness = calcVertexBrightness(vertex, aoMatrix);
+        int color = calcVertexColor(vertex, aoMatrix);
+        int alpha = params.is(RenderParameters.USE_PER_VERTEX_ALPHA) ? vertex.getAlpha() : params.getAlpha();
+
+        t.setColorRGBA_I(color, alpha);
+        t.setBrightness(brightness);
 
-        if (rp.applyTexture.get()) applyTexture(s, rp);
+        if (params.is(RenderParameters.USE_TEXTURE))
+            t.addVertexWithUV(data[offset], data[offset + 1], data[offset + 2], data[offset + 3], data[offset + 4]);
+        else t.addVertex(data[offset], data[offset + 1], data[offset + 2]);
 
-        for (Face f : s.getFaces()) drawFace(f, f.getParameters());
+        vertexDrawn = true;
     }
 
     /**
@@ -704,7 +868,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
      * @param face the face
      */
     public void drawFace(Face face) {
-        drawFace(face, face.getParameters());
+        drawFace(face, face.readParameters());
     }
 
     /**
@@ -714,32 +878,52 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
      * @param faceParams the face params
      */
     protected void drawFace(Face f, RenderParameters faceParams) {
-        if (f == null) return;
+        if (!prepareFace(f, faceParams)) return;
+
+        drawVertexes(face.getVertexes());
+
+        nextFace();
+    }
+
+    /**
+     * Prepares the drawing of a {@link Face} : merges the parameters, checks if the face should be rendered, sets the
+     * normals and calculates the base brightness.
+     *
+     * @param f          the f
+     * @param faceParams the face params
+     * @return true, if the face should be drawn
+     */
+    protected boolean prepareFace(Face f, RenderParameters faceParams) {
+        if (f == null) return false;
 
         int vertexCount = f.getVertexes().length;
         if (vertexCount != 4 && renderType == RenderType.ISBRH_WORLD) {
             MalisisCore.log.error(
                     "[MalisisRenderer] Attempting to render a face containing {} vertexes in ISBRH. Ignored",
                     vertexCount);
-            return;
+            return false;
         }
 
         face = f;
-        params = new RenderParameters();
-        params.merge(rp);
-        params.merge(faceParams);
+        // parameters are merged into the same instance for every face to avoid allocations
+        params.merge(rp, faceParams);
 
-        if (!shouldRenderFace(face)) return;
+        if (!shouldRenderFace(face)) return false;
 
         // use normals if available
+        ForgeDirection dir = params.getDirection();
         if ((renderType == RenderType.ITEM_INVENTORY || renderType == RenderType.ISBRH_INVENTORY
-                || params.useNormals.get()) && params.direction.get() != null)
-            t.setNormal(params.direction.get().offsetX, params.direction.get().offsetY, params.direction.get().offsetZ);
+                || params.is(RenderParameters.USE_NORMALS)) && dir != null)
+            t.setNormal(dir.offsetX, dir.offsetY, dir.offsetZ);
 
         baseBrightness = getBaseBrightness();
+        return true;
+    }
 
-        drawVertexes(face.getVertexes());
-
+    /**
+     * Ends the drawing of the current {@link Face}.
+     */
+    protected void nextFace() {
         // we need to separate each face
         if (drawMode == GL11.GL_POLYGON || drawMode == GL11.GL_LINE
                 || drawMode == GL11.GL_LINE_STRIP
@@ -765,21 +949,21 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
     protected void drawVertex(Vertex vertex, int number) {
         if (vertex == null) vertex = new Vertex(0, 0, 0);
 
+        // the vertex is not modified so shapes sharing their vertexes are not copied
         // brightness
-        int brightness = calcVertexBrightness(vertex, (int[][]) params.aoMatrix.get(number));
-        vertex.setBrightness(brightness);
+        int[][] aoMatrix = params.getAoMatrix(number);
+        int brightness = calcVertexBrightness(vertex, aoMatrix);
 
         // color
-        int color = calcVertexColor(vertex, (int[][]) params.aoMatrix.get(number));
-        vertex.setColor(color);
+        int color = calcVertexColor(vertex, aoMatrix);
 
         // alpha
-        if (!params.usePerVertexAlpha.get()) vertex.setAlpha(params.alpha.get());
+        int alpha = params.is(RenderParameters.USE_PER_VERTEX_ALPHA) ? vertex.getAlpha() : params.getAlpha();
 
-        t.setColorRGBA_I(vertex.getColor(), vertex.getAlpha());
-        t.setBrightness(vertex.getBrightness());
+        t.setColorRGBA_I(color, alpha);
+        t.setBrightness(brightness);
 
-        if (params.useTexture.get())
+        if (params.is(RenderParameters.USE_TEXTURE))
             t.addVertexWithUV(vertex.getX(), vertex.getY(), vertex.getZ(), vertex.getU(), vertex.getV());
         else t.addVertex(vertex.getX(), vertex.getY(), vertex.getZ());
 
@@ -862,9 +1046,9 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
      */
     protected boolean shouldRenderFace(Face face) {
         if (renderType != RenderType.ISBRH_WORLD || world == null || block == null) return true;
-        if (rp != null && rp.renderAllFaces.get()) return true;
+        if (rp != null && rp.is(RenderParameters.RENDER_ALL_FACES)) return true;
         if (renderBlocks != null && renderBlocks.renderAllFaces == true) return true;
-        RenderParameters p = face.getParameters();
+        RenderParameters p = face.readParameters();
         if (p.direction.get() == null || p.renderAllFaces.get()) return true;
 
         boolean b = block.shouldSideBeRendered(
@@ -900,7 +1084,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
         for (Face f : shape.getFaces()) {
             face = f;
 
-            final RenderParameters faceParams = f.getParameters();
+            final RenderParameters faceParams = f.readParameters();
             IIcon icon = getIconFast(faceParams, parameters);
             if (icon != null) {
                 boolean flipU = faceParams.flipU.merged(parameters.flipU);
@@ -926,10 +1110,10 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
     protected int calcVertexColor(Vertex vertex, int[][] aoMatrix) {
         int color = 0xFFFFFF;
 
-        if (params.usePerVertexColor.get()) // vertex should use their own colors
+        if (params.is(RenderParameters.USE_PER_VERTEX_COLOR)) // vertex should use their own colors
             color = vertex.getColor();
-        if (params.colorMultiplier.get() != null) // global color multiplier is set
-            color = params.colorMultiplier.get();
+        if (params.is(RenderParameters.HAS_COLOR_MULTIPLIER)) // global color multiplier is set
+            color = params.getColorMultiplier();
         else if (block != null) // use block color mulitplier
             color = world != null ? block.colorMultiplier(world, x, y, z) : block.getRenderColor(blockMetadata);
 
@@ -940,23 +1124,20 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
 
         float factor = 1;
         // calculate AO
-        if (params.calculateAOColor.get() && aoMatrix != null
+        if (params.is(RenderParameters.CALCULATE_AO_COLOR) && aoMatrix != null
                 && Minecraft.isAmbientOcclusionEnabled()
-                && block.getLightValue(world, x, y, z) == 0) {
-            factor = getBlockAmbientOcclusion(
-                    world,
-                    x + params.direction.get().offsetX,
-                    y + params.direction.get().offsetY,
-                    z + params.direction.get().offsetZ);
+                && getBlockLightValue() == 0) {
+            ForgeDirection dir = params.getDirection();
+            factor = getNeighbourAmbientOcclusion(dir.offsetX, dir.offsetY, dir.offsetZ);
 
             for (int i = 0; i < aoMatrix.length; i++)
-                factor += getBlockAmbientOcclusion(world, x + aoMatrix[i][0], y + aoMatrix[i][1], z + aoMatrix[i][2]);
+                factor += getNeighbourAmbientOcclusion(aoMatrix[i][0], aoMatrix[i][1], aoMatrix[i][2]);
 
             factor /= (aoMatrix.length + 1);
         }
 
         // apply face dependent shading
-        factor *= params.colorFactor.get();
+        factor *= params.getColorFactor();
 
         int r = (int) ((color >> 16 & 255) * factor);
         int g = (int) ((color >> 8 & 255) * factor);
@@ -975,11 +1156,10 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
      * @return the base brightness
      */
     protected int getBaseBrightness() {
-        if (!params.useEnvironmentBrightness.get()) return params.brightness.get();
+        if (!params.is(RenderParameters.USE_ENVIRONMENT_BRIGHTNESS)) return params.getBrightness();
 
         if (block != null) {
-            if (world != null && block.getLightValue(world, x, y, z) != 0)
-                return block.getLightValue(world, x, y, z) << 4;
+            if (world != null && getBlockLightValue() != 0) return getBlockLightValue() << 4;
             else if (block.getLightValue() != 0) return block.getLightValue() << 4;
         }
 
@@ -987,13 +1167,13 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
             return Minecraft.getMinecraft().thePlayer.getBrightnessForRender(getPartialTick());
 
         // not in world
-        if (world == null) return params.brightness.get();
+        if (world == null) return params.getBrightness();
 
         // no direction, we can only use current block brightness
-        if (params.direction.get() == null) return block.getMixedBrightnessForBlock(world, x, y, z);
+        ForgeDirection dir = params.getDirection();
+        if (dir == null) return block.getMixedBrightnessForBlock(world, x, y, z);
 
         AxisAlignedBB bounds = getRenderBounds();
-        ForgeDirection dir = params.direction.get();
         int ox = x + dir.offsetX;
         int oy = y + dir.offsetY;
         int oz = z + dir.offsetZ;
@@ -1008,7 +1188,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
             else if (dir == ForgeDirection.UP && bounds.maxY < 1) oy -= 1;
         }
 
-        return getMixedBrightnessForBlock(world, ox, oy, oz);
+        return getNeighbourBrightness(ox - x, oy - y, oz - z);
     }
 
     /**
@@ -1020,24 +1200,21 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
      * @return the int
      */
     protected int calcVertexBrightness(Vertex vertex, int[][] aoMatrix) {
-        if (params.usePerVertexBrightness.get()) return vertex.getBrightness();
+        if (params.is(RenderParameters.USE_PER_VERTEX_BRIGHTNESS)) return vertex.getBrightness();
         if (drawMode == GL11.GL_LINE) // no AO for lines
             return baseBrightness;
         if (renderType != RenderType.ISBRH_WORLD && renderType != RenderType.TESR_WORLD) // not in world
             return baseBrightness;
-        if (!params.calculateBrightness.get() || aoMatrix == null) // no data
+        if (!params.is(RenderParameters.CALCULATE_BRIGHTNESS) || aoMatrix == null) // no data
             return baseBrightness;
-        if (!Minecraft.isAmbientOcclusionEnabled() || block.getLightValue(world, x, y, z) != 0) // emit light
+        if (!Minecraft.isAmbientOcclusionEnabled() || getBlockLightValue() != 0) // emit light
             return baseBrightness;
 
-        int[] b = new int[Math.max(3, aoMatrix.length)];
-
-        for (int i = 0; i < b.length; i++)
-            b[i] += getMixedBrightnessForBlock(world, x + aoMatrix[i][0], y + aoMatrix[i][1], z + aoMatrix[i][2]);
-
-        int brightness = getAoBrightness(b[0], b[1], b[2], baseBrightness);
+        int b1 = getNeighbourBrightness(aoMatrix[0][0], aoMatrix[0][1], aoMatrix[0][2]);
+        int b2 = getNeighbourBrightness(aoMatrix[1][0], aoMatrix[1][1], aoMatrix[1][2]);
+        int b3 = getNeighbourBrightness(aoMatrix[2][0], aoMatrix[2][1], aoMatrix[2][2]);
 
-        return brightness;
+        return getAoBrightness(b1, b2, b3, baseBrightness);
     }
 
     /**
@@ -1075,6 +1252,80 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
         return block.getAmbientOcclusionLightValue();
     }
 
+    /**
+     * Clears the values read from the blocks around the current block. Called whenever the world or the position of
+     * the block changes.
+     */
+    protected void resetNeighbourhood() {
+        neighbourBrightnessRead = 0;
+        neighbourAoRead = 0;
+        blockLightValue = -1;
+    }
+
+    /**
+     * Gets the light value of the current block. The value is only read once for each block.
+     *
+     * @return the block light value
+     */
+    protected int getBlockLightValue() {
+        if (blockLightValue == -1) blockLightValue = block.getLightValue(world, x, y, z);
+        return blockLightValue;
+    }
+
+    /**
+     * Gets the index of the neighbour at the specified offset from the current block, or -1 if the offset is outside
+     * the 3x3x3 neighbourhood.
+     *
+     * @param ox the x offset
+     * @param oy the y offset
+     * @param oz the z offset
+     * @return the index
+     */
+    private int getNeighbourIndex(int ox, int oy, int oz) {
+        if (ox < -1 || ox > 1 || oy < -1 || oy > 1 || oz < -1 || oz > 1) return -1;
+        return (ox + 1) * 9 + (oy + 1) * 3 + oz + 1;
+    }
+
+    /**
+     * Gets the mixed brightness of the block at the specified offset from the current block. The value is read from
+     * the world with {@link #getMixedBrightnessForBlock(IBlockAccess, int, int, int)} only once for each block.
+     *
+     * @param ox the x offset
+     * @param oy the y offset
+     * @param oz the z offset
+     * @return the neighbour brightness
+     */
+    protected int getNeighbourBrightness(int ox, int oy, int oz) {
+        int index = getNeighbourIndex(ox, oy, oz);
+        if (index == -1) return getMixedBrightnessForBlock(world, x + ox, y + oy, z + oz);
+
+        if ((neighbourBrightnessRead & (1 << index)) == 0) {
+            neighbourBrightness[index] = getMixedBrightnessForBlock(world, x + ox, y + oy, z + oz);
+            neighbourBrightnessRead |= 1 << index;
+        }
+        return neighbourBrightness[index];
+    }
+
+    /**
+     * Gets the ambient occlusion value of the block at the specified offset from the current block. The value is read
+     * from the world with {@link #getBlockAmbientOcclusion(IBlockAccess, int, int, int)} only once for each block.
+     *
+     * @param ox the x offset
+     * @param oy the y offset
+     * @param oz the z offset
+     * @return the neighbour ambient occlusion
+     */
+    protected float getNeighbourAmbientOcclusion(int ox, int oy, int oz) {
+        int index = getNeighbourIndex(ox, oy, oz);
+        if (index == -1) return getBlockAmbientOcclusion(world, x + ox, y + oy, z + oz);
+
+        if ((neighbourAoRead & (1 << index)) == 0) {
+            neighbourAo[index] = getBlockAmbientOcclusion(world, x + ox, y + oy, z + oz);
+            neighbourAoRead |= 1 << index;
+        }
+        return neighbourAo[index];
+    }
+
     /**
      * Gets the mix brightness for a block (sky + block source).
      *
@@ -1096,7 +1347,7 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
      * @return the render bounds
      */
     protected AxisAlignedBB getRenderBounds() {
-        if (block == null || !rp.useBlockBounds.get()) return rp.renderBounds.get();
+        if (block == null || !rp.is(RenderParameters.USE_BLOCK_BOUNDS)) return rp.renderBounds.get();
 
         if (world != null) block.setBlockBoundsBasedOnState(world, x, y, z);
 
@@ -1118,6 +1369,11 @@ public class MalisisRenderer extends TileEntitySpecialRenderer
     protected void calcVertexesPosition(AxisAlignedBB bounds) {
         if (bounds == null) return;
 
+        if (shape.isPacked()) {
+            shape.interpolateCoord(bounds);
+            return;
+        }
+
         for (Face f : shape.getFaces()) {
             face = f;
             for (Vertex v : f.getVertexes()) v.interpolateCoord(bounds);
@@ -13,6 +13,8 @@
 
 package net.malisis.core.renderer;
 
+import java.util.Objects;
+
 /**
  *
  * @author Ordinastie
@@ -20,6 +22,9 @@ package net.malisis.core.renderer;
  */
 public class Parameter<T> {
 
+    /** {@link RenderParameters} holding this {@link Parameter}, notified when the value changes. */
+    RenderParameters owner;
+
     /** Default value. */
     private T defaultValue;
 
@@ -57,7 +62,7 @@ public class Parameter<T> {
      * Resets the value to its default.
      */
     public void reset() {
-        value = null;
+        set(null);
     }
 
     /**
@@ -70,12 +75,15 @@ public class Parameter<T> {
     }
 
     /**
-     * Sets the value for this {@link Parameter}.
+     * Sets the value for this {@link Parameter}. The {@link RenderParameters} holding it is only notified if the value
+     * is not equal to the current one.
      *
      * @param value the value
      */
     public void set(T value) {
+        if (Objects.equals(this.value, value)) return;
         this.value = value;
+        if (owner != null) owner.version++;
     }
 
     /**
@@ -101,7 +109,18 @@ public class Parameter<T> {
      * @param parameter the parameter
      */
     public void merge(Parameter<T> parameter) {
-        if (parameter.getValue() != null) value = parameter.getValue();
+        if (parameter.getValue() != null) set(parameter.getValue());
+    }
+
+    /**
+     * Sets the value of this {@link Parameter} to the value of <b>override</b> if set, or the value of <b>base</b>
+     * otherwise.
+     *
+     * @param base     the base
+     * @param override the override
+     */
+    public void merge(Parameter<T> base, Parameter<T> override) {
+        set(override.value != null ? override.value : base.value);
     }
 
     public T merged(Parameter<T> other) {
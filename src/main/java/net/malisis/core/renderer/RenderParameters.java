@@ -25,7 +25,31 @@ import net.minecraftforge.common.util.ForgeDirection;
 @SuppressWarnings("rawtypes")
 public class RenderParameters implements ITransformable.Color, ITransformable.Alpha, ITransformable.Brightness {
 
+    // flags of the compiled boolean parameters, see is(int)
+    public static final int RENDER_ALL_FACES = 1 << 0;
+    public static final int USE_BLOCK_BOUNDS = 1 << 1;
+    public static final int VERTEX_POSITION_RELATIVE = 1 << 2;
+    public static final int USE_CUSTOM_TEXTURE = 1 << 3;
+    public static final int APPLY_TEXTURE = 1 << 4;
+    public static final int USE_WORLD_SENSITIVE_ICON = 1 << 5;
+    public static final int USE_TEXTURE = 1 << 6;
+    public static final int INTERPOLATE_UV = 1 << 7;
+    public static final int CALCULATE_AO_COLOR = 1 << 8;
+    public static final int CALCULATE_BRIGHTNESS = 1 << 9;
+    public static final int USE_PER_VERTEX_COLOR = 1 << 10;
+    public static final int USE_PER_VERTEX_ALPHA = 1 << 11;
+    public static final int USE_PER_VERTEX_BRIGHTNESS = 1 << 12;
+    public static final int USE_ENVIRONMENT_BRIGHTNESS = 1 << 13;
+    public static final int USE_NORMALS = 1 << 14;
+    public static final int FLIP_U = 1 << 15;
+    public static final int FLIP_V = 1 << 16;
+    public static final int HAS_COLOR_MULTIPLIER = 1 << 17;
+
     protected Parameter[] listParams;
+    /** Boolean parameters, in the order of their flags. */
+    protected Parameter<Boolean>[] booleanParams;
+    /** Parameters read when baking a shape, so changing the others does not require baking the shape again. */
+    protected Parameter[] bakedParams;
     /**
      * Defines whether to render all faces even if shoudSideBeRendered is false
      */
@@ -146,12 +170,40 @@ public class RenderParameters implements ITransformable.Color, ITransformable.Al
      */
     public Parameter<Boolean> flipV = new Parameter<>(false);
 
+    /** Incremented each time the value of one of the parameters changes. */
+    int version = 0;
+    /** Value of {@link #version} when the values were last compiled. */
+    private int compiled = -1;
+    /** Flags of the boolean parameters set to true. */
+    private int flags;
+    /** Compiled {@link #colorMultiplier}. */
+    private int colorMultiplierValue;
+    /** Compiled {@link #colorFactor}. */
+    private float colorFactorValue;
+    /** Compiled {@link #brightness}. */
+    private int brightnessValue;
+    /** Compiled {@link #alpha}. */
+    private int alphaValue;
+    /** Compiled {@link #direction}. */
+    private ForgeDirection directionValue;
+    /** Compiled {@link #aoMatrix}. */
+    private int[][][] aoMatrixValue;
+
+    @SuppressWarnings("unchecked")
     public RenderParameters() {
         listParams = new Parameter<?>[] { renderAllFaces, useBlockBounds, renderBounds,
                 vertexPositionRelativeToRenderBounds, useCustomTexture, applyTexture, icon, useWorldSensitiveIcon,
                 useTexture, interpolateUV, calculateAOColor, calculateBrightness, usePerVertexColor, usePerVertexAlpha,
                 usePerVertexBrightness, useEnvironmentBrightness, useNormals, colorMultiplier, colorFactor, brightness,
                 alpha, direction, textureSide, aoMatrix, flipU, flipV, };
+        booleanParams = new Parameter[] { renderAllFaces, useBlockBounds, vertexPositionRelativeToRenderBounds,
+                useCustomTexture, applyTexture, useWorldSensitiveIcon, useTexture, interpolateUV, calculateAOColor,
+                calculateBrightness, usePerVertexColor, usePerVertexAlpha, usePerVertexBrightness,
+                useEnvironmentBrightness, useNormals, flipU, flipV };
+        bakedParams = new Parameter[] { useBlockBounds, renderBounds, vertexPositionRelativeToRenderBounds,
+                useCustomTexture, applyTexture, icon, useWorldSensitiveIcon, interpolateUV, direction, textureSide,
+                flipU, flipV };
+        for (Parameter param : listParams) param.owner = this;
     }
 
     public RenderParameters(RenderParameters params) {
@@ -178,6 +230,123 @@ public class RenderParameters implements ITransformable.Color, ITransformable.Al
         }
     }
 
+    /**
+     * Sets the values of this {@link RenderParameters} to the ones of <b>override</b> when set, or the ones of
+     * <b>base</b> otherwise.<br>
+     * Equivalent to merging both into a new {@link RenderParameters}, without the allocation.
+     *
+     * @param base     the base
+     * @param override the override
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(RenderParameters base, RenderParameters override) {
+        if (base == null) base = override;
+        if (override == null) override = base;
+        if (base == null) {
+            reset();
+            return;
+        }
+
+        for (int i = 0; i < listParams.length; i++) listParams[i].merge(base.listParams[i], override.listParams[i]);
+    }
+
+    /**
+     * Compiles the values of the parameters into flags and primitive fields, if they changed since the last time.
+     */
+    private void compile() {
+        if (compiled == version) return;
+
+        flags = 0;
+        for (int i = 0; i < booleanParams.length; i++) if (booleanParams[i].get()) flags |= 1 << i;
+
+        Integer color = colorMultiplier.get();
+        if (color != null) {
+            flags |= HAS_COLOR_MULTIPLIER;
+            colorMultiplierValue = color;
+        }
+        colorFactorValue = colorFactor.get();
+        brightnessValue = brightness.get();
+        alphaValue = alpha.get();
+        directionValue = direction.get();
+        aoMatrixValue = aoMatrix.get();
+
+        compiled = version;
+    }
+
+    /**
+     * Checks whether the boolean parameter corresponding to the <b>flag</b> is true.<br>
+     * Reads the compiled values, without unboxing.
+     *
+     * @param flag the flag
+     * @return true, if the parameter is true
+     */
+    public boolean is(int flag) {
+        compile();
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * Gets the compiled {@link #colorMultiplier}. Only relevant if {@link #HAS_COLOR_MULTIPLIER} is set.
+     *
+     * @return the color multiplier
+     */
+    public int getColorMultiplier() {
+        compile();
+        return colorMultiplierValue;
+    }
+
+    /**
+     * Gets the compiled {@link #colorFactor}.
+     *
+     * @return the color factor
+     */
+    public float getColorFactor() {
+        compile();
+        return colorFactorValue;
+    }
+
+    /**
+     * Gets the compiled {@link #brightness}.
+     *
+     * @return the brightness
+     */
+    public int getBrightness() {
+        compile();
+        return brightnessValue;
+    }
+
+    /**
+     * Gets the compiled {@link #alpha}.
+     *
+     * @return the alpha
+     */
+    public int getAlpha() {
+        compile();
+        return alphaValue;
+    }
+
+    /**
+     * Gets the compiled {@link #direction}.
+     *
+     * @return the direction
+     */
+    public ForgeDirection getDirection() {
+        compile();
+        return directionValue;
+    }
+
+    /**
+     * Gets the blocks to take into account for the AO of the vertex at <b>index</b>.
+     *
+     * @param index the index
+     * @return the ao matrix, or null if not defined
+     */
+    public int[][] getAoMatrix(int index) {
+        compile();
+        if (aoMatrixValue == null || index < 0 || index >= aoMatrixValue.length) return null;
+        return aoMatrixValue[index];
+    }
+
     @Override
     public void setAlpha(int alpha) {
         this.alpha.set(alpha);
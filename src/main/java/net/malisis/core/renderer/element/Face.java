@@ -28,6 +28,8 @@ public class Face implements ITransformable.Translate, ITransformable.Rotate {
     protected String name;
     protected Vertex[] vertexes;
     protected RenderParameters params;
+    /** Whether {@link #params} are shared with a copy of this {@link Face}, and must be copied before modified. */
+    private boolean sharedParams;
 
     public Face(Vertex[] vertexes, RenderParameters params) {
         this.vertexes = vertexes;
@@ -43,8 +45,15 @@ public class Face implements ITransformable.Translate, ITransformable.Rotate {
         this(vertexes.toArray(new Vertex[0]), null);
     }
 
+    /**
+     * Instantiates a new {@link Face} copying the <b>face</b>. The {@link RenderParameters} are shared until either
+     * face modifies them through {@link #getParameters()}.
+     *
+     * @param face the face
+     */
     public Face(Face face) {
-        this(face, new RenderParameters(face.params));
+        this(face, face.params);
+        shareParameters(face);
     }
 
     public Face(Face face, RenderParameters params) {
@@ -55,6 +64,30 @@ public class Face implements ITransformable.Translate, ITransformable.Rotate {
         name = face.name;
     }
 
+    /**
+     * Instantiates a new {@link Face} with the <b>vertexes</b>, and the name and {@link RenderParameters} of the
+     * <b>face</b>. The parameters are shared until either face modifies them through {@link #getParameters()}.
+     *
+     * @param vertexes the vertexes
+     * @param face     the face
+     */
+    Face(Vertex[] vertexes, Face face) {
+        this.vertexes = vertexes;
+        shareParameters(face);
+        name = face.name;
+    }
+
+    /**
+     * Shares the {@link RenderParameters} of the <b>face</b> with this {@link Face}.
+     *
+     * @param face the face
+     */
+    private void shareParameters(Face face) {
+        params = face.params;
+        sharedParams = true;
+        face.sharedParams = true;
+    }
+
     /**
      * Sets the base name for this {@link Face}. If the name specified is null, it is automatically determined based on
      * the {@link Vertex} positions.
@@ -104,15 +137,32 @@ public class Face implements ITransformable.Translate, ITransformable.Rotate {
      */
     public Face setParameters(RenderParameters params) {
         this.params = params != null ? params : new RenderParameters();
+        sharedParams = false;
         return this;
     }
 
     /**
-     * Gets the {@link RenderParameters} of this {@link Face}.
+     * Gets the {@link RenderParameters} of this {@link Face}, to be modified.<br>
+     * If they are shared with a copy of this {@link Face}, they are copied first. The parameters returned should not
+     * be kept once the face is copied again.
      *
      * @return the parameters
      */
     public RenderParameters getParameters() {
+        if (sharedParams) {
+            params = new RenderParameters(params);
+            sharedParams = false;
+        }
+        return params;
+    }
+
+    /**
+     * Gets the {@link RenderParameters} of this {@link Face} without copying them when they are shared.<br>
+     * The parameters returned must not be modified.
+     *
+     * @return the parameters
+     */
+    public RenderParameters readParameters() {
         return params;
     }
 
@@ -388,6 +438,7 @@ public class Face implements ITransformable.Translate, ITransformable.Rotate {
 
         // if (dir != ForgeDirection.UNKNOWN)
         {
+            RenderParameters params = getParameters();
             params.direction.set(dir);
             params.textureSide.set(dir);
             params.aoMatrix.set(calculateAoMatrix(dir));
@@ -400,7 +451,7 @@ public class Face implements ITransformable.Translate, ITransformable.Rotate {
 
         // fry's patent
         float f = (float) ((normal.x * normal.x * 0.6 + normal.y * (normal.y * 3 + 1) / 4 + normal.z * normal.z * 0.8));
-        params.colorFactor.set(f);
+        getParameters().colorFactor.set(f);
     }
 
     @Override
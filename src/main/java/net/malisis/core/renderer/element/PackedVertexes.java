@@ -0,0 +1,357 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.renderer.element;
+
+import net.minecraft.util.AxisAlignedBB;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+/**
+ * Packed storage for the {@link Vertex vertexes} of a {@link Shape}. Each attribute is stored in its own primitive
+ * array so transformations and copies are done over whole arrays instead of individual objects.<br>
+ * {@link Vertex Vertexes} bound to a <code>PackedVertexes</code> are only views reading and writing into the
+ * arrays.<br>
+ * <br>
+ * The arrays are copy-on-write : copies and stored states share the same arrays, which are only duplicated when a value
+ * actually changes. Matrix transformations are not applied to the arrays but accumulated and evaluated when the
+ * positions are read.
+ *
+ * @author Ordinastie
+ *
+ */
+public class PackedVertexes {
+
+    /** Number of vertexes stored. */
+    private final int size;
+
+    private float[] x;
+    private float[] y;
+    private float[] z;
+    private float[] u;
+    private float[] v;
+    private int[] color;
+    private int[] alpha;
+    private int[] brightness;
+
+    /** Whether the position arrays are shared with another {@link PackedVertexes}. */
+    private boolean sharedPositions;
+    /** Whether the UV arrays are shared with another {@link PackedVertexes}. */
+    private boolean sharedUVs;
+    /** Whether the color, alpha and brightness arrays are shared with another {@link PackedVertexes}. */
+    private boolean sharedColors;
+
+    /** Transformation not yet applied to the positions. */
+    private final Matrix4f transform = new Matrix4f();
+    /** Whether {@link #transform} needs to be applied to the positions. */
+    private boolean hasTransform;
+
+    /** Stored state of the vertexes, lazily created by {@link #storeState()}. */
+    private PackedVertexes initialState;
+
+    /**
+     * Instantiates a new {@link PackedVertexes} for the specified number of vertexes.
+     *
+     * @param size the size
+     */
+    public PackedVertexes(int size) {
+        this.size = size;
+        x = new float[size];
+        y = new float[size];
+        z = new float[size];
+        u = new float[size];
+        v = new float[size];
+        color = new int[size];
+        alpha = new int[size];
+        brightness = new int[size];
+    }
+
+    /**
+     * Instantiates a new {@link PackedVertexes} as a copy of another one, including its stored state. The arrays are
+     * shared until either of them is modified.
+     *
+     * @param packed the packed
+     */
+    public PackedVertexes(PackedVertexes packed) {
+        this.size = packed.size;
+        share(packed, this);
+        if (packed.hasTransform) {
+            transform.load(packed.transform);
+            hasTransform = true;
+        }
+        if (packed.initialState != null) initialState = new PackedVertexes(packed.initialState);
+    }
+
+    /**
+     * Gets the number of vertexes stored.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the values of a {@link Vertex} into the specified index.
+     *
+     * @param index  the index
+     * @param vertex the vertex
+     */
+    public void set(int index, Vertex vertex) {
+        setX(index, (float) vertex.getX());
+        setY(index, (float) vertex.getY());
+        setZ(index, (float) vertex.getZ());
+        setU(index, (float) vertex.getU());
+        setV(index, (float) vertex.getV());
+        setColor(index, vertex.getColor());
+        setAlpha(index, vertex.getAlpha());
+        setBrightness(index, vertex.getBrightness());
+    }
+
+    // #region Getters
+    public float getX(int index) {
+        if (!hasTransform) return x[index];
+        Matrix4f m = transform;
+        return m.m00 * x[index] + m.m10 * y[index] + m.m20 * z[index] + m.m30;
+    }
+
+    public float getY(int index) {
+        if (!hasTransform) return y[index];
+        Matrix4f m = transform;
+        return m.m01 * x[index] + m.m11 * y[index] + m.m21 * z[index] + m.m31;
+    }
+
+    public float getZ(int index) {
+        if (!hasTransform) return z[index];
+        Matrix4f m = transform;
+        return m.m02 * x[index] + m.m12 * y[index] + m.m22 * z[index] + m.m32;
+    }
+
+    // @formatter:off
+    public float getU(int index) { return u[index]; }
+    public float getV(int index) { return v[index]; }
+    public int getColor(int index) { return color[index]; }
+    public int getAlpha(int index) { return alpha[index]; }
+    public int getBrightness(int index) { return brightness[index]; }
+    // @formatter:on
+    // #end Getters
+
+    // #region Setters
+    public void setX(int index, float value) {
+        if (getX(index) == value) return;
+        ownPositions();
+        x[index] = value;
+    }
+
+    public void setY(int index, float value) {
+        if (getY(index) == value) return;
+        ownPositions();
+        y[index] = value;
+    }
+
+    public void setZ(int index, float value) {
+        if (getZ(index) == value) return;
+        ownPositions();
+        z[index] = value;
+    }
+
+    public void setU(int index, float value) {
+        if (u[index] == value) return;
+        ownUVs();
+        u[index] = value;
+    }
+
+    public void setV(int index, float value) {
+        if (v[index] == value) return;
+        ownUVs();
+        v[index] = value;
+    }
+
+    public void setColor(int index, int value) {
+        if (color[index] == value) return;
+        ownColors();
+        color[index] = value;
+    }
+
+    public void setAlpha(int index, int value) {
+        if (alpha[index] == value) return;
+        ownColors();
+        alpha[index] = value;
+    }
+
+    public void setBrightness(int index, int value) {
+        if (brightness[index] == value) return;
+        ownColors();
+        brightness[index] = value;
+    }
+    // #end Setters
+
+    // #region Copy-on-write
+    /**
+     * Makes the position arrays owned by this {@link PackedVertexes} and applies the pending transformation to them.
+     */
+    private void ownPositions() {
+        if (hasTransform) {
+            float[] tx = sharedPositions ? new float[size] : x;
+            float[] ty = sharedPositions ? new float[size] : y;
+            float[] tz = sharedPositions ? new float[size] : z;
+            for (int i = 0; i < size; i++) {
+                float vx = getX(i);
+                float vy = getY(i);
+                float vz = getZ(i);
+                tx[i] = vx;
+                ty[i] = vy;
+                tz[i] = vz;
+            }
+            x = tx;
+            y = ty;
+            z = tz;
+            hasTransform = false;
+        } else if (sharedPositions) {
+            x = x.clone();
+            y = y.clone();
+            z = z.clone();
+        }
+        sharedPositions = false;
+    }
+
+    /**
+     * Makes the UV arrays owned by this {@link PackedVertexes}.
+     */
+    private void ownUVs() {
+        if (!sharedUVs) return;
+        u = u.clone();
+        v = v.clone();
+        sharedUVs = false;
+    }
+
+    /**
+     * Makes the color, alpha and brightness arrays owned by this {@link PackedVertexes}.
+     */
+    private void ownColors() {
+        if (!sharedColors) return;
+        color = color.clone();
+        alpha = alpha.clone();
+        brightness = brightness.clone();
+        sharedColors = false;
+    }
+
+    /**
+     * Makes <b>to</b> use the same arrays as <b>from</b>. Both will copy the arrays before modifying them.
+     *
+     * @param from the from
+     * @param to   the to
+     */
+    private static void share(PackedVertexes from, PackedVertexes to) {
+        to.x = from.x;
+        to.y = from.y;
+        to.z = from.z;
+        to.u = from.u;
+        to.v = from.v;
+        to.color = from.color;
+        to.alpha = from.alpha;
+        to.brightness = from.brightness;
+        from.sharedPositions = from.sharedUVs = from.sharedColors = true;
+        to.sharedPositions = to.sharedUVs = to.sharedColors = true;
+        to.hasTransform = false;
+    }
+    // #end Copy-on-write
+
+    /**
+     * Applies the transformation matrix to the positions of all the vertexes. The transformation is accumulated and
+     * only evaluated when the positions are read or modified.
+     *
+     * @param matrix the matrix
+     */
+    public void transform(Matrix4f matrix) {
+        if (hasTransform) Matrix4f.mul(matrix, transform, transform);
+        else transform.load(matrix);
+        hasTransform = true;
+    }
+
+    /**
+     * Interpolates the positions of all the vertexes relative to the bounds specified. The interpolation is accumulated
+     * like {@link #transform(Matrix4f)}.
+     *
+     * @param bounds the bounds
+     */
+    public void interpolateCoord(AxisAlignedBB bounds) {
+        if (!hasTransform) transform.setIdentity();
+        hasTransform = true;
+
+        Matrix4f m = transform;
+        float fx = (float) (bounds.maxX - bounds.minX);
+        float fy = (float) (bounds.maxY - bounds.minY);
+        float fz = (float) (bounds.maxZ - bounds.minZ);
+
+        m.m00 *= fx;
+        m.m10 *= fx;
+        m.m20 *= fx;
+        m.m30 = m.m30 * fx + (float) bounds.minX;
+        m.m01 *= fy;
+        m.m11 *= fy;
+        m.m21 *= fy;
+        m.m31 = m.m31 * fy + (float) bounds.minY;
+        m.m02 *= fz;
+        m.m12 *= fz;
+        m.m22 *= fz;
+        m.m32 = m.m32 * fz + (float) bounds.minZ;
+    }
+
+    /**
+     * Stores the current state of all the vertexes. The stored state shares the arrays with the current one.
+     */
+    public void storeState() {
+        if (hasTransform) ownPositions();
+        if (initialState == null) initialState = new PackedVertexes(size);
+        share(this, initialState);
+    }
+
+    /**
+     * Stores the current state of the vertex at the specified index.
+     *
+     * @param index the index
+     */
+    public void storeState(int index) {
+        if (initialState == null) storeState();
+        else copy(this, initialState, index);
+    }
+
+    /**
+     * Resets all the vertexes to their stored state. Has no effect if no state was stored.<br>
+     * No data is copied, the arrays of the stored state are shared until modified.
+     */
+    public void resetState() {
+        if (initialState != null) share(initialState, this);
+    }
+
+    /**
+     * Resets the vertex at the specified index to its stored state. Has no effect if no state was stored.
+     *
+     * @param index the index
+     */
+    public void resetState(int index) {
+        if (initialState != null) copy(initialState, this, index);
+    }
+
+    private static void copy(PackedVertexes from, PackedVertexes to, int index) {
+        to.setX(index, from.getX(index));
+        to.setY(index, from.getY(index));
+        to.setZ(index, from.getZ(index));
+        to.setU(index, from.getU(index));
+        to.setV(index, from.getV(index));
+        to.setColor(index, from.getColor(index));
+        to.setAlpha(index, from.getAlpha(index));
+        to.setBrightness(index, from.getBrightness(index));
+    }
+}
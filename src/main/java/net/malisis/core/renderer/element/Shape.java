@@ -46,6 +46,9 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
     /** The merged vertexes making up this {@link Shape}. */
     protected Map<String, MergedVertex> mergedVertexes;
 
+    /** Packed storage for the vertexes making up this {@link Shape}, if {@link #pack()} was called. */
+    protected PackedVertexes packedVertexes;
+
     {
         resetMatrix();
     }
@@ -76,14 +79,26 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
     }
 
     /**
-     * Instantiates a new {@link Shape}.
+     * Instantiates a new {@link Shape} copying <b>s</b>.<br>
+     * The {@link RenderParameters} of the faces are shared until modified. The vertexes are only shared until modified
+     * if <b>s</b> is {@link #pack() packed}, they are copied one by one otherwise. Shapes copied every frame, like
+     * animated ones, should be packed.
      *
      * @param s the s
      */
     public Shape(Shape s) {
         Face[] shapeFaces = s.getFaces();
         this.faces = new Face[shapeFaces.length];
-        for (int i = 0; i < shapeFaces.length; i++) faces[i] = new Face(shapeFaces[i]);
+        if (s.packedVertexes != null) {
+            // the arrays are shared until modified, the vertexes are only views
+            packedVertexes = new PackedVertexes(s.packedVertexes);
+            for (int i = 0; i < shapeFaces.length; i++) {
+                Face face = shapeFaces[i];
+                faces[i] = new Face(createViews(face.getVertexes()), face);
+            }
+        } else {
+            for (int i = 0; i < shapeFaces.length; i++) faces[i] = new Face(shapeFaces[i]);
+        }
         copyMatrix(s);
     }
 
@@ -112,6 +127,12 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
 
         this.faces = ArrayUtils.addAll(this.faces, faces);
 
+        // repack to include the new vertexes, stored states are lost
+        if (packedVertexes != null) {
+            packedVertexes = null;
+            pack();
+        }
+
         return this;
     }
 
@@ -168,6 +189,69 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
 
     // #end FACES
 
+    // #region PACKING
+    /**
+     * Moves the {@link Vertex vertexes} of this {@link Shape} into a {@link PackedVertexes}. The vertexes of the faces
+     * are replaced by views of the packed storage, so matrix transformations, states and copies of this
+     * <code>Shape</code> are handled over whole arrays. Useful for shapes with a lot of vertexes, like models.<br>
+     * The positions and UVs are stored as floats. Should be called once all the faces are added.
+     *
+     * @return this {@link Shape}
+     */
+    public Shape pack() {
+        if (packedVertexes != null) return this;
+
+        int count = 0;
+        for (Face f : faces) count += f.getVertexes().length;
+
+        packedVertexes = new PackedVertexes(count);
+        int index = 0;
+        for (Face f : faces) {
+            for (Vertex v : f.getVertexes()) if (v != null) packedVertexes.set(index++, v);
+        }
+
+        index = 0;
+        for (Face f : faces) {
+            Vertex[] vertexes = f.getVertexes();
+            for (int i = 0; i < vertexes.length; i++) {
+                if (vertexes[i] != null) vertexes[i] = new Vertex(packedVertexes, index++, vertexes[i].baseName());
+            }
+        }
+
+        if (mergedVertexes != null) {
+            mergedVertexes = null;
+            enableMergedVertexes();
+        }
+        return this;
+    }
+
+    /**
+     * Checks whether the {@link Vertex vertexes} of this {@link Shape} are packed.
+     *
+     * @return true, if packed
+     */
+    public boolean isPacked() {
+        return packedVertexes != null;
+    }
+
+    /**
+     * Creates views for the {@link Vertex vertexes} of the copied {@link Shape}, at the same indexes in the
+     * {@link PackedVertexes} of this <code>Shape</code>.
+     *
+     * @param vertexes the vertexes
+     * @return the views
+     */
+    private Vertex[] createViews(Vertex[] vertexes) {
+        Vertex[] views = new Vertex[vertexes.length];
+        for (int i = 0; i < vertexes.length; i++) {
+            Vertex v = vertexes[i];
+            if (v != null) views[i] = new Vertex(packedVertexes, v.getIndex(), v.baseName());
+        }
+        return views;
+    }
+
+    // #end PACKING
+
     // #region VERTEXES
     /**
      * Enables the {@link MergedVertex} for this {@link Shape}. Will transfer the current transformation matrix to the
@@ -303,8 +387,11 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
         // transform back to original place
         transformMatrix.translate(new Vector3f(-0.5F, -0.5F, -0.5F));
 
-        for (Face f : faces) {
-            for (Vertex v : f.getVertexes()) if (v != null) v.applyMatrix(transformMatrix);
+        if (packedVertexes != null) packedVertexes.transform(transformMatrix);
+        else {
+            for (Face f : faces) {
+                for (Vertex v : f.getVertexes()) if (v != null) v.applyMatrix(transformMatrix);
+            }
         }
 
         resetMatrix();
@@ -312,6 +399,25 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
         return this;
     }
 
+    /**
+     * Modifies the {@link Vertex vertexes} coordinates relative to the bounds specified. For packed shapes, the
+     * interpolation is accumulated with the transformations and evaluated when the vertexes are read.
+     *
+     * @param bounds the bounds
+     * @return this {@link Shape}
+     */
+    public Shape interpolateCoord(AxisAlignedBB bounds) {
+        if (bounds == null) return this;
+
+        if (packedVertexes != null) packedVertexes.interpolateCoord(bounds);
+        else {
+            for (Face f : faces) {
+                for (Vertex v : f.getVertexes()) if (v != null) v.interpolateCoord(bounds);
+            }
+        }
+        return this;
+    }
+
     /**
      * Sets the parameters for all the {@link Face faces} making up this {@link Shape}.
      *
@@ -532,6 +638,10 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
      */
     public Shape storeState() {
         applyMatrix();
+        if (packedVertexes != null) {
+            packedVertexes.storeState();
+            return this;
+        }
         for (Face f : faces) {
             for (Vertex v : f.getVertexes()) if (v != null) v.setInitialState();
         }
@@ -545,6 +655,10 @@ public class Shape implements ITransformable.Translate, ITransformable.Rotate, I
      */
     public Shape resetState() {
         resetMatrix();
+        if (packedVertexes != null) {
+            packedVertexes.resetState();
+            return this;
+        }
         for (Face f : faces) {
             for (Vertex v : f.getVertexes()) if (v != null) v.resetState();
         }
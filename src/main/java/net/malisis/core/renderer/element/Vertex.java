@@ -18,7 +18,6 @@ import net.minecraft.util.AxisAlignedBB;
 import net.minecraftforge.common.util.ForgeDirection;
 
 import org.lwjgl.util.vector.Matrix4f;
-import org.lwjgl.util.vector.Vector4f;
 
 public class Vertex {
 
@@ -86,6 +85,11 @@ public class Vertex {
 
     private Vertex initialState;
 
+    /** Packed storage this {@link Vertex} is a view of, if any. */
+    private PackedVertexes packed;
+    /** Index of this {@link Vertex} inside the {@link PackedVertexes}. */
+    private int index;
+
     public Vertex(double x, double y, double z, int rgba, int brightness, double u, double v, boolean isInitialState) {
         this.x = x;
         this.y = y;
@@ -110,74 +114,106 @@ public class Vertex {
 
     public Vertex(Vertex vertex) {
         this(
-                vertex.x,
-                vertex.y,
-                vertex.z,
-                vertex.color << 8 | vertex.alpha,
-                vertex.brightness,
-                vertex.u,
-                vertex.v,
+                vertex.getX(),
+                vertex.getY(),
+                vertex.getZ(),
+                vertex.getColor() << 8 | vertex.getAlpha(),
+                vertex.getBrightness(),
+                vertex.getU(),
+                vertex.getV(),
                 false);
         baseName = vertex.baseName;
     }
 
     public Vertex(Vertex vertex, int rgba, int brightness) {
-        this(vertex.x, vertex.y, vertex.z, rgba, brightness);
+        this(vertex.getX(), vertex.getY(), vertex.getZ(), rgba, brightness);
     }
 
     public Vertex(Vertex vertex, int rgba, int brightness, float u, float v) {
-        this(vertex.x, vertex.y, vertex.z, rgba, brightness, u, v, false);
+        this(vertex.getX(), vertex.getY(), vertex.getZ(), rgba, brightness, u, v, false);
+    }
+
+    /**
+     * Instantiates a new {@link Vertex} as a view of the vertex at <b>index</b> in the {@link PackedVertexes}.
+     *
+     * @param packed   the packed vertexes
+     * @param index    the index
+     * @param baseName the base name
+     */
+    Vertex(PackedVertexes packed, int index, String baseName) {
+        this.packed = packed;
+        this.index = index;
+        this.baseName = baseName;
+    }
+
+    /**
+     * Checks whether this {@link Vertex} is a view of a {@link PackedVertexes}.
+     *
+     * @return true, if packed
+     */
+    public boolean isPacked() {
+        return packed != null;
+    }
+
+    /**
+     * Gets the index of this {@link Vertex} inside its {@link PackedVertexes}.
+     *
+     * @return the index
+     */
+    int getIndex() {
+        return index;
     }
 
     public double getX() {
-        return x;
+        return packed != null ? packed.getX(index) : x;
     }
 
     public int getIntX() {
-        return (int) Math.round(x);
+        return (int) Math.round(getX());
     }
 
     public Vertex setX(double x) {
-        this.x = x;
+        if (packed != null) packed.setX(index, (float) x);
+        else this.x = x;
         return this;
     }
 
     public double getY() {
-        return y;
+        return packed != null ? packed.getY(index) : y;
     }
 
     public int getIntY() {
-        return (int) Math.round(y);
+        return (int) Math.round(getY());
     }
 
     public Vertex setY(double y) {
-        this.y = y;
+        if (packed != null) packed.setY(index, (float) y);
+        else this.y = y;
         return this;
     }
 
     public double getZ() {
-        return z;
+        return packed != null ? packed.getZ(index) : z;
     }
 
     public int getIntZ() {
-        return (int) Math.round(z);
+        return (int) Math.round(getZ());
     }
 
     public Vertex setZ(double z) {
-        this.z = z;
+        if (packed != null) packed.setZ(index, (float) z);
+        else this.z = z;
         return this;
     }
 
     public void set(double x, double y, double z) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
+        setX(x);
+        setY(y);
+        setZ(z);
     }
 
     public void limit(double min, double max) {
-        x = clamp(x, min, max);
-        y = clamp(y, min, max);
-        z = clamp(z, min, max);
+        set(clamp(getX(), min, max), clamp(getY(), min, max), clamp(getZ(), min, max));
     }
 
     public void interpolateCoord(AxisAlignedBB bounds) {
@@ -187,31 +223,24 @@ public class Vertex {
         double fy = bounds.maxY - bounds.minY;
         double fz = bounds.maxZ - bounds.minZ;
 
-        x = x * fx + bounds.minX;
-        y = y * fy + bounds.minY;
-        z = z * fz + bounds.minZ;
+        set(getX() * fx + bounds.minX, getY() * fy + bounds.minY, getZ() * fz + bounds.minZ);
     }
 
     public Vertex add(double x, double y, double z) {
-        this.x += x;
-        this.y += y;
-        this.z += z;
+        set(getX() + x, getY() + y, getZ() + z);
         return this;
     }
 
     public Vertex factorX(float f) {
-        x *= f;
-        return this;
+        return setX(getX() * f);
     }
 
     public Vertex factorY(float f) {
-        y *= f;
-        return this;
+        return setY(getY() * f);
     }
 
     public Vertex factorZ(float f) {
-        z *= f;
-        return this;
+        return setZ(getZ() * f);
     }
 
     public Vertex factor(float f) {
@@ -226,9 +255,7 @@ public class Vertex {
     }
 
     public Vertex scale(float f, double centerX, double centerY, double centerZ) {
-        x = (x - centerX) * f + centerX;
-        y = (y - centerY) * f + centerY;
-        z = (z - centerZ) * f + centerZ;
+        set((getX() - centerX) * f + centerX, (getY() - centerY) * f + centerY, (getZ() - centerZ) * f + centerZ);
         return this;
     }
 
@@ -238,12 +265,10 @@ public class Vertex {
 
     public Vertex rotateAroundX(double angle, double centerX, double centerY, double centerZ) {
         angle = Math.toRadians(angle);
-        double ty = y - centerY;
-        double tz = z - centerZ;
-        y = ty * Math.cos(angle) - tz * Math.sin(angle);
-        z = ty * Math.sin(angle) + tz * Math.cos(angle);
-        y += centerY;
-        z += centerZ;
+        double ty = getY() - centerY;
+        double tz = getZ() - centerZ;
+        setY(ty * Math.cos(angle) - tz * Math.sin(angle) + centerY);
+        setZ(ty * Math.sin(angle) + tz * Math.cos(angle) + centerZ);
         return this;
     }
 
@@ -253,12 +278,10 @@ public class Vertex {
 
     public Vertex rotateAroundY(double angle, double centerX, double centerY, double centerZ) {
         angle = Math.toRadians(angle);
-        double tx = x - centerX;
-        double tz = z - centerZ;
-        x = tx * Math.cos(angle) + tz * Math.sin(angle);
-        z = -tx * Math.sin(angle) + tz * Math.cos(angle);
-        x += centerX;
-        z += centerZ;
+        double tx = getX() - centerX;
+        double tz = getZ() - centerZ;
+        setX(tx * Math.cos(angle) + tz * Math.sin(angle) + centerX);
+        setZ(-tx * Math.sin(angle) + tz * Math.cos(angle) + centerZ);
         return this;
     }
 
@@ -268,64 +291,71 @@ public class Vertex {
 
     public Vertex rotateAroundZ(double angle, double centerX, double centerY, double centerZ) {
         angle = Math.toRadians(angle);
-        double tx = x - centerX;
-        double ty = y - centerY;
-        x = tx * Math.cos(angle) - ty * Math.sin(angle);
-        y = tx * Math.sin(angle) + ty * Math.cos(angle);
-        x += centerX;
-        y += centerY;
+        double tx = getX() - centerX;
+        double ty = getY() - centerY;
+        setX(tx * Math.cos(angle) - ty * Math.sin(angle) + centerX);
+        setY(tx * Math.sin(angle) + ty * Math.cos(angle) + centerY);
         return this;
     }
 
     public Vertex setColor(int color) {
-        this.color = color;
+        if (packed != null) packed.setColor(index, color);
+        else this.color = color;
         return this;
     }
 
     public int getColor() {
-        return this.color;
+        return packed != null ? packed.getColor(index) : this.color;
     }
 
     public Vertex setAlpha(int alpha) {
-        this.alpha = alpha;
+        if (packed != null) packed.setAlpha(index, alpha);
+        else this.alpha = alpha;
         return this;
     }
 
     public int getAlpha() {
-        return this.alpha;
+        return packed != null ? packed.getAlpha(index) : this.alpha;
     }
 
     public Vertex setBrightness(int brightness) {
-        this.brightness = brightness;
+        if (packed != null) packed.setBrightness(index, brightness);
+        else this.brightness = brightness;
         return this;
     }
 
     public int getBrightness() {
-        return this.brightness;
+        return packed != null ? packed.getBrightness(index) : this.brightness;
     }
 
     public void setUV(float u, float v) {
-        this.u = u;
-        this.v = v;
+        if (packed != null) {
+            packed.setU(index, u);
+            packed.setV(index, v);
+        } else {
+            this.u = u;
+            this.v = v;
+        }
     }
 
     public double getU() {
-        return this.u;
+        return packed != null ? packed.getU(index) : this.u;
     }
 
     public double getV() {
-        return this.v;
+        return packed != null ? packed.getV(index) : this.v;
     }
 
     public void limitU(float min, float max) {
-        u = Math.max(Math.min(u, max), min);
+        setUV((float) Math.max(Math.min(getU(), max), min), (float) getV());
     }
 
     public void limitV(float min, float max) {
-        v = Math.max(Math.min(v, max), min);
+        setUV((float) getU(), (float) Math.max(Math.min(getV(), max), min));
     }
 
     public boolean isCorner() {
+        double x = getX(), y = getY(), z = getZ();
         return (x == 1 || x == 0) && (y == 1 || y == 0) && (z == 1 || z == 0);
     }
 
@@ -337,23 +367,23 @@ public class Vertex {
     public String baseName() {
         if (baseName == null) {
             baseName = "";
-            if (isCorner())
-                baseName = (y == 1 ? "Top" : "Bottom") + (z == 1 ? "South" : "North") + (x == 1 ? "East" : "West");
+            if (isCorner()) baseName = (getY() == 1 ? "Top" : "Bottom") + (getZ() == 1 ? "South" : "North")
+                    + (getX() == 1 ? "East" : "West");
         }
         return baseName;
     }
 
     public String name() {
-        return baseName() + " [" + x + ", " + y + ", " + z + "|" + u + ", " + v + "]";
+        return baseName() + " [" + getX() + ", " + getY() + ", " + getZ() + "|" + getU() + ", " + getV() + "]";
     }
 
     @Override
     public String toString() {
-        return name() + " 0x" + Integer.toHexString(color) + " (a:" + alpha + ", b:" + brightness + ")";
+        return name() + " 0x" + Integer.toHexString(getColor()) + " (a:" + getAlpha() + ", b:" + getBrightness() + ")";
     }
 
     public Point toPoint() {
-        return new Point(x, y, z);
+        return new Point(getX(), getY(), getZ());
     }
 
     public static double clamp(double value) {
@@ -366,19 +396,18 @@ public class Vertex {
         return value;
     }
 
-    public void applyMatrix(Matrix4f transformMatrix) {
-        Vector4f vec = new Vector4f((float) x, (float) y, (float) z, 1F);
-        Matrix4f.transform(transformMatrix, vec, vec);
-        x = vec.x;
-        y = vec.y;
-        z = vec.z;
+    public void applyMatrix(Matrix4f m) {
+        double x = getX(), y = getY(), z = getZ();
+        set(m.m00 * x + m.m10 * y + m.m20 * z + m.m30,
+                m.m01 * x + m.m11 * y + m.m21 * z + m.m31,
+                m.m02 * x + m.m12 * y + m.m22 * z + m.m32);
     }
 
     private void setState(Vertex vertex) {
         x = vertex.x;
         y = vertex.y;
         z = vertex.z;
-        brightness = vertex.alpha;
+        brightness = vertex.brightness;
         color = vertex.color;
         alpha = vertex.alpha;
         u = vertex.u;
@@ -386,11 +415,13 @@ public class Vertex {
     }
 
     public void setInitialState() {
-        initialState.setState(this);
+        if (packed != null) packed.storeState(index);
+        else initialState.setState(this);
     }
 
     public void resetState() {
-        setState(initialState);
+        if (packed != null) packed.resetState(index);
+        else setState(initialState);
     }
 
     /**
@@ -402,6 +433,7 @@ public class Vertex {
      */
     public int[][] getAoMatrix(ForgeDirection offset) {
         int[][] a = new int[3][3];
+        double x = getX(), y = getY(), z = getZ();
 
         if (offset == ForgeDirection.WEST || offset == ForgeDirection.EAST) {
             a[0][0] = a[1][0] = a[2][0] = offset.offsetX;
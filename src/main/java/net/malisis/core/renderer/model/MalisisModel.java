@@ -77,6 +77,8 @@ public class MalisisModel
         if (loader == null) return;
 
         shapes = loader.getShapes();
+        // loaded models can have a lot of vertexes
+        for (Shape s : this) s.pack();
         storeState();
     }
 
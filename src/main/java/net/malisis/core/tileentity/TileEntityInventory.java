@@ -16,7 +16,6 @@ package net.malisis.core.tileentity;
 import net.malisis.core.inventory.IInventoryProvider;
 import net.malisis.core.inventory.MalisisInventory;
 import net.malisis.core.inventory.MalisisSlot;
-import net.malisis.core.util.ItemUtils;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.item.ItemStack;
@@ -64,7 +63,9 @@ public abstract class TileEntityInventory extends TileEntity implements IInvento
 
     @Override
     public ItemStack decrStackSize(int slotNumber, int amount) {
-        return (new ItemUtils.ItemStackSplitter(inventory.getItemStack(slotNumber))).split(amount);
+        // extracted through the slot so that the change is sent to the viewers
+        MalisisSlot slot = inventory.getSlot(slotNumber);
+        return slot != null ? slot.extract(amount) : null;
     }
 
     @Override
@@ -18,7 +18,6 @@ import java.util.HashMap;
 import net.malisis.core.inventory.IInventoryProvider;
 import net.malisis.core.inventory.MalisisInventory;
 import net.malisis.core.inventory.MalisisSlot;
-import net.malisis.core.util.ItemUtils;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.ISidedInventory;
 import net.minecraft.item.ItemStack;
@@ -85,7 +84,9 @@ public abstract class TileEntitySidedInventory extends TileEntity implements IIn
 
     @Override
     public ItemStack decrStackSize(int slotNumber, int amount) {
-        return (new ItemUtils.ItemStackSplitter(getInventory(slotNumber).getItemStack(slotNumber))).split(amount);
+        // extracted through the slot so that the change is sent to the viewers
+        MalisisSlot slot = getInventory(slotNumber).getSlot(slotNumber);
+        return slot != null ? slot.extract(amount) : null;
     }
 
     @Override
@@ -273,6 +273,48 @@ public class BlockPos {
         return new BlockPos(j, k, l);
     }
 
+    /**
+     * Gets the X coordinate from a serialized long value without creating a {@link BlockPos}.
+     *
+     * @param serialized the serialized value
+     * @return the x coordinate
+     */
+    public static int getX(long serialized) {
+        return (int) (serialized << 64 - X_SHIFT - NUM_X_BITS >> 64 - NUM_X_BITS);
+    }
+
+    /**
+     * Gets the Y coordinate from a serialized long value without creating a {@link BlockPos}.
+     *
+     * @param serialized the serialized value
+     * @return the y coordinate
+     */
+    public static int getY(long serialized) {
+        return (int) (serialized << 64 - Y_SHIFT - NUM_Y_BITS >> 64 - NUM_Y_BITS);
+    }
+
+    /**
+     * Gets the Z coordinate from a serialized long value without creating a {@link BlockPos}.
+     *
+     * @param serialized the serialized value
+     * @return the z coordinate
+     */
+    public static int getZ(long serialized) {
+        return (int) (serialized << 64 - NUM_Z_BITS >> 64 - NUM_Z_BITS);
+    }
+
+    /**
+     * Serializes the coordinates into a long value without creating a {@link BlockPos}.
+     *
+     * @param x the x
+     * @param y the y
+     * @param z the z
+     * @return the serialized value
+     */
+    public static long toLong(int x, int y, int z) {
+        return (x & X_MASK) << X_SHIFT | (y & Y_MASK) << Y_SHIFT | (z & Z_MASK) << 0;
+    }
+
     public static BlockPos minOf(BlockPos p1, BlockPos p2) {
         return new BlockPos(
                 Math.min(p1.getX(), p2.getX()),
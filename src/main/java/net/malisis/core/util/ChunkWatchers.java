@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+import net.minecraftforge.event.world.ChunkWatchEvent;
+
+import com.google.common.collect.MapMaker;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent.PlayerChangedDimensionEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent.PlayerLoggedOutEvent;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Index of the players watching each chunk, kept up to date from {@link ChunkWatchEvent}.<br>
+ * A player is listed once the chunk data has been sent to it, and until it stops watching it.<br>
+ * Should only be used from the server thread.
+ *
+ * @author Ordinastie
+ *
+ */
+public class ChunkWatchers {
+
+    private static ChunkWatchers instance = new ChunkWatchers();
+
+    private ConcurrentMap<World, TLongObjectHashMap<List<EntityPlayerMP>>> worldWatchers = new MapMaker().weakKeys()
+            .makeMap();
+
+    private ChunkWatchers() {}
+
+    private TLongObjectHashMap<List<EntityPlayerMP>> getWatchers(World world) {
+        TLongObjectHashMap<List<EntityPlayerMP>> watchers = worldWatchers.get(world);
+        if (watchers == null) {
+            watchers = new TLongObjectHashMap<>();
+            TLongObjectHashMap<List<EntityPlayerMP>> previous = worldWatchers.putIfAbsent(world, watchers);
+            if (previous != null) watchers = previous;
+        }
+        return watchers;
+    }
+
+    /**
+     * Gets the players watching the chunk.<br>
+     * The returned list is not a copy and must not be modified or kept.
+     *
+     * @param world the world
+     * @param x     the chunk x
+     * @param z     the chunk z
+     * @return the players
+     */
+    public List<EntityPlayerMP> getPlayers(World world, int x, int z) {
+        TLongObjectHashMap<List<EntityPlayerMP>> watchers = worldWatchers.get(world);
+        if (watchers == null) return Collections.emptyList();
+
+        List<EntityPlayerMP> players = watchers.get(ChunkCoordIntPair.chunkXZ2Int(x, z));
+        return players != null ? players : Collections.<EntityPlayerMP>emptyList();
+    }
+
+    @SubscribeEvent
+    public void onChunkWatch(ChunkWatchEvent.Watch event) {
+        TLongObjectHashMap<List<EntityPlayerMP>> watchers = getWatchers(event.player.worldObj);
+        long key = ChunkCoordIntPair.chunkXZ2Int(event.chunk.chunkXPos, event.chunk.chunkZPos);
+        List<EntityPlayerMP> players = watchers.get(key);
+        if (players == null) {
+            players = new ArrayList<>(2);
+            watchers.put(key, players);
+        }
+        if (!players.contains(event.player)) players.add(event.player);
+    }
+
+    /**
+     * Removes the player from the chunk of its current world.<br>
+     * Chunks of the previous world left when changing dimension are cleaned up by
+     * {@link #onPlayerChangedDimension(PlayerChangedDimensionEvent)}.
+     *
+     * @param event the event
+     */
+    @SubscribeEvent
+    public void onChunkUnWatch(ChunkWatchEvent.UnWatch event) {
+        TLongObjectHashMap<List<EntityPlayerMP>> watchers = worldWatchers.get(event.player.worldObj);
+        if (watchers == null) return;
+
+        long key = ChunkCoordIntPair.chunkXZ2Int(event.chunk.chunkXPos, event.chunk.chunkZPos);
+        List<EntityPlayerMP> players = watchers.get(key);
+        if (players != null && players.remove(event.player) && players.isEmpty()) watchers.remove(key);
+    }
+
+    /**
+     * Removes the player from every chunk of the worlds other than its new one.
+     *
+     * @param event the event
+     */
+    @SubscribeEvent
+    public void onPlayerChangedDimension(PlayerChangedDimensionEvent event) {
+        removePlayer((EntityPlayerMP) event.player, event.player.worldObj);
+    }
+
+    /**
+     * Removes the player from every chunk, in case some {@link ChunkWatchEvent.UnWatch} were not fired.
+     *
+     * @param event the event
+     */
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerLoggedOutEvent event) {
+        removePlayer((EntityPlayerMP) event.player, null);
+    }
+
+    /**
+     * Removes the player from every chunk of all the worlds except <b>keep</b>.
+     *
+     * @param player the player
+     * @param keep   the world to keep, can be null
+     */
+    private void removePlayer(EntityPlayerMP player, World keep) {
+        for (Entry<World, TLongObjectHashMap<List<EntityPlayerMP>>> entry : worldWatchers.entrySet()) {
+            if (entry.getKey() == keep) continue;
+            for (Iterator<List<EntityPlayerMP>> it = entry.getValue().valueCollection().iterator(); it.hasNext();) {
+                List<EntityPlayerMP> players = it.next();
+                if (players.remove(player) && players.isEmpty()) it.remove();
+            }
+        }
+    }
+
+    public static ChunkWatchers get() {
+        return instance;
+    }
+}
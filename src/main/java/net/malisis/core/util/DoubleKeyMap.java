@@ -93,6 +93,10 @@ public class DoubleKeyMap<K, V> {
         return entry != null ? entry.getValue() : null;
     }
 
+    public int size() {
+        return data.size();
+    }
+
     public Collection<V> values() {
         return Collections2.transform(data, new Function<DoubleKeyEntry<K, V>, V>() {
 
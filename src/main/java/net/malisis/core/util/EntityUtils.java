@@ -13,15 +13,9 @@
 
 package net.malisis.core.util;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-import net.malisis.core.MalisisCore;
-import net.malisis.core.asm.AsmUtils;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.item.EntityItem;
 import net.minecraft.entity.player.EntityPlayer;
@@ -29,7 +23,6 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.server.MinecraftServer;
-import net.minecraft.server.management.PlayerManager;
 import net.minecraft.util.MathHelper;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
@@ -47,20 +40,6 @@ public class EntityUtils {
     private static ForgeDirection[] facings = new ForgeDirection[] { ForgeDirection.NORTH, ForgeDirection.EAST,
             ForgeDirection.SOUTH, ForgeDirection.WEST, ForgeDirection.UP, ForgeDirection.DOWN, ForgeDirection.UNKNOWN };
 
-    private static Method getPlayerInstance;
-    private static Field playersWatchingChunk;
-
-    static {
-        try {
-            getPlayerInstance = AsmUtils
-                    .changeMethodAccess(PlayerManager.class, "getPlayerInstance", "func_72690_a", "IIZ");
-            Class<?> clazz = Class.forName("net.minecraft.server.management.PlayerManager$PlayerInstance");
-            playersWatchingChunk = AsmUtils.changeFieldAccess(clazz, "playersWatchingChunk", "field_73263_b");
-        } catch (ClassNotFoundException e) {
-            MalisisCore.log.error("Failed to get PlayerInstance class.", e);
-        }
-    }
-
     /**
      * Eject a new item corresponding to the {@link ItemStack}.
      *
@@ -140,20 +119,27 @@ public class EntityUtils {
         return isEquipped(player, itemStack != null ? itemStack.getItem() : null);
     }
 
+    /**
+     * Gets the players watching the {@link Chunk}.<br>
+     * The returned list is not a copy and must not be modified or kept.
+     *
+     * @param chunk the chunk
+     * @return the players watching the chunk
+     */
     public static List<EntityPlayerMP> getPlayersWatchingChunk(Chunk chunk) {
-        return getPlayersWatchingChunk((WorldServer) chunk.worldObj, chunk.xPosition, chunk.zPosition);
+        return ChunkWatchers.get().getPlayers(chunk.worldObj, chunk.xPosition, chunk.zPosition);
     }
 
+    /**
+     * Gets the players watching the chunk at the chunk coordinates.<br>
+     * The returned list is not a copy and must not be modified or kept.
+     *
+     * @param world the world
+     * @param x     the chunk x
+     * @param z     the chunk z
+     * @return the players watching the chunk
+     */
     public static List<EntityPlayerMP> getPlayersWatchingChunk(WorldServer world, int x, int z) {
-        if (playersWatchingChunk == null) return new ArrayList<>();
-
-        try {
-            Object playerInstance = getPlayerInstance.invoke(world.getPlayerManager(), x, z, false);
-            if (playerInstance == null) return new ArrayList<>();
-            return (List<EntityPlayerMP>) playersWatchingChunk.get(playerInstance);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            MalisisCore.log.info("Failed to get players watching chunk :", e);
-            return new ArrayList<>();
-        }
+        return ChunkWatchers.get().getPlayers(world, x, z);
     }
 }
@@ -31,6 +31,24 @@ public class ItemUtils {
     /** Defines a half stack amount to process. */
     public static final int HALF_STACK = -2;
 
+    /** Merger reused by {@link #merger(ItemStack, ItemStack)} for the current thread. */
+    private static ThreadLocal<ItemStacksMerger> merger = new ThreadLocal<ItemStacksMerger>() {
+
+        @Override
+        protected ItemStacksMerger initialValue() {
+            return new ItemStacksMerger(null, null);
+        }
+    };
+
+    /** Splitter reused by {@link #splitter(ItemStack)} for the current thread. */
+    private static ThreadLocal<ItemStackSplitter> splitter = new ThreadLocal<ItemStackSplitter>() {
+
+        @Override
+        protected ItemStackSplitter initialValue() {
+            return new ItemStackSplitter(null);
+        }
+    };
+
     /**
      * Utility class to help merge {@link ItemStack itemStacks}.<br>
      * After calling {@link ItemStacksMerger#merge() merge()}, {@link ItemStacksMerger#merge merge} and
@@ -57,8 +75,21 @@ public class ItemUtils {
          * @param into  the into
          */
         public ItemStacksMerger(ItemStack merge, ItemStack into) {
+            set(merge, into);
+        }
+
+        /**
+         * Sets the {@link ItemStack itemStacks} to merge, so that this {@link ItemStacksMerger} can be reused.
+         *
+         * @param merge the merge
+         * @param into  the into
+         * @return this {@link ItemStacksMerger}
+         */
+        public ItemStacksMerger set(ItemStack merge, ItemStack into) {
             this.merge = merge;
             this.into = into;
+            this.nbMerged = -1;
+            return this;
         }
 
         /**
@@ -150,7 +181,20 @@ public class ItemUtils {
          * @param source the source
          */
         public ItemStackSplitter(ItemStack source) {
+            set(source);
+        }
+
+        /**
+         * Sets the {@link ItemStack} to split, so that this {@link ItemStackSplitter} can be reused.
+         *
+         * @param source the source
+         * @return this {@link ItemStackSplitter}
+         */
+        public ItemStackSplitter set(ItemStack source) {
             this.source = source;
+            this.split = null;
+            this.amount = 0;
+            return this;
         }
 
         /**
@@ -176,6 +220,29 @@ public class ItemUtils {
         }
     }
 
+    /**
+     * Gets the {@link ItemStacksMerger} of the current thread, set up for the {@link ItemStack itemStacks}.<br>
+     * The same instance is returned on each call, so the results should be read before merging other itemStacks.
+     *
+     * @param merge the merge
+     * @param into  the into
+     * @return the merger
+     */
+    public static ItemStacksMerger merger(ItemStack merge, ItemStack into) {
+        return merger.get().set(merge, into);
+    }
+
+    /**
+     * Gets the {@link ItemStackSplitter} of the current thread, set up for the {@link ItemStack}.<br>
+     * The same instance is returned on each call, so the results should be read before splitting another itemStack.
+     *
+     * @param source the source
+     * @return the splitter
+     */
+    public static ItemStackSplitter splitter(ItemStack source) {
+        return splitter.get().set(source);
+    }
+
     /**
      * Checks whether two {@link ItemStack itemStacks} can be stacked together
      *
@@ -190,6 +257,21 @@ public class ItemUtils {
                 && ItemStack.areItemStackTagsEqual(stack2, stack1);
     }
 
+    /**
+     * Checks whether two {@link ItemStack itemStacks} only differ by their stack size.
+     *
+     * @param stack1 first itemStack
+     * @param stack2 second itemStack
+     * @return true, if the item, damage and NBT are the same but not the size
+     */
+    public static boolean isSizeChangeOnly(ItemStack stack1, ItemStack stack2) {
+        return stack1 != null && stack2 != null
+                && stack1.stackSize != stack2.stackSize
+                && stack1.getItem() == stack2.getItem()
+                && stack1.getItemDamage() == stack2.getItemDamage()
+                && ItemStack.areItemStackTagsEqual(stack1, stack2);
+    }
+
     public static BlockState getStateFromItemStack(ItemStack itemStack) {
         if (itemStack == null) return null;
 
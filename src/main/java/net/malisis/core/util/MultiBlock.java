@@ -14,6 +14,7 @@
 package net.malisis.core.util;
 
 import net.malisis.core.MalisisCore;
+import net.malisis.core.util.chunkblock.ChunkBlockHandler;
 import net.minecraft.block.Block;
 import net.minecraft.init.Blocks;
 import net.minecraft.nbt.NBTTagCompound;
@@ -279,10 +280,16 @@ public class MultiBlock {
             return false;
         }
         te.setMultiBlock(this);
-        for (ChunkPosition pos : listPos) {
-            world.setBlock(pos.chunkPosX, pos.chunkPosY, pos.chunkPosZ, getBlock(), 0, 1);
-            te = TileEntityUtils.getTileEntity(IProvider.class, world, pos.chunkPosX, pos.chunkPosY, pos.chunkPosZ);
-            te.setMultiBlock(this);
+        ChunkBlockHandler.get().startBatch(world);
+        try {
+            for (ChunkPosition pos : listPos) {
+                world.setBlock(pos.chunkPosX, pos.chunkPosY, pos.chunkPosZ, getBlock(), 0, 1);
+                te = TileEntityUtils
+                        .getTileEntity(IProvider.class, world, pos.chunkPosX, pos.chunkPosY, pos.chunkPosZ);
+                te.setMultiBlock(this);
+            }
+        } finally {
+            ChunkBlockHandler.get().endBatch(world);
         }
 
         // world.setBlockMetadataWithNotify(x, y, z, direction.ordinal(), 2);
@@ -298,8 +305,14 @@ public class MultiBlock {
     public boolean removeBlocks() {
         if (world == null) return false;
         ChunkPosition[] listPos = getListPositions();
-        for (ChunkPosition pos : listPos) world.setBlock(pos.chunkPosX, pos.chunkPosY, pos.chunkPosZ, Blocks.air, 0, 2);
-        world.setBlockToAir(x, y, z);
+        ChunkBlockHandler.get().startBatch(world);
+        try {
+            for (ChunkPosition pos : listPos)
+                world.setBlock(pos.chunkPosX, pos.chunkPosY, pos.chunkPosZ, Blocks.air, 0, 2);
+            world.setBlockToAir(x, y, z);
+        } finally {
+            ChunkBlockHandler.get().endBatch(world);
+        }
 
         return true;
     }
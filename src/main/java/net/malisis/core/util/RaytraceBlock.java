@@ -155,6 +155,18 @@ public class RaytraceBlock {
 
         IBoundingBox block = (IBoundingBox) this.block;
         AxisAlignedBB[] aabbs = block.getBoundingBox(world(), x, y, z, BoundingBoxType.RAYTRACE);
+        return trace(AABBUtils.offset(x, y, z, aabbs));
+    }
+
+    /**
+     * Does the raytracing against the specified {@link AxisAlignedBB}, already offset by the block coordinates.<br>
+     * The boxes are not modified.
+     *
+     * @param aabbs the aabbs
+     * @return {@link MovingObjectPosition} with <code>typeOfHit</code> <b>BLOCK</b> if a ray hits a block in the way,
+     *         or <b>MISS</b> if it reaches <code>dest</code> without any hit
+     */
+    public MovingObjectPosition trace(AxisAlignedBB[] aabbs) {
         if (aabbs == null || aabbs.length == 0) return null;
 
         List<Pair<ForgeDirection, Point>> points = new ArrayList<>();
@@ -162,7 +174,6 @@ public class RaytraceBlock {
         for (AxisAlignedBB aabb : aabbs) {
             if (aabb == null) continue;
 
-            aabb.offset(x, y, z);
             for (Pair<ForgeDirection, Point> pair : ray.intersect(aabb)) {
                 if (Point.distanceSquared(src, pair.getRight()) < maxDist) points.add(pair);
             }
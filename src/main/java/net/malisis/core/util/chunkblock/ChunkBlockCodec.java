@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkblock;
+
+import java.util.Arrays;
+
+import net.malisis.core.MalisisCore;
+import net.malisis.core.util.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Compact binary encoding of the coordinates stored in a {@link ChunkBlockIndex}.<br>
+ * Coordinates are made relative to the {@link Chunk} origin, sorted by y, z then x, and each one is written as the
+ * zigzag varint deltas from the previous coordinate, followed by the delta of its block range.<br>
+ * Dense chunks use around 4 bytes per coordinate instead of the 8 bytes of the raw long format.
+ *
+ * @author Ordinastie
+ *
+ */
+public class ChunkBlockCodec {
+
+    /** Current version of the format. */
+    public static final int VERSION = 1;
+
+    private static final int Y_OFFSET = 1 << 11;
+    private static final int XZ_OFFSET = 1 << 19;
+    private static final long XZ_MASK = (1L << 20) - 1;
+
+    /**
+     * Writes the coordinates of the {@link ChunkBlockIndex} and their ranges into the {@link ByteBuf}.
+     *
+     * @param buf    the buf
+     * @param chunkX the chunk x
+     * @param chunkZ the chunk z
+     * @param index  the index
+     */
+    public static void write(ByteBuf buf, int chunkX, int chunkZ, ChunkBlockIndex index) {
+        int originX = chunkX << 4;
+        int originZ = chunkZ << 4;
+
+        long[] keys = index.toArray();
+        for (int i = 0; i < keys.length; i++) {
+            long coord = keys[i];
+            keys[i] = sortKey(BlockPos.getX(coord) - originX, BlockPos.getY(coord), BlockPos.getZ(coord) - originZ);
+        }
+        Arrays.sort(keys);
+
+        buf.writeByte(VERSION);
+        ByteBufUtils.writeVarInt(buf, keys.length, 5);
+        int px = 0, py = 0, pz = 0, pr = 0;
+        for (long key : keys) {
+            int x = (int) (key & XZ_MASK) - XZ_OFFSET;
+            int z = (int) (key >> 20 & XZ_MASK) - XZ_OFFSET;
+            int y = (int) (key >> 40) - Y_OFFSET;
+            int r = index.getRange(BlockPos.toLong(originX + x, y, originZ + z));
+            ByteBufUtils.writeVarInt(buf, zigzag(y - py), 5);
+            ByteBufUtils.writeVarInt(buf, zigzag(z - pz), 5);
+            ByteBufUtils.writeVarInt(buf, zigzag(x - px), 5);
+            ByteBufUtils.writeVarInt(buf, zigzag(r - pr), 5);
+            px = x;
+            py = y;
+            pz = z;
+            pr = r;
+        }
+    }
+
+    /**
+     * Reads coordinates written by {@link #write(ByteBuf, int, int, ChunkBlockIndex)} into the {@link ChunkBlockIndex}.
+     *
+     * @param buf    the buf
+     * @param chunkX the chunk x
+     * @param chunkZ the chunk z
+     * @param index  the index
+     * @return false if the version is not supported
+     */
+    public static boolean read(ByteBuf buf, int chunkX, int chunkZ, ChunkBlockIndex index) {
+        int version = buf.readUnsignedByte();
+        if (version != VERSION) {
+            MalisisCore.log.error("Unsupported chunk block data version {} for chunk {},{}", version, chunkX, chunkZ);
+            return false;
+        }
+
+        int originX = chunkX << 4;
+        int originZ = chunkZ << 4;
+        int count = ByteBufUtils.readVarInt(buf, 5);
+        int x = 0, y = 0, z = 0, r = 0;
+        for (int i = 0; i < count; i++) {
+            y += unzigzag(ByteBufUtils.readVarInt(buf, 5));
+            z += unzigzag(ByteBufUtils.readVarInt(buf, 5));
+            x += unzigzag(ByteBufUtils.readVarInt(buf, 5));
+            r += unzigzag(ByteBufUtils.readVarInt(buf, 5));
+            index.add(BlockPos.toLong(originX + x, y, originZ + z), r);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the legacy format, where each coordinate was written as a raw long.
+     *
+     * @param buf the buf
+     * @return the coords
+     */
+    public static long[] readLegacy(ByteBuf buf) {
+        long[] coords = new long[buf.readableBytes() / 8];
+        for (int i = 0; i < coords.length; i++) coords[i] = buf.readLong();
+        return coords;
+    }
+
+    private static long sortKey(int x, int y, int z) {
+        return (long) (y + Y_OFFSET) << 40 | ((z + XZ_OFFSET) & XZ_MASK) << 20 | ((x + XZ_OFFSET) & XZ_MASK);
+    }
+
+    private static int zigzag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int unzigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+}
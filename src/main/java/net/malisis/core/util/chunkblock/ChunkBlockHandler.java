@@ -14,28 +14,42 @@
 package net.malisis.core.util.chunkblock;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import net.malisis.core.MalisisCore;
 import net.malisis.core.util.BlockPos;
 import net.malisis.core.util.BlockState;
+import net.malisis.core.util.chunkcollision.ChunkCollision;
+import net.malisis.core.util.chunkcollision.ICachedCollidable;
 import net.malisis.core.util.chunkcollision.IChunkCollidable;
 import net.malisis.core.util.chunklistener.ChunkListener;
 import net.malisis.core.util.chunklistener.IBlockListener;
+import net.malisis.core.util.profiler.HookProfiler;
+import net.malisis.core.util.profiler.HookProfiler.Hook;
 import net.minecraft.block.Block;
 import net.minecraft.client.Minecraft;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.AxisAlignedBB;
+import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.ChunkWatchEvent;
 
+import com.google.common.collect.MapMaker;
+
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import cpw.mods.fml.relauncher.Side;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.procedure.TLongIntProcedure;
 import gnu.trove.procedure.TLongProcedure;
-import gnu.trove.set.hash.TLongHashSet;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
@@ -50,34 +64,127 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
 
     private static ChunkBlockHandler instance = new ChunkBlockHandler();
 
-    private Map<Chunk, TLongHashSet> serverChunks = new WeakHashMap();
-    private Map<Chunk, TLongHashSet> clientChunks = new WeakHashMap();
-    private List<IChunkBlockHandler> handlers = new ArrayList();
+    /** NBT key for the coordinates saved with {@link ChunkBlockCodec}. */
+    public static final String NBT_KEY = "chunkBlocks";
+    /** NBT key for the coordinates saved as raw longs by previous versions. */
+    public static final String LEGACY_NBT_KEY = "chunkNotifier";
+
+    /** Coordinates stored for each {@link Chunk}, per {@link World}. Both levels are weak and concurrent. */
+    private ConcurrentMap<World, ConcurrentMap<Chunk, ChunkBlockIndex>> worldChunks = new MapMaker().weakKeys()
+            .makeMap();
+    /** Changes not yet sent to the clients, for each {@link Chunk}, per server {@link World}. */
+    private ConcurrentMap<World, ConcurrentMap<Chunk, ChunkChanges>> worldChanges = new MapMaker().weakKeys()
+            .makeMap();
+    private List<IChunkBlockHandler> handlers = new CopyOnWriteArrayList<>();
+    /** Batch currently opened by each thread. */
+    private ThreadLocal<Batch> batches = new ThreadLocal<Batch>() {
+
+        @Override
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
 
     public ChunkBlockHandler() {
         handlers.add(new ChunkListener());
     }
 
-    private TLongHashSet getCoords(Chunk chunk) {
-        Map<Chunk, TLongHashSet> chunks = chunk.worldObj.isRemote ? clientChunks : serverChunks;
-        TLongHashSet coords = chunks.get(chunk);
-        if (coords == null) {
-            coords = new TLongHashSet();
-            chunks.put(chunk, coords);
+    /**
+     * Gets the {@link ChunkBlockIndex} for each {@link Chunk} of the {@link World}.
+     *
+     * @param world the world
+     * @return the chunks
+     */
+    private ConcurrentMap<Chunk, ChunkBlockIndex> getChunks(World world) {
+        ConcurrentMap<Chunk, ChunkBlockIndex> chunks = worldChunks.get(world);
+        if (chunks == null) {
+            chunks = new MapMaker().weakKeys().makeMap();
+            ConcurrentMap<Chunk, ChunkBlockIndex> previous = worldChunks.putIfAbsent(world, chunks);
+            if (previous != null) chunks = previous;
+        }
+        return chunks;
+    }
+
+    /**
+     * Gets the {@link ChunkBlockIndex} for the {@link Chunk}.
+     *
+     * @param chunk  the chunk
+     * @param create whether to create the index if the chunk has none yet
+     * @return the coords, null if none and <i>create</i> is false
+     */
+    private ChunkBlockIndex getCoords(Chunk chunk, boolean create) {
+        ConcurrentMap<Chunk, ChunkBlockIndex> chunks = getChunks(chunk.worldObj);
+        ChunkBlockIndex coords = chunks.get(chunk);
+        if (coords == null && create) {
+            coords = new ChunkBlockIndex();
+            ChunkBlockIndex previous = chunks.putIfAbsent(chunk, coords);
+            if (previous != null) coords = previous;
         }
         return coords;
     }
 
+    private ChunkBlockIndex getCoords(Chunk chunk) {
+        return getCoords(chunk, true);
+    }
+
     /**
-     * Call a {@link ChunkProcedure} this specified {@link Chunk}.
+     * Gets the {@link ChunkChanges} pending for the {@link Chunk}.
+     *
+     * @param chunk the chunk
+     * @return the changes
+     */
+    private ChunkChanges getChanges(Chunk chunk) {
+        ConcurrentMap<Chunk, ChunkChanges> changes = worldChanges.get(chunk.worldObj);
+        if (changes == null) {
+            changes = new MapMaker().weakKeys().makeMap();
+            ConcurrentMap<Chunk, ChunkChanges> previous = worldChanges.putIfAbsent(chunk.worldObj, changes);
+            if (previous != null) changes = previous;
+        }
+
+        ChunkChanges chunkChanges = changes.get(chunk);
+        if (chunkChanges == null) {
+            chunkChanges = new ChunkChanges();
+            ChunkChanges previous = changes.putIfAbsent(chunk, chunkChanges);
+            if (previous != null) chunkChanges = previous;
+        }
+        return chunkChanges;
+    }
+
+    /**
+     * Call a {@link ChunkProcedure} this specified {@link Chunk}.<br>
+     * Only the coordinates which range reach the query of the procedure are processed.
      *
      * @param chunk     the chunk
      * @param procedure the procedure
      */
     public void callProcedure(Chunk chunk, ChunkProcedure procedure) {
-        procedure.set(chunk);
-        TLongHashSet coords = getCoords(chunk);
-        if (coords != null) coords.forEach(procedure);
+        ChunkBlockIndex coords = getCoords(chunk, false);
+        if (coords == null || coords.isEmpty()) return;
+
+        procedure.set(chunk, coords);
+        coords.forEach(procedure, procedure.queryMinY(), procedure.queryMaxY());
+    }
+
+    /**
+     * Call a {@link ChunkProcedure} for every loaded {@link Chunk} intersecting the query of the procedure.<br>
+     * Chunks are visited in place, without building an intermediate list. Does nothing if the procedure has no query.
+     *
+     * @param world     the world
+     * @param procedure the procedure
+     */
+    public void callProcedure(World world, ChunkProcedure procedure) {
+        if (!procedure.hasQuery || world.getChunkProvider() == null) return;
+
+        int minCX = (int) Math.floor(procedure.minX) >> 4;
+        int maxCX = (int) Math.ceil(procedure.maxX) >> 4;
+        int minCZ = (int) Math.floor(procedure.minZ) >> 4;
+        int maxCZ = (int) Math.ceil(procedure.maxZ) >> 4;
+        for (int cx = minCX; cx <= maxCX; cx++) {
+            for (int cz = minCZ; cz <= maxCZ; cz++) {
+                if (world.getChunkProvider().chunkExists(cx, cz))
+                    callProcedure(world.getChunkFromChunkCoords(cx, cz), procedure);
+            }
+        }
     }
 
     public void addHandler(IChunkBlockHandler handler) {
@@ -99,6 +206,7 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
      * @return true, if block can be placed, false if canceled
      */
     public boolean updateCoordinates(Chunk chunk, int x, int y, int z, Block old, Block block) {
+        long start = HookProfiler.start();
         boolean canceled = false;
         BlockPos pos = new BlockPos(x, y, z);
         for (IChunkBlockHandler handler : handlers) canceled |= handler.updateCoordinates(chunk, pos, old, block);
@@ -106,17 +214,86 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
         // *this* handler needs to be canceled, so it's called last
         if (!canceled) updateCoordinates(chunk, pos, old, block);
 
+        HookProfiler.end(chunk.worldObj, Hook.SETBLOCK, start, 0);
         return !canceled;
     }
 
     @Override
     public boolean updateCoordinates(Chunk chunk, BlockPos pos, Block old, Block block) {
+        if (old instanceof ICachedCollidable)
+            ChunkCollision.get().invalidateBoundingBoxes(chunk.worldObj, pos.toLong());
+
+        Batch batch = batches.get();
+        if (batch.world == chunk.worldObj) {
+            if (old instanceof IChunkBlock) batch.change(pos, ((IChunkBlock) old).blockRange(), false);
+            if (block instanceof IChunkBlock) batch.change(pos, ((IChunkBlock) block).blockRange(), true);
+            return true;
+        }
+
         if (old instanceof IChunkBlock) removeCoord(chunk.worldObj, pos, ((IChunkBlock) old).blockRange());
         if (block instanceof IChunkBlock) addCoord(chunk.worldObj, pos, ((IChunkBlock) block).blockRange());
 
         return true;
     }
 
+    /**
+     * Starts a batch of block changes for the {@link World} on the current thread.<br>
+     * Until the matching {@link #endBatch(World)}, the coordinates of the {@link IChunkBlock} set or removed in that
+     * world are grouped by affected {@link Chunk} and coalesced, then applied once per chunk when the batch ends. The
+     * {@link IChunkBlockHandler} chain is still called for each block, as listeners can cancel individual changes.<br>
+     * Batches can be nested for the same world. Starting a batch for another world while one is opened has no effect.
+     *
+     * @param world the world
+     */
+    public void startBatch(World world) {
+        Batch batch = batches.get();
+        if (batch.world == null) batch.world = world;
+        if (batch.world == world) batch.depth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #startBatch(World)}, and applies the changes when the outermost batch ends.<br>
+     * Should be called in a <code>finally</code> block.
+     *
+     * @param world the world
+     */
+    public void endBatch(World world) {
+        Batch batch = batches.get();
+        if (batch.world != world || --batch.depth > 0) return;
+
+        TLongObjectIterator<ChunkChanges> it = batch.changes.iterator();
+        while (it.hasNext()) {
+            it.advance();
+            applyChanges(world, (int) it.key(), (int) (it.key() >> 32), it.value());
+        }
+        batch.world = null;
+        batch.changes.clear();
+    }
+
+    /**
+     * Applies the changes accumulated by a batch to a {@link Chunk}.
+     *
+     * @param world   the world
+     * @param chunkX  the chunk x
+     * @param chunkZ  the chunk z
+     * @param changes the changes
+     */
+    private void applyChanges(World world, int chunkX, int chunkZ, ChunkChanges changes) {
+        if (world.getChunkProvider() == null || !world.getChunkProvider().chunkExists(chunkX, chunkZ)) return;
+
+        Chunk chunk = world.getChunkFromChunkCoords(chunkX, chunkZ);
+        ChunkBlockIndex coords = getCoords(chunk);
+        ChunkChanges sync = world.isRemote ? null : getChanges(chunk);
+        for (long coord : changes.removed.toArray()) {
+            if (coords.remove(coord) && sync != null) sync.remove(coord);
+        }
+        for (long coord : changes.added.toArray()) {
+            int range = changes.added.getRange(coord);
+            coords.add(coord, range);
+            if (sync != null) sync.add(coord, range);
+        }
+    }
+
     /**
      * Adds coordinate for the {@link Chunk}s around {@link BlockPos}.
      *
@@ -126,7 +303,7 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
      */
     private void addCoord(World world, BlockPos pos, int size) {
         List<Chunk> affectedChunks = getAffectedChunks(world, pos.getX(), pos.getZ(), size);
-        for (Chunk chunk : affectedChunks) addCoord(chunk, pos);
+        for (Chunk chunk : affectedChunks) addCoord(chunk, pos, size);
     }
 
     /**
@@ -134,10 +311,12 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
      *
      * @param chunk the chunk
      * @param pos   the pos
+     * @param size  the size
      */
-    private void addCoord(Chunk chunk, BlockPos pos) {
+    private void addCoord(Chunk chunk, BlockPos pos, int size) {
         // MalisisCore.message("Added " + pos + " to " + chunk.xPosition + ", " + chunk.zPosition);
-        getCoords(chunk).add(pos.toLong());
+        getCoords(chunk).add(pos.toLong(), size);
+        if (!chunk.worldObj.isRemote) getChanges(chunk).add(pos.toLong(), size);
     }
 
     /**
@@ -159,81 +338,105 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
      * @param pos   the pos
      */
     private void removeCoord(Chunk chunk, BlockPos pos) {
-        if (!getCoords(chunk).remove(pos.toLong()))
+        ChunkBlockIndex coords = getCoords(chunk, false);
+        boolean removed = coords != null && coords.remove(pos.toLong());
+        // the client may have already received the removal from the server
+        if (!removed && !chunk.worldObj.isRemote)
             MalisisCore.log.error("Failed to remove : {} ({})", pos, pos.toLong());
         // else
         // MalisisCore.message("Removed " + pos + " from " + chunk.xPosition + ", " + chunk.zPosition);
+
+        if (removed && !chunk.worldObj.isRemote) getChanges(chunk).remove(pos.toLong());
     }
 
     // #end updateCoordinates
 
     // #region Events
     /**
-     * On data load.
+     * On data load.<br>
+     * Reads the compact {@value #NBT_KEY} format, or the legacy {@value #LEGACY_NBT_KEY} raw long array.
      *
      * @param event the event
      */
     @SubscribeEvent
     public void onDataLoad(ChunkDataEvent.Load event) {
         NBTTagCompound nbt = event.getData();
-        if (!nbt.hasKey("chunkNotifier")) return;
-
-        long[] coords = readLongArray(nbt);
-        Map<Chunk, TLongHashSet> chunks = event.getChunk().worldObj.isRemote ? clientChunks : serverChunks;
-        chunks.put(event.getChunk(), new TLongHashSet(coords));
+        Chunk chunk = event.getChunk();
+        ChunkBlockIndex coords;
+        if (nbt.hasKey(NBT_KEY)) {
+            coords = new ChunkBlockIndex();
+            ByteBuf bytes = Unpooled.wrappedBuffer(nbt.getByteArray(NBT_KEY));
+            if (!ChunkBlockCodec.read(bytes, chunk.xPosition, chunk.zPosition, coords)) return;
+        } else if (nbt.hasKey(LEGACY_NBT_KEY)) {
+            ByteBuf bytes = Unpooled.wrappedBuffer(nbt.getByteArray(LEGACY_NBT_KEY));
+            coords = new ChunkBlockIndex(ChunkBlockCodec.readLegacy(bytes));
+        } else return;
+
+        getChunks(chunk.worldObj).put(chunk, coords);
     }
 
     @SubscribeEvent
     public void onDataSave(ChunkDataEvent.Save event) {
-        TLongHashSet coords = getCoords(event.getChunk());
+        Chunk chunk = event.getChunk();
+        ChunkBlockIndex coords = getCoords(chunk, false);
         if (coords == null || coords.size() == 0) return;
 
-        NBTTagCompound nbt = event.getData();
-        writeLongArray(nbt, coords.toArray());
+        ByteBuf bytes = Unpooled.buffer(coords.size() * 4 + 8);
+        ChunkBlockCodec.write(bytes, chunk.xPosition, chunk.zPosition, coords);
+        byte[] data = new byte[bytes.readableBytes()];
+        bytes.readBytes(data);
+        event.getData().setByteArray(NBT_KEY, data);
     }
 
     /**
-     * Read long array from {@link NBTTagCompound}.<br>
-     * From IvNBTHelper.readNBTLongs()
+     * Discards the cached bounding boxes for the coordinates stored in the unloaded {@link Chunk}.
      *
-     * @param compound the compound
-     * @return the long[]
-     * @author Ivorius
+     * @param event the event
      */
-    private long[] readLongArray(NBTTagCompound compound) {
-        ByteBuf bytes = Unpooled.copiedBuffer(compound.getByteArray("chunkNotifier"));
-        long[] longs = new long[bytes.capacity() / 8];
-        for (int i = 0; i < longs.length; i++) longs[i] = bytes.readLong();
-        return longs;
-    }
+    @SubscribeEvent
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        ChunkBlockIndex coords = getCoords(event.getChunk(), false);
+        if (coords == null || coords.isEmpty()) return;
 
-    /**
-     * Write long array into {@link NBTTagCompound}.<br>
-     * From IvNBTHelper.writeNBTLongs()
-     *
-     * @param compound the compound
-     * @param longs    the longs
-     * @author Ivorius
-     */
-    private void writeLongArray(NBTTagCompound compound, long[] longs) {
-        ByteBuf bytes = Unpooled.buffer(longs.length * 8);
-        for (long aLong : longs) bytes.writeLong(aLong);
-        compound.setByteArray("chunkNotifier", bytes.array());
+        for (long coord : coords.toArray()) ChunkCollision.get().invalidateBoundingBoxes(event.world, coord);
     }
 
     /**
      * Server only.<br>
-     * Sends the chunks coordinates to the client when they get watched by them.
+     * Sends the full chunks coordinates to the client when they get watched by them.
      *
      * @param event the event
      */
     @SubscribeEvent
     public void onChunkWatched(ChunkWatchEvent.Watch event) {
         Chunk chunk = event.player.worldObj.getChunkFromChunkCoords(event.chunk.chunkXPos, event.chunk.chunkZPos);
-        TLongHashSet coords = getCoords(chunk);
+        ChunkBlockIndex coords = getCoords(chunk, false);
         if (coords == null || coords.size() == 0) return;
 
-        ChunkBlockMessage.sendCoords(chunk, coords.toArray(), event.player);
+        ChunkBlockMessage.sendCoords(chunk, coords, event.player);
+    }
+
+    /**
+     * Server only.<br>
+     * Sends the changes accumulated during the tick to the players watching each modified {@link Chunk}.
+     *
+     * @param event the event
+     */
+    @SubscribeEvent
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.side != Side.SERVER) return;
+
+        ConcurrentMap<Chunk, ChunkChanges> changes = worldChanges.get(event.world);
+        if (changes == null || changes.isEmpty()) return;
+
+        Iterator<Entry<Chunk, ChunkChanges>> it = changes.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<Chunk, ChunkChanges> entry = it.next();
+            it.remove();
+            ChunkChanges chunkChanges = entry.getValue();
+            if (!chunkChanges.isEmpty())
+                ChunkBlockMessage.sendChanges(entry.getKey(), chunkChanges.added, chunkChanges.removed);
+        }
     }
 
     /**
@@ -244,10 +447,29 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
      * @param chunkZ the chunk z
      * @param coords the coords
      */
-    public void setCoords(int chunkX, int chunkZ, long[] coords) {
+    public void setCoords(int chunkX, int chunkZ, ChunkBlockIndex coords) {
         Chunk chunk = Minecraft.getMinecraft().theWorld.getChunkFromChunkCoords(chunkX, chunkZ);
-        Map<Chunk, TLongHashSet> chunks = chunk.worldObj.isRemote ? clientChunks : serverChunks;
-        chunks.put(chunk, new TLongHashSet(coords));
+        if (chunk.isEmpty()) return;
+
+        getChunks(chunk.worldObj).put(chunk, coords);
+    }
+
+    /**
+     * Client only.<br>
+     * Applies the changes for a chunk received by {@link ChunkBlockMessage}.
+     *
+     * @param chunkX  the chunk x
+     * @param chunkZ  the chunk z
+     * @param added   the added coordinates
+     * @param removed the removed coordinates
+     */
+    public void updateCoords(int chunkX, int chunkZ, ChunkBlockIndex added, ChunkBlockIndex removed) {
+        Chunk chunk = Minecraft.getMinecraft().theWorld.getChunkFromChunkCoords(chunkX, chunkZ);
+        if (chunk.isEmpty()) return;
+
+        ChunkBlockIndex coords = getCoords(chunk);
+        for (long coord : removed.toArray()) coords.remove(coord);
+        for (long coord : added.toArray()) coords.add(coord, added.getRange(coord));
     }
 
     // #end Events
@@ -291,15 +513,188 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
         return instance;
     }
 
-    public abstract static class ChunkProcedure implements TLongProcedure {
+    /**
+     * Coordinates added and removed in a {@link Chunk} since the last synchronization with the clients.<br>
+     * Successive changes to the same coordinate are coalesced, removals being sent before additions.
+     */
+    private static class ChunkChanges {
+
+        private ChunkBlockIndex added = new ChunkBlockIndex();
+        private ChunkBlockIndex removed = new ChunkBlockIndex();
+
+        private synchronized void add(long coord, int range) {
+            removed.remove(coord);
+            added.add(coord, range);
+        }
+
+        private synchronized void remove(long coord) {
+            added.remove(coord);
+            removed.add(coord, ChunkBlockIndex.UNKNOWN_RANGE);
+        }
+
+        private synchronized boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * Block changes of a {@link World} accumulated between {@link ChunkBlockHandler#startBatch(World)} and
+     * {@link ChunkBlockHandler#endBatch(World)}, grouped by affected chunk.
+     */
+    private static class Batch {
+
+        private World world;
+        private int depth = 0;
+        private TLongObjectHashMap<ChunkChanges> changes = new TLongObjectHashMap<>();
+
+        /**
+         * Records the coordinate as added or removed for each chunk within range.
+         *
+         * @param pos   the pos
+         * @param range the range
+         * @param add   true if added, false if removed
+         */
+        private void change(BlockPos pos, int range, boolean add) {
+            long coord = pos.toLong();
+            // same chunks as getAffectedChunks(world, x, z, range)
+            for (int cx = (pos.getX() - range) >> 4; cx <= (pos.getX() + range + 1) >> 4; cx++) {
+                for (int cz = (pos.getZ() - range) >> 4; cz <= (pos.getZ() + range + 1) >> 4; cz++) {
+                    long key = ChunkCoordIntPair.chunkXZ2Int(cx, cz);
+                    ChunkChanges chunkChanges = changes.get(key);
+                    if (chunkChanges == null) {
+                        chunkChanges = new ChunkChanges();
+                        changes.put(key, chunkChanges);
+                    }
+                    if (add) chunkChanges.add(coord, range);
+                    else chunkChanges.remove(coord);
+                }
+            }
+        }
+    }
+
+    /**
+     * Base procedure called for the coordinates stored in a {@link Chunk}.<br>
+     * A query volume can be set with {@link #setQuery(AxisAlignedBB...)}, in which case the coordinates which range
+     * does not reach that volume are skipped without building their {@link BlockState}.
+     */
+    public abstract static class ChunkProcedure implements TLongProcedure, TLongIntProcedure {
 
         protected World world;
         protected Chunk chunk;
+        protected ChunkBlockIndex index;
         protected BlockState state;
+        protected boolean inUse = false;
+
+        private boolean hasQuery = false;
+        private double minX, minY, minZ, maxX, maxY, maxZ;
+        private int visited = 0;
 
-        protected void set(Chunk chunk) {
+        protected void set(Chunk chunk, ChunkBlockIndex index) {
             this.world = chunk.worldObj;
             this.chunk = chunk;
+            this.index = index;
+        }
+
+        /**
+         * Sets the volume queried by this {@link ChunkProcedure}.<br>
+         * Only the coordinates which range reach the volume will be processed.
+         *
+         * @param minX the min x
+         * @param minY the min y
+         * @param minZ the min z
+         * @param maxX the max x
+         * @param maxY the max y
+         * @param maxZ the max z
+         */
+        public void setQuery(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            this.minX = Math.min(minX, maxX);
+            this.minY = Math.min(minY, maxY);
+            this.minZ = Math.min(minZ, maxZ);
+            this.maxX = Math.max(minX, maxX);
+            this.maxY = Math.max(minY, maxY);
+            this.maxZ = Math.max(minZ, maxZ);
+            hasQuery = true;
+        }
+
+        /**
+         * Sets the volume queried by this {@link ChunkProcedure}.<br>
+         * Only the coordinates which range reach the union of the {@link AxisAlignedBB} will be processed.
+         *
+         * @param aabbs the aabbs
+         */
+        public void setQuery(AxisAlignedBB... aabbs) {
+            hasQuery = false;
+            if (aabbs == null) return;
+
+            minX = minY = minZ = Double.POSITIVE_INFINITY;
+            maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+            for (AxisAlignedBB aabb : aabbs) {
+                if (aabb == null) continue;
+                minX = Math.min(minX, Math.min(aabb.minX, aabb.maxX));
+                minY = Math.min(minY, Math.min(aabb.minY, aabb.maxY));
+                minZ = Math.min(minZ, Math.min(aabb.minZ, aabb.maxZ));
+                maxX = Math.max(maxX, Math.max(aabb.minX, aabb.maxX));
+                maxY = Math.max(maxY, Math.max(aabb.minY, aabb.maxY));
+                maxZ = Math.max(maxZ, Math.max(aabb.minZ, aabb.maxZ));
+                hasQuery = true;
+            }
+        }
+
+        /**
+         * Checks whether this {@link ChunkProcedure} is currently running.<br>
+         * Reused procedure instances must not be used again while running, in case of reentrant calls.
+         *
+         * @return true, if in use
+         */
+        public boolean isInUse() {
+            return inUse;
+        }
+
+        /**
+         * Gets the number of candidate coordinates visited by this {@link ChunkProcedure} since last cleaned.<br>
+         * Only counted when the {@link HookProfiler} is enabled.
+         *
+         * @return the visited count
+         */
+        public int getVisited() {
+            return visited;
+        }
+
+        protected int queryMinY() {
+            return hasQuery ? (int) Math.floor(minY) : Integer.MIN_VALUE;
+        }
+
+        protected int queryMaxY() {
+            return hasQuery ? (int) Math.ceil(maxY) : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Checks whether the block at the coordinate, extended by its range and the {@link ChunkBlockIndex#RANGE_MARGIN},
+         * intersects the query of this {@link ChunkProcedure}.
+         *
+         * @param coord the coord
+         * @param range the range
+         * @return true, if in query
+         */
+        protected boolean isInQuery(long coord, int range) {
+            if (!hasQuery || range < 0) return true;
+
+            range += ChunkBlockIndex.RANGE_MARGIN;
+            int x = BlockPos.getX(coord);
+            int y = BlockPos.getY(coord);
+            int z = BlockPos.getZ(coord);
+            return x - range <= maxX && x + 1 + range >= minX
+                    && y - range <= maxY
+                    && y + 1 + range >= minY
+                    && z - range <= maxZ
+                    && z + 1 + range >= minZ;
+        }
+
+        @Override
+        public boolean execute(long coord, int range) {
+            if (HookProfiler.enabled) visited++;
+            if (!isInQuery(coord, range)) return true;
+            return execute(coord);
         }
 
         /**
@@ -324,13 +719,20 @@ public class ChunkBlockHandler implements IChunkBlockHandler {
                 return false;
             }
 
+            // resolve the range for coordinates loaded without it
+            if (index != null) index.setRange(coord, ((IChunkBlock) state.getBlock()).blockRange());
+
             return true;
         }
 
         protected void clean() {
             world = null;
             chunk = null;
+            index = null;
             state = null;
+            hasQuery = false;
+            inUse = false;
+            visited = 0;
         }
     }
 }
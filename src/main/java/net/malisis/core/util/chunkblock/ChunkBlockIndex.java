@@ -0,0 +1,247 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkblock;
+
+import java.util.Arrays;
+
+import net.malisis.core.util.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.procedure.TLongIntProcedure;
+import gnu.trove.procedure.TLongProcedure;
+
+/**
+ * Spatial index of the {@link IChunkBlock} coordinates stored for a {@link Chunk}.<br>
+ * Coordinates are bucketed by 16 blocks high sections, and each coordinate keeps the {@link IChunkBlock#blockRange()}
+ * it was registered with, so that queries only visit the coordinates whose range can reach the queried volume.<br>
+ * Coordinates with an unknown range (loaded from disk or received from the server) are always visited until their range
+ * is resolved with {@link #setRange(long, int)}.<br>
+ * All the methods are thread safe.
+ *
+ * @author Ordinastie
+ *
+ */
+public class ChunkBlockIndex {
+
+    /** Range used for coordinates which block range is not known yet. */
+    public static final int UNKNOWN_RANGE = -1;
+    /** Extra distance added to the ranges when culling, for bounding boxes slightly exceeding their block range. */
+    public static final int RANGE_MARGIN = 1;
+    /** Number of sections in a chunk. */
+    private static final int SECTIONS = 16;
+
+    /** Coordinates and their range, per section. */
+    private TLongIntHashMap[] sections = new TLongIntHashMap[SECTIONS];
+    /** Highest range registered for each section. */
+    private int[] sectionRanges = new int[SECTIONS];
+    /** Number of coordinates stored. */
+    private int size = 0;
+
+    public ChunkBlockIndex() {}
+
+    public ChunkBlockIndex(long[] coords) {
+        for (long coord : coords) add(coord, UNKNOWN_RANGE);
+    }
+
+    /**
+     * Gets the section index for the coordinate.
+     *
+     * @param coord the coord
+     * @return the section
+     */
+    private static int section(long coord) {
+        return Math.min(SECTIONS - 1, Math.max(0, BlockPos.getY(coord) >> 4));
+    }
+
+    /**
+     * Adds a coordinate to this {@link ChunkBlockIndex}.
+     *
+     * @param coord the coord
+     * @param range the block range, or {@link #UNKNOWN_RANGE}
+     */
+    public synchronized void add(long coord, int range) {
+        int s = section(coord);
+        if (sections[s] == null) sections[s] = new TLongIntHashMap();
+        if (!sections[s].containsKey(coord)) size++;
+        sections[s].put(coord, range);
+        updateSectionRange(s, range);
+    }
+
+    /**
+     * Sets the range for a coordinate already stored in this {@link ChunkBlockIndex}.
+     *
+     * @param coord the coord
+     * @param range the range
+     */
+    public synchronized void setRange(long coord, int range) {
+        int s = section(coord);
+        if (sections[s] == null || !sections[s].containsKey(coord) || sections[s].get(coord) == range) return;
+        sections[s].put(coord, range);
+        updateSectionRange(s, range);
+    }
+
+    private void updateSectionRange(int section, int range) {
+        // an unknown range can reach any section
+        if (range < 0) range = SECTIONS * 16;
+        sectionRanges[section] = Math.max(sectionRanges[section], range + RANGE_MARGIN);
+    }
+
+    /**
+     * Gets the range stored for a coordinate.
+     *
+     * @param coord the coord
+     * @return the range, or {@link #UNKNOWN_RANGE} if unknown or not stored
+     */
+    public synchronized int getRange(long coord) {
+        int s = section(coord);
+        if (sections[s] == null || !sections[s].containsKey(coord)) return UNKNOWN_RANGE;
+        return sections[s].get(coord);
+    }
+
+    /**
+     * Removes a coordinate from this {@link ChunkBlockIndex}.
+     *
+     * @param coord the coord
+     * @return true, if the coordinate was stored
+     */
+    public synchronized boolean remove(long coord) {
+        int s = section(coord);
+        if (sections[s] == null || !sections[s].containsKey(coord)) return false;
+
+        sections[s].remove(coord);
+        size--;
+        if (sections[s].isEmpty()) {
+            sections[s] = null;
+            sectionRanges[s] = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the coordinate is stored in this {@link ChunkBlockIndex}.
+     *
+     * @param coord the coord
+     * @return true, if stored
+     */
+    public synchronized boolean contains(long coord) {
+        int s = section(coord);
+        return sections[s] != null && sections[s].containsKey(coord);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets all the coordinates stored in this {@link ChunkBlockIndex}.
+     *
+     * @return the coordinates
+     */
+    public synchronized long[] toArray() {
+        long[] coords = new long[size];
+        int i = 0;
+        for (TLongIntHashMap map : sections) {
+            if (map == null) continue;
+            for (long coord : map.keys()) coords[i++] = coord;
+        }
+        return coords;
+    }
+
+    /**
+     * Executes the {@link TLongProcedure} for every coordinate stored.
+     *
+     * @param procedure the procedure
+     * @return false if the procedure stopped the iteration
+     */
+    public boolean forEach(final TLongProcedure procedure) {
+        return forEach(new TLongIntProcedure() {
+
+            @Override
+            public boolean execute(long coord, int range) {
+                return procedure.execute(coord);
+            }
+        }, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Executes the {@link TLongIntProcedure} for every coordinate which section, extended by the highest range
+     * registered for it and the {@link #RANGE_MARGIN}, intersects the vertical span between <i>minY</i> and <i>maxY</i>.<br>
+     * The procedure receives the coordinate and its range, and is responsible for the finer checks.<br>
+     * The candidates are copied under lock into a buffer owned by the calling thread, and the procedure is executed
+     * outside of the lock, so it can freely modify this {@link ChunkBlockIndex} or others, and reentrant calls are
+     * supported.
+     *
+     * @param procedure the procedure
+     * @param minY      the min y
+     * @param maxY      the max y
+     * @return false if the procedure stopped the iteration
+     */
+    public boolean forEach(TLongIntProcedure procedure, int minY, int maxY) {
+        Snapshot snapshot = snapshots.get();
+        int start = snapshot.size;
+        synchronized (this) {
+            for (int s = 0; s < SECTIONS; s++) {
+                TLongIntHashMap map = sections[s];
+                if (map == null) continue;
+                if ((s << 4) - sectionRanges[s] > maxY || (s << 4) + 15 + sectionRanges[s] < minY) continue;
+                map.forEachEntry(snapshot);
+            }
+        }
+
+        int end = snapshot.size;
+        try {
+            // reentrant calls may grow the buffers, so they are read on each iteration
+            for (int i = start; i < end; i++)
+                if (!procedure.execute(snapshot.coords[i], snapshot.ranges[i])) return false;
+            return true;
+        } finally {
+            snapshot.size = start;
+        }
+    }
+
+    /** Candidate buffers for each thread iterating over {@link ChunkBlockIndex}. */
+    private static ThreadLocal<Snapshot> snapshots = new ThreadLocal<Snapshot>() {
+
+        @Override
+        protected Snapshot initialValue() {
+            return new Snapshot();
+        }
+    };
+
+    /**
+     * Growable buffer of coordinates and ranges, used as a stack by nested iterations.
+     */
+    private static class Snapshot implements TLongIntProcedure {
+
+        private long[] coords = new long[64];
+        private int[] ranges = new int[64];
+        private int size = 0;
+
+        @Override
+        public boolean execute(long coord, int range) {
+            if (size == coords.length) {
+                coords = Arrays.copyOf(coords, size * 2);
+                ranges = Arrays.copyOf(ranges, size * 2);
+            }
+            coords[size] = coord;
+            ranges[size++] = range;
+            return true;
+        }
+    }
+}
@@ -23,8 +23,13 @@ import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import cpw.mods.fml.relauncher.Side;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 /**
+ * Synchronizes the {@link IChunkBlock} coordinates of a {@link Chunk} to the clients.<br>
+ * The full coordinates are sent when a player starts watching a chunk, then only the coordinates added and removed
+ * during each tick are sent to the players watching it.
+ *
  * @author Ordinastie
  *
  */
@@ -39,42 +44,77 @@ public class ChunkBlockMessage implements IMessageHandler<ChunkBlockMessage.Pack
     public IMessage onMessage(Packet message, MessageContext ctx) {
         if (ctx.side != Side.CLIENT) return null;
 
-        ChunkBlockHandler.get().setCoords(message.x, message.z, message.coords);
+        if (message.full) ChunkBlockHandler.get().setCoords(message.x, message.z, message.added);
+        else ChunkBlockHandler.get().updateCoords(message.x, message.z, message.added, message.removed);
         return null;
     }
 
-    public static void sendCoords(Chunk chunk, long[] coords, EntityPlayerMP player) {
-        MalisisCore.network.sendTo(new Packet(chunk, coords), player);
+    /**
+     * Sends all the coordinates of the {@link Chunk} to the player.<br>
+     * Large chunks are compressed through the {@link net.malisis.core.network.BulkTransport BulkTransport}.
+     *
+     * @param chunk  the chunk
+     * @param coords the coords
+     * @param player the player
+     */
+    public static void sendCoords(Chunk chunk, ChunkBlockIndex coords, EntityPlayerMP player) {
+        MalisisCore.network.sendBulkTo(new Packet(chunk, coords, null), player);
+    }
+
+    /**
+     * Sends the coordinates added and removed in the {@link Chunk} to the players watching it.
+     *
+     * @param chunk   the chunk
+     * @param added   the added
+     * @param removed the removed
+     */
+    public static void sendChanges(Chunk chunk, ChunkBlockIndex added, ChunkBlockIndex removed) {
+        MalisisCore.network.sendToPlayersWatchingChunk(new Packet(chunk, added, removed), chunk);
     }
 
     public static class Packet implements IMessage {
 
         private int x;
         private int z;
-        private long[] coords;
+        private boolean full;
+        private ChunkBlockIndex added;
+        private ChunkBlockIndex removed;
+        /** Encoded once, whatever the number of players it is sent to. */
+        private byte[] data;
 
         public Packet() {}
 
-        public Packet(Chunk chunk, long[] coords) {
+        public Packet(Chunk chunk, ChunkBlockIndex added, ChunkBlockIndex removed) {
             this.x = chunk.xPosition;
             this.z = chunk.zPosition;
-            this.coords = coords;
+            this.full = removed == null;
+
+            ByteBuf buf = Unpooled.buffer();
+            ChunkBlockCodec.write(buf, x, z, added);
+            if (!full) ChunkBlockCodec.write(buf, x, z, removed);
+            data = new byte[buf.readableBytes()];
+            buf.readBytes(data);
         }
 
         @Override
         public void fromBytes(ByteBuf buf) {
             x = buf.readInt();
             z = buf.readInt();
-            coords = new long[buf.readInt()];
-            for (int i = 0; i < coords.length; i++) coords[i] = buf.readLong();
+            full = buf.readBoolean();
+            added = new ChunkBlockIndex();
+            ChunkBlockCodec.read(buf, x, z, added);
+            if (!full) {
+                removed = new ChunkBlockIndex();
+                ChunkBlockCodec.read(buf, x, z, removed);
+            }
         }
 
         @Override
         public void toBytes(ByteBuf buf) {
             buf.writeInt(x);
             buf.writeInt(z);
-            buf.writeInt(coords.length);
-            for (long c : coords) buf.writeLong(c);
+            buf.writeBoolean(full);
+            buf.writeBytes(data);
         }
     }
 }
@@ -23,6 +23,9 @@ public interface IChunkBlock {
     /**
      * Gets the block range.<br>
      * Defines the distance for which the block will store itself into chunk data.<br>
+     * The bounding boxes returned by the {@link IChunkBlockHandler}s for the block must stay within that distance of
+     * the block position, on all three axes : queries skip the coordinates which range can't reach the volume queried,
+     * with a margin of {@link ChunkBlockIndex#RANGE_MARGIN} blocks.
      *
      * @return the int
      */
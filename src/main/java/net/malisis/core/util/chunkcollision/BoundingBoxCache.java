@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkcollision;
+
+import java.lang.ref.WeakReference;
+
+import net.malisis.core.block.BoundingBoxType;
+import net.malisis.core.block.IBoundingBox;
+import net.malisis.core.util.AABBUtils;
+import net.malisis.core.util.BlockState;
+import net.malisis.core.util.profiler.HookProfiler;
+import net.malisis.core.util.profiler.HookProfiler.Hook;
+import net.malisis.core.util.chunkcollision.ICachedCollidable.Dependency;
+import net.minecraft.block.Block;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.AxisAlignedBB;
+import net.minecraft.world.World;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Cache for the offset bounding boxes of the {@link ICachedCollidable} of a {@link World}, keyed by their packed
+ * coordinates.<br>
+ * Entries are validated against the block and metadata passed on each lookup, so stale entries are never returned for
+ * a block that changed without going through {@link #invalidate(long)}. Entries for blocks with a
+ * {@link ICachedCollidable.Dependency#TILEENTITY} dependency are also validated against the {@link TileEntity} at the
+ * coordinates, other changes of the tile entity must be invalidated explicitly.<br>
+ * The returned arrays are shared and must not be modified.<br>
+ * This class is thread safe.
+ *
+ * @author Ordinastie
+ *
+ */
+public class BoundingBoxCache {
+
+    private TLongObjectHashMap<Entry> entries = new TLongObjectHashMap<>();
+
+    /**
+     * Gets the bounding boxes for the {@link BlockState}, offset by its coordinates.<br>
+     * Only {@link BoundingBoxType#CHUNKCOLLISION} and {@link BoundingBoxType#RAYTRACE} are cached, and only for
+     * {@link ICachedCollidable} blocks.
+     *
+     * @param world the world
+     * @param state the state
+     * @param type  the type
+     * @return the bounding boxes
+     */
+    public AxisAlignedBB[] get(World world, BlockState state, BoundingBoxType type) {
+        return get(world, state, type, null);
+    }
+
+    /**
+     * Gets the bounding boxes for the {@link BlockState}, offset by its coordinates.<br>
+     * The lookup is recorded for the {@link Hook} when the {@link HookProfiler} is enabled.
+     *
+     * @param world the world
+     * @param state the state
+     * @param type  the type
+     * @param hook  the hook doing the lookup, can be null
+     * @return the bounding boxes
+     */
+    public AxisAlignedBB[] get(World world, BlockState state, BoundingBoxType type, Hook hook) {
+        if (!(state.getBlock() instanceof ICachedCollidable)
+                || (type != BoundingBoxType.CHUNKCOLLISION && type != BoundingBoxType.RAYTRACE))
+            return compute(world, state, type);
+
+        Dependency dependency = ((ICachedCollidable) state.getBlock()).getBoundingBoxDependency();
+        if (dependency == null) return compute(world, state, type);
+
+        TileEntity te = dependency == Dependency.TILEENTITY
+                ? world.getTileEntity(state.getX(), state.getY(), state.getZ())
+                : null;
+        long coord = state.getPos().toLong();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(coord);
+            if (entry == null || !entry.isValid(state, te)) {
+                entry = new Entry(state.getBlock(), state.getMetadata(), te);
+                entries.put(coord, entry);
+            }
+        }
+
+        // boxes are computed outside of the lock, concurrent computations for the same entry are harmless
+        if (type == BoundingBoxType.CHUNKCOLLISION) {
+            AxisAlignedBB[] aabbs = entry.collision;
+            if (HookProfiler.enabled) HookProfiler.cacheLookup(world, hook, aabbs != null);
+            if (aabbs == null) entry.collision = aabbs = compute(world, state, type);
+            return aabbs;
+        } else {
+            AxisAlignedBB[] aabbs = entry.raytrace;
+            if (HookProfiler.enabled) HookProfiler.cacheLookup(world, hook, aabbs != null);
+            if (aabbs == null) entry.raytrace = aabbs = compute(world, state, type);
+            return aabbs;
+        }
+    }
+
+    private AxisAlignedBB[] compute(World world, BlockState state, BoundingBoxType type) {
+        if (type == BoundingBoxType.CHUNKCOLLISION) return AABBUtils.getCollisionBoundingBoxes(world, state, true);
+
+        AxisAlignedBB[] aabbs = null;
+        if (state.getBlock() instanceof IBoundingBox) aabbs = ((IBoundingBox) state.getBlock())
+                .getBoundingBox(world, state.getX(), state.getY(), state.getZ(), type);
+        if (aabbs == null) return new AxisAlignedBB[0];
+        return AABBUtils.offset(state.getX(), state.getY(), state.getZ(), aabbs);
+    }
+
+    /**
+     * Discards the cached bounding boxes at the coordinate.
+     *
+     * @param coord the coord
+     */
+    public synchronized void invalidate(long coord) {
+        entries.remove(coord);
+    }
+
+    /**
+     * Discards all the cached bounding boxes.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+
+        private Block block;
+        private int metadata;
+        private WeakReference<TileEntity> tileEntity;
+        private volatile AxisAlignedBB[] collision;
+        private volatile AxisAlignedBB[] raytrace;
+
+        public Entry(Block block, int metadata, TileEntity tileEntity) {
+            this.block = block;
+            this.metadata = metadata;
+            if (tileEntity != null) this.tileEntity = new WeakReference<>(tileEntity);
+        }
+
+        public boolean isValid(BlockState state, TileEntity te) {
+            if (block != state.getBlock() || metadata != state.getMetadata()) return false;
+            return (tileEntity != null ? tileEntity.get() : null) == te;
+        }
+    }
+}
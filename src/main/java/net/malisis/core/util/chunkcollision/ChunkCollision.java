@@ -14,6 +14,7 @@
 package net.malisis.core.util.chunkcollision;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 import net.malisis.core.block.BoundingBoxType;
 import net.malisis.core.util.AABBUtils;
@@ -23,6 +24,8 @@ import net.malisis.core.util.Point;
 import net.malisis.core.util.RaytraceBlock;
 import net.malisis.core.util.chunkblock.ChunkBlockHandler;
 import net.malisis.core.util.chunkblock.ChunkBlockHandler.ChunkProcedure;
+import net.malisis.core.util.profiler.HookProfiler;
+import net.malisis.core.util.profiler.HookProfiler.Hook;
 import net.minecraft.block.Block;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
@@ -32,7 +35,8 @@ import net.minecraft.util.MovingObjectPosition;
 import net.minecraft.util.MovingObjectPosition.MovingObjectType;
 import net.minecraft.util.Vec3;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.Chunk;
+
+import com.google.common.collect.MapMaker;
 
 /**
  * This class is the enty point for all the chunk collision related calculation.<br>
@@ -45,8 +49,82 @@ public class ChunkCollision {
 
     private static ChunkCollision instance = new ChunkCollision();
 
-    private Point src;
-    private Point dest;
+    /** Procedures reused by each thread calling the collision hooks. */
+    private static ThreadLocal<CollisionProcedure> collisionProcedure = new ThreadLocal<CollisionProcedure>() {
+
+        @Override
+        protected CollisionProcedure initialValue() {
+            return new CollisionProcedure();
+        }
+    };
+    private static ThreadLocal<RayTraceProcedure> rayTraceProcedure = new ThreadLocal<RayTraceProcedure>() {
+
+        @Override
+        protected RayTraceProcedure initialValue() {
+            return new RayTraceProcedure();
+        }
+    };
+    private static ThreadLocal<CheckCollisionProcedure> checkProcedure = new ThreadLocal<CheckCollisionProcedure>() {
+
+        @Override
+        protected CheckCollisionProcedure initialValue() {
+            return new CheckCollisionProcedure();
+        }
+    };
+
+    /** Ray trace infos set for each thread at the beginning of the ray tracing. */
+    private static ThreadLocal<RayTraceInfos> rayTraceInfos = new ThreadLocal<RayTraceInfos>() {
+
+        @Override
+        protected RayTraceInfos initialValue() {
+            return new RayTraceInfos();
+        }
+    };
+
+    private ConcurrentMap<World, BoundingBoxCache> boundingBoxCaches = new MapMaker().weakKeys().makeMap();
+
+    // #region BoundingBoxCache
+    /**
+     * Gets the {@link BoundingBoxCache} for the {@link World}.
+     *
+     * @param world the world
+     * @return the bounding box cache
+     */
+    public BoundingBoxCache getBoundingBoxCache(World world) {
+        BoundingBoxCache cache = boundingBoxCaches.get(world);
+        if (cache == null) {
+            cache = new BoundingBoxCache();
+            BoundingBoxCache previous = boundingBoxCaches.putIfAbsent(world, cache);
+            if (previous != null) cache = previous;
+        }
+        return cache;
+    }
+
+    /**
+     * Discards the cached bounding boxes at the coordinates.<br>
+     * Should be called by {@link ICachedCollidable} depending on their tile entity whenever their boxes change.
+     *
+     * @param world the world
+     * @param x     the x
+     * @param y     the y
+     * @param z     the z
+     */
+    public void invalidateBoundingBoxes(World world, int x, int y, int z) {
+        invalidateBoundingBoxes(world, BlockPos.toLong(x, y, z));
+    }
+
+    /**
+     * Discards the cached bounding boxes at the packed coordinate.
+     *
+     * @param world the world
+     * @param coord the coord
+     */
+    public void invalidateBoundingBoxes(World world, long coord) {
+        BoundingBoxCache cache = boundingBoxCaches.get(world);
+        if (cache != null) cache.invalidate(coord);
+    }
+
+    // #end BoundingBoxCache
 
     // #region getCollisionBoundinBoxes
     /**
@@ -59,10 +137,16 @@ public class ChunkCollision {
      * @param entity the entity
      */
     public void getCollisionBoundingBoxes(World world, AxisAlignedBB mask, List<AxisAlignedBB> list, Entity entity) {
-        CollisionProcedure procedure = new CollisionProcedure(mask, list);
+        if (mask == null) return;
+
+        long start = HookProfiler.start();
+        CollisionProcedure procedure = collisionProcedure.get();
+        if (procedure.isInUse()) procedure = new CollisionProcedure();
 
-        for (Chunk chunk : ChunkBlockHandler.getAffectedChunks(world, mask))
-            ChunkBlockHandler.get().callProcedure(chunk, procedure);
+        procedure.set(mask, list);
+        ChunkBlockHandler.get().callProcedure(world, procedure);
+        HookProfiler.end(world, Hook.COLLISION, start, procedure.getVisited());
+        procedure.clean();
     }
 
     // #end getCollisionBoundinBoxes
@@ -77,7 +161,10 @@ public class ChunkCollision {
      */
     public void setRayTraceInfos(Vec3 src, Vec3 dest) {
         if (src == null || dest == null) return;
-        setRayTraceInfos(new Point(src), new Point(dest));
+        RayTraceInfos infos = rayTraceInfos.get();
+        infos.src.set(src.xCoord, src.yCoord, src.zCoord);
+        infos.dest.set(dest.xCoord, dest.yCoord, dest.zCoord);
+        infos.set = true;
     }
 
     /**
@@ -87,8 +174,11 @@ public class ChunkCollision {
      * @param dest the dest
      */
     public void setRayTraceInfos(Point src, Point dest) {
-        this.src = src;
-        this.dest = dest;
+        if (src == null || dest == null) return;
+        RayTraceInfos infos = rayTraceInfos.get();
+        infos.src.set(src.x, src.y, src.z);
+        infos.dest.set(dest.x, dest.y, dest.z);
+        infos.set = true;
     }
 
     /**
@@ -100,16 +190,20 @@ public class ChunkCollision {
      * @return the ray trace result
      */
     public MovingObjectPosition getRayTraceResult(World world, MovingObjectPosition mop) {
-        if (src == null || dest == null) return mop;
+        RayTraceInfos infos = rayTraceInfos.get();
+        if (!infos.set) return mop;
 
-        AxisAlignedBB aabb = AxisAlignedBB.getBoundingBox(src.x, src.y, src.z, dest.x, dest.y, dest.z);
-        AABBUtils.fix(aabb);
+        long start = HookProfiler.start();
+        RayTraceProcedure procedure = rayTraceProcedure.get();
+        if (procedure.isInUse()) procedure = new RayTraceProcedure();
 
-        RayTraceProcedure procedure = new RayTraceProcedure(src, dest, mop);
-        for (Chunk chunk : ChunkBlockHandler.getAffectedChunks(world, aabb))
-            ChunkBlockHandler.get().callProcedure(chunk, procedure);
+        procedure.set(infos.src, infos.dest, mop);
+        ChunkBlockHandler.get().callProcedure(world, procedure);
+        mop = procedure.mop;
+        HookProfiler.end(world, Hook.RAYTRACE, start, procedure.getVisited());
+        procedure.clean();
 
-        return procedure.mop;
+        return mop;
     }
 
     /**
@@ -127,11 +221,17 @@ public class ChunkCollision {
         if (mop1.typeOfHit == MovingObjectType.MISS && mop2.typeOfHit != MovingObjectType.MISS) return mop2;
         if (mop1.typeOfHit != MovingObjectType.MISS && mop2.typeOfHit == MovingObjectType.MISS) return mop1;
 
-        if (Point.distanceSquared(src, new Point(mop1.hitVec)) > Point.distanceSquared(src, new Point(mop2.hitVec)))
-            return mop2;
+        if (distanceSquared(src, mop1.hitVec) > distanceSquared(src, mop2.hitVec)) return mop2;
         return mop1;
     }
 
+    private double distanceSquared(Point src, Vec3 v) {
+        double x = v.xCoord - src.x;
+        double y = v.yCoord - src.y;
+        double z = v.zCoord - src.z;
+        return x * x + y * y + z * z;
+    }
+
     // #end getRayTraceResult
 
     // #region canPlaceBlockAt
@@ -152,6 +252,7 @@ public class ChunkCollision {
      */
     public boolean canPlaceBlockAt(ItemStack itemStack, EntityPlayer player, World world, Block block, int x, int y,
             int z, int side) {
+        long start = HookProfiler.start();
         AxisAlignedBB[] aabbs;
         if (block instanceof IChunkCollidable)
             aabbs = ((IChunkCollidable) block).getPlacedBoundingBox(world, x, y, z, side, player, itemStack);
@@ -171,15 +272,23 @@ public class ChunkCollision {
                         aabb,
                         AABBUtils.getCollisionBoundingBoxes(world, new BlockState(world, pos), true));
 
-                if (b) return false;
+                if (b) {
+                    HookProfiler.end(world, Hook.PLACEMENT, start, 0);
+                    return false;
+                }
             }
         }
 
-        CheckCollisionProcedure procedure = new CheckCollisionProcedure(aabbs);
-        for (Chunk chunk : ChunkBlockHandler.getAffectedChunks(world, aabbs))
-            ChunkBlockHandler.get().callProcedure(chunk, procedure);
+        CheckCollisionProcedure procedure = checkProcedure.get();
+        if (procedure.isInUse()) procedure = new CheckCollisionProcedure();
 
-        return !procedure.collide;
+        procedure.set(aabbs);
+        ChunkBlockHandler.get().callProcedure(world, procedure);
+        boolean collide = procedure.collide;
+        HookProfiler.end(world, Hook.PLACEMENT, start, procedure.getVisited());
+        procedure.clean();
+
+        return !collide;
     }
 
     // #end canPlaceBlockAt
@@ -208,6 +317,16 @@ public class ChunkCollision {
         return instance;
     }
 
+    /**
+     * Source and destination of the ray trace currently processed by a thread.
+     */
+    private static class RayTraceInfos {
+
+        private Point src = new Point(0, 0, 0);
+        private Point dest = new Point(0, 0, 0);
+        private boolean set = false;
+    }
+
     /**
      * The procedure used to check the collision for a {@link IChunkCollidable} coordinate.<br>
      */
@@ -216,9 +335,11 @@ public class ChunkCollision {
         private AxisAlignedBB mask;
         private List<AxisAlignedBB> list;
 
-        public CollisionProcedure(AxisAlignedBB mask, List<AxisAlignedBB> list) {
+        public void set(AxisAlignedBB mask, List<AxisAlignedBB> list) {
             this.mask = mask;
             this.list = list;
+            setQuery(mask.minX, mask.minY, mask.minZ, mask.maxX, mask.maxY, mask.maxZ);
+            inUse = true;
         }
 
         @Override
@@ -226,16 +347,11 @@ public class ChunkCollision {
             if (!check(coord)) return true;
 
             if (state.getBlock() instanceof IChunkCollidable) {
-                AxisAlignedBB[] aabbs = ((IChunkCollidable) state.getBlock()).getBoundingBox(
-                        world,
-                        state.getX(),
-                        state.getY(),
-                        state.getZ(),
-                        BoundingBoxType.CHUNKCOLLISION);
+                AxisAlignedBB[] aabbs = get().getBoundingBoxCache(world)
+                        .get(world, state, BoundingBoxType.CHUNKCOLLISION, Hook.COLLISION);
                 for (AxisAlignedBB aabb : aabbs) {
-                    if (mask != null && aabb != null
-                            && mask.intersectsWith(aabb.offset(state.getX(), state.getY(), state.getZ())))
-                        list.add(aabb);
+                    // the cached boxes are shared, the list gets copies that can be modified
+                    if (mask != null && aabb != null && mask.intersectsWith(aabb)) list.add(aabb.copy());
                 }
             }
             return true;
@@ -258,10 +374,12 @@ public class ChunkCollision {
         private Point dest;
         private MovingObjectPosition mop;
 
-        public RayTraceProcedure(Point src, Point dest, MovingObjectPosition mop) {
+        public void set(Point src, Point dest, MovingObjectPosition mop) {
             this.src = src;
             this.dest = dest;
             this.mop = mop;
+            setQuery(src.x, src.y, src.z, dest.x, dest.y, dest.z);
+            inUse = true;
         }
 
         @Override
@@ -269,7 +387,12 @@ public class ChunkCollision {
             if (!check(coord)) return true;
 
             RaytraceBlock rt = new RaytraceBlock(world, src, dest, state.getX(), state.getY(), state.getZ());
-            mop = get().getClosest(src, rt.trace(), mop);
+            MovingObjectPosition result;
+            if (state.getBlock() instanceof ICachedCollidable)
+                result = rt.trace(get().getBoundingBoxCache(world)
+                        .get(world, state, BoundingBoxType.RAYTRACE, Hook.RAYTRACE));
+            else result = rt.trace();
+            mop = get().getClosest(src, result, mop);
 
             return true;
         }
@@ -292,16 +415,19 @@ public class ChunkCollision {
         private AxisAlignedBB[] aabbs;
         private boolean collide = false;
 
-        public CheckCollisionProcedure(AxisAlignedBB[] aabbs) {
+        public void set(AxisAlignedBB[] aabbs) {
             this.aabbs = aabbs;
+            this.collide = false;
+            setQuery(aabbs);
+            inUse = true;
         }
 
         @Override
         public boolean execute(long coord) {
             if (!check(coord)) return true;
 
-            AxisAlignedBB[] blockBounds = AABBUtils.getCollisionBoundingBoxes(world, state);
-            AABBUtils.offset(state.getX(), state.getY(), state.getZ(), blockBounds);
+            AxisAlignedBB[] blockBounds = get().getBoundingBoxCache(world)
+                    .get(world, state, BoundingBoxType.CHUNKCOLLISION, Hook.PLACEMENT);
 
             collide = AABBUtils.isColliding(aabbs, blockBounds);
             if (collide) return false;
@@ -0,0 +1,45 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkcollision;
+
+import net.minecraft.world.World;
+
+/**
+ * {@link ICachedCollidable} are {@link IChunkCollidable} whose bounding boxes can be cached by {@link ChunkCollision}
+ * between block changes.<br>
+ * Cached boxes are discarded when the block or its metadata change. Blocks whose boxes depend on their tile entity
+ * must call {@link ChunkCollision#invalidateBoundingBoxes(World, int, int, int)} whenever that state changes.
+ *
+ * @author Ordinastie
+ *
+ */
+public interface ICachedCollidable extends IChunkCollidable {
+
+    public enum Dependency {
+        /** Bounding boxes only depend on the block and its metadata. */
+        METADATA,
+        /**
+         * Bounding boxes depend on the tile entity. They are discarded when the tile entity is replaced, other changes
+         * must be invalidated by the tile entity.
+         */
+        TILEENTITY
+    }
+
+    /**
+     * Gets what the bounding boxes of this {@link ICachedCollidable} depend on.
+     *
+     * @return the dependency, or null to disable the cache for this block
+     */
+    public Dependency getBoundingBoxDependency();
+}
@@ -23,47 +23,84 @@ import net.minecraft.init.Blocks;
 import net.minecraft.world.chunk.Chunk;
 
 /**
+ * Notifies the {@link IBlockListener} when a block is set or removed within their range.<br>
+ * Only the listeners whose range can reach the changed block are visited.
+ *
  * @author Ordinastie
  *
  */
 public class ChunkListener implements IChunkBlockHandler {
 
+    /** Procedure reused by each thread setting blocks. */
+    private static ThreadLocal<BlockNotifierProcedure> notifierProcedure = new ThreadLocal<BlockNotifierProcedure>() {
+
+        @Override
+        protected BlockNotifierProcedure initialValue() {
+            return new BlockNotifierProcedure();
+        }
+    };
+
     @Override
     public boolean updateCoordinates(Chunk chunk, BlockPos pos, Block old, Block block) {
-        BlockNotifierProcedure procedure = new BlockNotifierProcedure(new BlockState(pos, block));
+        BlockNotifierProcedure procedure = notifierProcedure.get();
+        // listeners may set blocks themselves
+        if (procedure.isInUse()) procedure = new BlockNotifierProcedure();
 
+        procedure.set(pos, block);
         ChunkBlockHandler.get().callProcedure(chunk, procedure);
+        boolean canceled = procedure.isCanceled();
+        procedure.clean();
 
-        if (procedure.isCanceled()) return true;
-        return false;
+        return canceled;
     }
 
     private static class BlockNotifierProcedure extends ChunkProcedure {
 
         private boolean cancel = false;
+        private BlockPos pos;
+        private Block block;
         private BlockState newState;
 
-        public BlockNotifierProcedure(BlockState newState) {
-            this.newState = newState;
+        public void set(BlockPos pos, Block block) {
+            this.pos = pos;
+            this.block = block;
+            setQuery(pos.getX(), pos.getY(), pos.getZ(), pos.getX() + 1, pos.getY() + 1, pos.getZ() + 1);
+            inUse = true;
         }
 
         public boolean isCanceled() {
             return cancel;
         }
 
+        @Override
+        public boolean execute(long coord, int range) {
+            // discard the listeners out of range before building their state
+            if (range >= 0 && !isInRange(coord, range)) return true;
+            return super.execute(coord, range);
+        }
+
+        private boolean isInRange(long coord, int range) {
+            double x = pos.getX() - BlockPos.getX(coord);
+            double y = pos.getY() - BlockPos.getY(coord);
+            double z = pos.getZ() - BlockPos.getZ(coord);
+            return (x * x + y * y + z * z) <= range * range;
+        }
+
         @Override
         public boolean execute(long coord) {
             if (!check(coord)) return true;
 
             if (!(state.getBlock() instanceof IBlockListener)) return true;
 
-            IBlockListener block = (IBlockListener) state.getBlock();
-            if (!state.getPos().isInRange(newState.getPos(), block.blockRange())) return true;
+            IBlockListener listener = (IBlockListener) state.getBlock();
+            if (!state.getPos().isInRange(pos, listener.blockRange())) return true;
 
-            if (!state.getPos().equals(newState.getPos())) {
-                if (newState.getBlock() == Blocks.air)
-                    cancel |= !block.onBlockRemoved(world, state.getPos(), newState.getPos());
-                else cancel |= !block.onBlockSet(world, state.getPos(), newState);
+            if (!state.getPos().equals(pos)) {
+                if (block == Blocks.air) cancel |= !listener.onBlockRemoved(world, state.getPos(), pos);
+                else {
+                    if (newState == null) newState = new BlockState(pos, block);
+                    cancel |= !listener.onBlockSet(world, state.getPos(), newState);
+                }
             }
 
             return !cancel;
@@ -73,6 +110,8 @@ public class ChunkListener implements IChunkBlockHandler {
         protected void clean() {
             super.clean();
             cancel = false;
+            pos = null;
+            block = null;
             newState = null;
         }
     }
@@ -15,11 +15,9 @@ package net.malisis.core.util.finiteliquid;
 
 import static net.minecraftforge.common.util.ForgeDirection.*;
 
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import net.malisis.core.block.BoundingBoxType;
 import net.malisis.core.util.BlockPos;
@@ -41,11 +39,21 @@ import net.minecraftforge.common.util.ForgeDirection;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import com.google.common.collect.MapMaker;
+
 import cpw.mods.fml.common.registry.GameRegistry;
 import cpw.mods.fml.relauncher.Side;
 import cpw.mods.fml.relauncher.SideOnly;
+import gnu.trove.iterator.TLongIntIterator;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
 
 /**
+ * Liquid holding an amount from 1 to 16, spread to the neighboring blocks by a {@link FloodFill}.<br>
+ * The time spent spreading liquids is limited for each tick and world, large bodies are spread over several ticks.
+ *
  * @author Ordinastie
  *
  */
@@ -55,7 +63,13 @@ public abstract class FiniteLiquid extends BlockDynamicLiquid {
     protected String name;
 
     private static ForgeDirection[] dirs = new ForgeDirection[] { NORTH, SOUTH, EAST, WEST };
+    /** Maximum time spent spreading liquids per tick and world, in nanoseconds. */
+    private static long tickBudget = 2000000L;
+    private static ConcurrentMap<World, TickBudget> budgets = new MapMaker().weakKeys().makeMap();
+
     private int delay = 5;
+    /** {@link FloodFill} suspended when the tick budget ran out, by world and origin coordinate. */
+    private ConcurrentMap<World, TLongObjectHashMap<FloodFill>> pendingFills = new MapMaker().weakKeys().makeMap();
 
     public FiniteLiquid(Material material) {
         super(material);
@@ -78,6 +92,15 @@ public abstract class FiniteLiquid extends BlockDynamicLiquid {
         this.delay = delay;
     }
 
+    /**
+     * Sets the maximum time spent spreading liquids per tick and world.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public static void setTickBudget(long nanos) {
+        tickBudget = nanos;
+    }
+
     public void register() {
         GameRegistry.registerBlock(this, getName());
     }
@@ -109,11 +132,17 @@ public abstract class FiniteLiquid extends BlockDynamicLiquid {
     }
 
     public void setAmount(World world, BlockState state, int amount) {
-        if (amount <= 0) world.setBlockToAir(state.getX(), state.getY(), state.getZ());
-        else {
-            if (getAmount(state) == amount) return;
-            world.setBlock(state.getX(), state.getY(), state.getZ(), this, amount - 1, 2);
-            world.scheduleBlockUpdate(state.getX(), state.getY(), state.getZ(), this, delay);
+        setAmount(world, state.getX(), state.getY(), state.getZ(), amount);
+    }
+
+    public void setAmount(World world, int x, int y, int z, int amount) {
+        Block block = world.getBlock(x, y, z);
+        if (amount <= 0) {
+            if (block != Blocks.air) world.setBlockToAir(x, y, z);
+        } else {
+            if (block == this && world.getBlockMetadata(x, y, z) == amount - 1) return;
+            world.setBlock(x, y, z, this, amount - 1, 2);
+            world.scheduleBlockUpdate(x, y, z, this, delay);
         }
     }
 
@@ -126,13 +155,56 @@ public abstract class FiniteLiquid extends BlockDynamicLiquid {
         return amount - newAmount;
     }
 
+    @Override
+    public void breakBlock(World world, int x, int y, int z, Block block, int metadata) {
+        super.breakBlock(world, x, y, z, block, metadata);
+
+        TLongObjectHashMap<FloodFill> fills = pendingFills.get(world);
+        if (fills != null) fills.remove(BlockPos.toLong(x, y, z));
+    }
+
     private void spreadLiquid(World world, int x, int y, int z) {
-        BlockState state = new BlockState(world, x, y, z);
-        // if (getAmount(state) <= 1)
-        // return;
+        TickBudget budget = getTickBudget(world);
+        long remaining = budget.remaining(world);
+        if (remaining <= 0) {
+            // try again next tick
+            world.scheduleBlockUpdate(x, y, z, this, 1);
+            return;
+        }
+
+        TLongObjectHashMap<FloodFill> fills = getPendingFills(world);
+        long coord = BlockPos.toLong(x, y, z);
+        FloodFill ff = fills.remove(coord);
+        if (ff == null || !ff.resume(world)) ff = new FloodFill(this, world, x, y, z);
+
+        long start = System.nanoTime();
+        boolean done = ff.parse(world, start + remaining);
+        budget.used += System.nanoTime() - start;
+
+        if (!done) {
+            fills.put(coord, ff);
+            world.scheduleBlockUpdate(x, y, z, this, 1);
+        }
+    }
 
-        FloodFill ff = new FloodFill(this, world, state);
-        ff.parse();
+    private TickBudget getTickBudget(World world) {
+        TickBudget budget = budgets.get(world);
+        if (budget == null) {
+            budget = new TickBudget();
+            TickBudget previous = budgets.putIfAbsent(world, budget);
+            if (previous != null) budget = previous;
+        }
+        return budget;
+    }
+
+    private TLongObjectHashMap<FloodFill> getPendingFills(World world) {
+        TLongObjectHashMap<FloodFill> fills = pendingFills.get(world);
+        if (fills == null) {
+            fills = new TLongObjectHashMap<>();
+            TLongObjectHashMap<FloodFill> previous = pendingFills.putIfAbsent(world, fills);
+            if (previous != null) fills = previous;
+        }
+        return fills;
     }
 
     public AxisAlignedBB[] getBoundingBox(IBlockAccess world, int x, int y, int z, BoundingBoxType type) {
@@ -188,70 +260,182 @@ public abstract class FiniteLiquid extends BlockDynamicLiquid {
         return renderId;
     }
 
+    /**
+     * Spreads the amount of liquid of an origin block to the blocks around it, breadth first.<br>
+     * Coordinates are handled as packed longs, and the amounts changed are kept until the fill completes or is
+     * suspended, then written once to the world.<br>
+     * The world is passed to each call and not stored, so suspended fills don't keep it from being unloaded.
+     */
     public static class FloodFill {
 
+        /** Number of coordinates processed between two checks of the deadline. */
+        private static final int CHECK_INTERVAL = 32;
+        private static final int NO_CHANGE = Integer.MIN_VALUE;
+
         FiniteLiquid fl;
-        Set<BlockPos> parsed = new HashSet<>();
-        LinkedList<BlockPos> toParse = new LinkedList<>();
-        World world;
-        BlockPos origin;
+        long origin;
         int amount = 0;
+        /** Coordinates already queued for parsing. */
+        TLongHashSet parsed = new TLongHashSet();
+        /** Coordinates to parse, from {@link #head}. */
+        TLongArrayList toParse = new TLongArrayList();
+        int head = 0;
+        /** Amounts changed and not yet written to the world. */
+        TLongIntHashMap changes = new TLongIntHashMap(16, 0.5F, 0, NO_CHANGE);
 
         public FloodFill(FiniteLiquid fl, World world, BlockState state) {
+            this(fl, world, state.getX(), state.getY(), state.getZ());
+        }
+
+        public FloodFill(FiniteLiquid fl, World world, int x, int y, int z) {
             this.fl = fl;
-            this.world = world;
-            this.origin = state.getPos();
-            this.amount = fl.getAmount(state);
-            toParse.add(state.getPos());
+            this.origin = BlockPos.toLong(x, y, z);
+            this.amount = getAmount(world, origin);
+            toParse.add(origin);
+            parsed.add(origin);
+        }
+
+        /**
+         * Gets the amount at the coordinate, taking into account the changes not yet written.
+         *
+         * @param world the world
+         * @param coord the coord
+         * @return the amount, -1 if the block is neither air nor this liquid
+         */
+        public int getAmount(World world, long coord) {
+            int changed = changes.get(coord);
+            if (changed != NO_CHANGE) return changed;
+
+            int x = BlockPos.getX(coord);
+            int y = BlockPos.getY(coord);
+            int z = BlockPos.getZ(coord);
+            Block block = world.getBlock(x, y, z);
+            if (block == Blocks.air) return 0;
+            else if (block != fl) return -1;
+            return world.getBlockMetadata(x, y, z) + 1;
         }
 
-        public boolean shouldParse(BlockPos pos) {
-            if (!origin.isInRange(pos, 16)) return false;
+        public void setAmount(long coord, int amount) {
+            changes.put(coord, amount);
+        }
+
+        public boolean shouldParse(World world, long coord) {
+            if (parsed.contains(coord)) return false;
+
+            double x = BlockPos.getX(coord) - BlockPos.getX(origin);
+            double y = BlockPos.getY(coord) - BlockPos.getY(origin);
+            double z = BlockPos.getZ(coord) - BlockPos.getZ(origin);
+            if (x * x + y * y + z * z > 16 * 16) return false;
+
+            return getAmount(world, coord) != -1;
+        }
 
-            if (toParse.contains(pos)) return false;
+        /**
+         * Resumes a suspended fill with the amount currently at the origin.
+         *
+         * @param world the world
+         * @return true, if the origin still holds liquid
+         */
+        public boolean resume(World world) {
+            amount = getAmount(world, origin);
+            return amount > 0 && head < toParse.size();
+        }
 
-            BlockState state = new BlockState(world, pos);
-            return state.getBlock() == fl || state.getBlock() == Blocks.air;
+        public void parse(World world) {
+            parse(world, Long.MAX_VALUE);
         }
 
-        public void parse() {
-            while (toParse.size() > 0) {
-                BlockState state = new BlockState(world, toParse.removeFirst());
-                if (!process(state)) break;
-                parse(state);
+        /**
+         * Parses the coordinates until the liquid is spread or the deadline is reached.<br>
+         * The changes are written to the world in both cases.
+         *
+         * @param world    the world
+         * @param deadline the deadline, from {@link System#nanoTime()}
+         * @return true, if the fill is complete, false if suspended
+         */
+        public boolean parse(World world, long deadline) {
+            boolean complete = true;
+            int count = 0;
+            while (head < toParse.size()) {
+                if (++count % CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    complete = false;
+                    break;
+                }
+
+                long coord = toParse.get(head++);
+                int before = getAmount(world, coord);
+                if (!process(world, coord, before)) break;
+                if (before > 0) queueNeighbors(world, coord);
             }
 
-            fl.setAmount(world, new BlockState(world, origin), amount);
+            setAmount(origin, amount);
+            flush(world);
+            return complete;
         }
 
-        public boolean process(BlockState state) {
-            BlockState down = new BlockState(world, state.getPos().down());
-            int da = fl.getAmount(down);
+        public boolean process(World world, long coord, int a) {
+            long down = BlockPos.toLong(BlockPos.getX(coord), BlockPos.getY(coord) - 1, BlockPos.getZ(coord));
+            int da = getAmount(world, down);
             if (da != -1 && da != 16) {
                 int transfered = Math.min(amount, 4);
                 transfered = Math.min(transfered, 16 - da);
-                fl.setAmount(world, down, da + transfered);
+                setAmount(down, da + transfered);
                 amount -= transfered;
                 return amount > 0;
             }
 
-            if (state.getPos().equals(origin)) return true;
+            if (coord == origin) return true;
 
-            int a = fl.getAmount(state);
             if (a < amount - 1) {
-                fl.setAmount(world, state, a + 1);
+                setAmount(coord, a + 1);
                 amount--;
             }
             return amount > 1;
         }
 
-        public void parse(BlockState state) {
-            BlockPos pos = state.getPos();
-            if (state.getBlock() == fl) for (ForgeDirection dir : dirs) {
-                BlockPos newPos = pos.offset(dir);
-                if (!parsed.contains(newPos) && shouldParse(newPos)) toParse.add(newPos);
+        public void queueNeighbors(World world, long coord) {
+            int x = BlockPos.getX(coord);
+            int y = BlockPos.getY(coord);
+            int z = BlockPos.getZ(coord);
+            for (ForgeDirection dir : dirs) {
+                long newCoord = BlockPos.toLong(x + dir.offsetX, y, z + dir.offsetZ);
+                if (shouldParse(world, newCoord)) {
+                    toParse.add(newCoord);
+                    parsed.add(newCoord);
+                }
+            }
+        }
+
+        /**
+         * Writes the changed amounts to the world.
+         *
+         * @param world the world
+         */
+        public void flush(World world) {
+            for (TLongIntIterator it = changes.iterator(); it.hasNext();) {
+                it.advance();
+                long coord = it.key();
+                fl.setAmount(world, BlockPos.getX(coord), BlockPos.getY(coord), BlockPos.getZ(coord), it.value());
+            }
+            changes.clear();
+        }
+    }
+
+    /**
+     * Time spent spreading liquids during the current tick of a world.
+     */
+    private static class TickBudget {
+
+        private long tick = -1;
+        private long used = 0;
+
+        private long remaining(World world) {
+            long time = world.getTotalWorldTime();
+            if (time != tick) {
+                tick = time;
+                used = 0;
             }
-            parsed.add(state.getPos());
+            return tickBudget - used;
         }
     }
 
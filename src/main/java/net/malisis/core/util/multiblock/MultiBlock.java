@@ -20,6 +20,7 @@ import java.util.Map;
 import net.malisis.core.renderer.element.Vertex;
 import net.malisis.core.util.BlockPos;
 import net.malisis.core.util.BlockState;
+import net.malisis.core.util.chunkblock.ChunkBlockHandler;
 import net.minecraft.block.Block;
 import net.minecraft.init.Blocks;
 import net.minecraft.tileentity.TileEntity;
@@ -66,19 +67,29 @@ public abstract class MultiBlock implements Iterable<BlockState>, IBlockAccess {
     }
 
     public void placeBlocks(World world, BlockPos pos) {
-        for (BlockState state : this) {
-            state = state.rotate(rotation).offset(pos);
-            if (!state.getPos().equals(pos)) {
-                state.placeBlock(world, 2);
-                state.rotateInWorld(world, rotation);
+        ChunkBlockHandler.get().startBatch(world);
+        try {
+            for (BlockState state : this) {
+                state = state.rotate(rotation).offset(pos);
+                if (!state.getPos().equals(pos)) {
+                    state.placeBlock(world, 2);
+                    state.rotateInWorld(world, rotation);
+                }
             }
+        } finally {
+            ChunkBlockHandler.get().endBatch(world);
         }
     }
 
     public void breakBlocks(World world, BlockPos pos) {
-        for (BlockState state : this) {
-            state = state.rotate(rotation).offset(pos);
-            if (!state.getPos().equals(pos)) state.breakBlock(world, 2);
+        ChunkBlockHandler.get().startBatch(world);
+        try {
+            for (BlockState state : this) {
+                state = state.rotate(rotation).offset(pos);
+                if (!state.getPos().equals(pos)) state.breakBlock(world, 2);
+            }
+        } finally {
+            ChunkBlockHandler.get().endBatch(world);
         }
     }
 
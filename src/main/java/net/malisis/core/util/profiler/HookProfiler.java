@@ -0,0 +1,241 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.profiler;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.malisis.core.MalisisCore;
+import net.minecraft.world.World;
+
+import com.google.common.collect.MapMaker;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+
+/**
+ * Collects the time spent in the hooks injected by MalisisCore, for each {@link World}.<br>
+ * The profiler is enabled with <i>-Dmalisiscore.profiler=true</i>. When disabled, {@link #enabled} is a constant
+ * false and the JIT discards the profiling calls entirely.<br>
+ * The stats are displayed with <i>/malisis stats</i> and periodically written to the log and to
+ * <i>malisiscore-stats.csv</i>, every <i>-Dmalisiscore.profiler.interval</i> seconds (300 by default, 0 to disable).
+ *
+ * @author Ordinastie
+ *
+ */
+public class HookProfiler {
+
+    /** Whether the profiler is enabled. */
+    public static final boolean enabled = Boolean.getBoolean("malisiscore.profiler");
+    /** Delay between two dumps, in nanoseconds. */
+    private static final long dumpInterval = Long.getLong("malisiscore.profiler.interval", 300) * 1000000000L;
+    /** File the stats are dumped into. */
+    private static final File csvFile = new File("malisiscore-stats.csv");
+
+    private static HookProfiler instance = new HookProfiler();
+
+    /**
+     * The hooks profiled.
+     */
+    public enum Hook {
+        /** {@link World#getCollidingBoundingBoxes} */
+        COLLISION,
+        /** {@link World#rayTraceBlocks} */
+        RAYTRACE,
+        /** {@link net.minecraft.item.ItemBlock#onItemUse} */
+        PLACEMENT,
+        /** {@link net.minecraft.world.chunk.Chunk#setBlockIDWithMetadata} */
+        SETBLOCK;
+    }
+
+    private ConcurrentMap<World, WorldStats> worldStats = new MapMaker().weakKeys().makeMap();
+    private long lastDump = System.nanoTime();
+
+    private HookProfiler() {}
+
+    /**
+     * Gets the start time for a hook call.
+     *
+     * @return the current time, or 0 if the profiler is disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a call to a hook.
+     *
+     * @param world   the world
+     * @param hook    the hook
+     * @param start   the start time returned by {@link #start()}
+     * @param visited the number of candidate coordinates visited
+     */
+    public static void end(World world, Hook hook, long start, int visited) {
+        if (!enabled || world == null) return;
+
+        HookStats stats = instance.getStats(world, hook);
+        stats.calls.incrementAndGet();
+        stats.nanos.addAndGet(System.nanoTime() - start);
+        stats.visited.addAndGet(visited);
+    }
+
+    /**
+     * Records a bounding box cache lookup made during a hook call.
+     *
+     * @param world the world
+     * @param hook  the hook
+     * @param hit   whether the boxes were cached
+     */
+    public static void cacheLookup(World world, Hook hook, boolean hit) {
+        if (!enabled || world == null || hook == null) return;
+
+        HookStats stats = instance.getStats(world, hook);
+        if (hit) stats.cacheHits.incrementAndGet();
+        else stats.cacheMisses.incrementAndGet();
+    }
+
+    private HookStats getStats(World world, Hook hook) {
+        WorldStats stats = worldStats.get(world);
+        if (stats == null) {
+            stats = new WorldStats(world);
+            WorldStats previous = worldStats.putIfAbsent(world, stats);
+            if (previous != null) stats = previous;
+        }
+        return stats.hooks[hook.ordinal()];
+    }
+
+    /**
+     * Clears all the stats collected.
+     */
+    public void reset() {
+        worldStats.clear();
+    }
+
+    /**
+     * Gets a readable report of the stats collected, one line per world and hook called.
+     *
+     * @return the report
+     */
+    public List<String> getReport() {
+        List<String> lines = new ArrayList<>();
+        for (WorldStats stats : worldStats.values()) {
+            for (Hook hook : Hook.values()) {
+                HookStats hs = stats.hooks[hook.ordinal()];
+                long calls = hs.calls.get();
+                if (calls == 0) continue;
+
+                long hits = hs.cacheHits.get();
+                long lookups = hits + hs.cacheMisses.get();
+                lines.add(
+                        String.format(
+                                "%s %s : %d calls, %.3f ms total, %.2f us/call, %.1f visited/call, %s cache hits",
+                                stats.name,
+                                hook,
+                                calls,
+                                hs.nanos.get() / 1000000D,
+                                hs.nanos.get() / 1000D / calls,
+                                (double) hs.visited.get() / calls,
+                                lookups == 0 ? "-" : String.format("%.1f%%", hits * 100D / lookups)));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the stats collected to the log and appends them to the CSV file.
+     */
+    public synchronized void dump() {
+        for (String line : getReport()) MalisisCore.log.info("[HookProfiler] {}", line);
+
+        boolean header = !csvFile.exists();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(csvFile, true))) {
+            if (header) writer.println("time,world,hook,calls,nanos,visited,cacheHits,cacheMisses");
+
+            long time = System.currentTimeMillis();
+            for (WorldStats stats : worldStats.values()) {
+                for (Hook hook : Hook.values()) {
+                    HookStats hs = stats.hooks[hook.ordinal()];
+                    if (hs.calls.get() == 0) continue;
+                    writer.println(
+                            String.format(
+                                    "%d,%s,%s,%d,%d,%d,%d,%d",
+                                    time,
+                                    stats.name,
+                                    hook,
+                                    hs.calls.get(),
+                                    hs.nanos.get(),
+                                    hs.visited.get(),
+                                    hs.cacheHits.get(),
+                                    hs.cacheMisses.get()));
+                }
+            }
+        } catch (IOException e) {
+            MalisisCore.log.error("[HookProfiler] Failed to write {}", csvFile, e);
+        }
+    }
+
+    private synchronized void checkDump() {
+        long now = System.nanoTime();
+        if (now - lastDump < dumpInterval) return;
+
+        lastDump = now;
+        dump();
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (enabled && dumpInterval > 0 && event.phase == TickEvent.Phase.END) checkDump();
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (enabled && dumpInterval > 0 && event.phase == TickEvent.Phase.END) checkDump();
+    }
+
+    public static HookProfiler get() {
+        return instance;
+    }
+
+    /**
+     * Stats for the hooks called for a {@link World}.
+     */
+    private static class WorldStats {
+
+        private String name;
+        private HookStats[] hooks = new HookStats[Hook.values().length];
+
+        public WorldStats(World world) {
+            name = "DIM" + world.provider.dimensionId + (world.isRemote ? "(client)" : "(server)");
+            for (int i = 0; i < hooks.length; i++) hooks[i] = new HookStats();
+        }
+    }
+
+    /**
+     * Counters for a hook.
+     */
+    private static class HookStats {
+
+        private AtomicLong calls = new AtomicLong();
+        private AtomicLong nanos = new AtomicLong();
+        private AtomicLong visited = new AtomicLong();
+        private AtomicLong cacheHits = new AtomicLong();
+        private AtomicLong cacheMisses = new AtomicLong();
+    }
+}
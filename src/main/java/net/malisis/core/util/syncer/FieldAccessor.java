@@ -0,0 +1,322 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.syncer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import net.malisis.core.MalisisCore;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reads and writes a {@link Sync} field directly from and to a {@link ByteBuf}.<br>
+ * The accessor is specialized for the type of the field when discovered, and uses typed {@link MethodHandle} so
+ * primitive values are never boxed.<br>
+ * Integral values larger than a byte are written as variable length integers, zigzag encoded when signed.
+ *
+ * @author Ordinastie
+ *
+ */
+public abstract class FieldAccessor {
+
+    protected final Field field;
+    protected final MethodHandle getter;
+    protected final MethodHandle setter;
+
+    protected FieldAccessor(Field field) throws IllegalAccessException {
+        this.field = field;
+        field.setAccessible(true);
+
+        Class<?> type = field.getType().isPrimitive() ? field.getType() : Object.class;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        getter = lookup.unreflectGetter(field).asType(MethodType.methodType(type, Object.class));
+        setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, type));
+    }
+
+    /**
+     * Writes the value of the field for the caller into the {@link ByteBuf}.
+     *
+     * @param caller the caller
+     * @param buf    the buf
+     */
+    public void write(Object caller, ByteBuf buf) {
+        try {
+            doWrite(caller, buf);
+        } catch (Throwable e) {
+            MalisisCore.log.error("Failed to read {} field for {}.", field.getName(), caller.getClass(), e);
+        }
+    }
+
+    /**
+     * Reads the value from the {@link ByteBuf} and sets it into the field of the receiver.
+     *
+     * @param receiver the receiver
+     * @param buf      the buf
+     */
+    public void read(Object receiver, ByteBuf buf) {
+        try {
+            doRead(receiver, buf);
+        } catch (Throwable e) {
+            MalisisCore.log.error("Failed to update {} field for {}.", field.getName(), receiver.getClass(), e);
+        }
+    }
+
+    protected abstract void doWrite(Object caller, ByteBuf buf) throws Throwable;
+
+    protected abstract void doRead(Object receiver, ByteBuf buf) throws Throwable;
+
+    /**
+     * Creates the {@link FieldAccessor} for the type of the {@link Field}.
+     *
+     * @param field the field
+     * @return the field accessor
+     * @throws IllegalAccessException   if the field is not accessible
+     * @throws IllegalArgumentException if the type of the field is not supported
+     */
+    public static FieldAccessor of(Field field) throws IllegalAccessException {
+        Class<?> type = field.getType();
+        if (type == boolean.class) return new BooleanAccessor(field);
+        if (type == byte.class) return new ByteAccessor(field);
+        if (type == short.class) return new ShortAccessor(field);
+        if (type == char.class) return new CharAccessor(field);
+        if (type == int.class) return new IntAccessor(field);
+        if (type == long.class) return new LongAccessor(field);
+        if (type == float.class) return new FloatAccessor(field);
+        if (type == double.class) return new DoubleAccessor(field);
+        if (type == String.class) return new StringAccessor(field);
+        if (ISyncableData.class.isAssignableFrom(type)) return new SyncableDataAccessor(field);
+
+        throw new IllegalArgumentException("Type " + type.getName() + " can't be synced for field " + field.getName());
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteBuf buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuf buf) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0 && shift < 70);
+        return value;
+    }
+
+    private static class BooleanAccessor extends FieldAccessor {
+
+        public BooleanAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            buf.writeBoolean((boolean) getter.invokeExact(caller));
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, buf.readBoolean());
+        }
+    }
+
+    private static class ByteAccessor extends FieldAccessor {
+
+        public ByteAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            buf.writeByte((byte) getter.invokeExact(caller));
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, buf.readByte());
+        }
+    }
+
+    private static class ShortAccessor extends FieldAccessor {
+
+        public ShortAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            ByteBufUtils.writeVarInt(buf, zigzag((short) getter.invokeExact(caller)), 5);
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, (short) unzigzag(ByteBufUtils.readVarInt(buf, 5)));
+        }
+    }
+
+    private static class CharAccessor extends FieldAccessor {
+
+        public CharAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            ByteBufUtils.writeVarInt(buf, (char) getter.invokeExact(caller), 5);
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, (char) ByteBufUtils.readVarInt(buf, 5));
+        }
+    }
+
+    private static class IntAccessor extends FieldAccessor {
+
+        public IntAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            ByteBufUtils.writeVarInt(buf, zigzag((int) getter.invokeExact(caller)), 5);
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, unzigzag(ByteBufUtils.readVarInt(buf, 5)));
+        }
+    }
+
+    private static class LongAccessor extends FieldAccessor {
+
+        public LongAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            writeVarLong(buf, zigzag((long) getter.invokeExact(caller)));
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, unzigzag(readVarLong(buf)));
+        }
+    }
+
+    private static class FloatAccessor extends FieldAccessor {
+
+        public FloatAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            buf.writeFloat((float) getter.invokeExact(caller));
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, buf.readFloat());
+        }
+    }
+
+    private static class DoubleAccessor extends FieldAccessor {
+
+        public DoubleAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            buf.writeDouble((double) getter.invokeExact(caller));
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            setter.invokeExact(receiver, buf.readDouble());
+        }
+    }
+
+    private static class StringAccessor extends FieldAccessor {
+
+        public StringAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            Object value = (Object) getter.invokeExact(caller);
+            buf.writeBoolean(value != null);
+            if (value != null) ByteBufUtils.writeUTF8String(buf, (String) value);
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            Object value = buf.readBoolean() ? ByteBufUtils.readUTF8String(buf) : null;
+            setter.invokeExact(receiver, value);
+        }
+    }
+
+    private static class SyncableDataAccessor extends FieldAccessor {
+
+        public SyncableDataAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        protected void doWrite(Object caller, ByteBuf buf) throws Throwable {
+            Object value = (Object) getter.invokeExact(caller);
+            buf.writeBoolean(value != null);
+            if (value != null) ((ISyncableData) value).toBytes(buf);
+        }
+
+        @Override
+        protected void doRead(Object receiver, ByteBuf buf) throws Throwable {
+            Object value = null;
+            if (buf.readBoolean()) {
+                value = field.getType().newInstance();
+                ((ISyncableData) value).fromBytes(buf);
+            }
+            setter.invokeExact(receiver, value);
+        }
+    }
+}
@@ -24,11 +24,13 @@ public class FieldData {
     private final int index;
     private final String name;
     private final Field field;
+    private final FieldAccessor accessor;
 
-    public FieldData(int index, String name, Field field) {
+    public FieldData(int index, String name, Field field) throws IllegalAccessException {
         this.index = index;
         this.name = name;
         this.field = field;
+        this.accessor = FieldAccessor.of(field);
     }
 
     public int getIndex() {
@@ -42,4 +44,8 @@ public class FieldData {
     public Field getField() {
         return field;
     }
+
+    public FieldAccessor getAccessor() {
+        return accessor;
+    }
 }
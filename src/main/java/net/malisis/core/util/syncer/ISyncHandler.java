@@ -14,6 +14,7 @@
 package net.malisis.core.util.syncer;
 
 import net.malisis.core.util.syncer.message.SyncerMessage.Packet;
+import net.minecraft.world.chunk.Chunk;
 
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 
@@ -54,28 +55,67 @@ public interface ISyncHandler<T, S extends ISyncableData> {
      */
     public S getSyncData(T caller);
 
+    /**
+     * Checks whether the caller can still be synchronized.<br>
+     * Objects registered with {@link Syncer#autoSync(Object)} are released once no longer valid.
+     *
+     * @param caller the caller
+     * @return true, if valid
+     */
+    public default boolean isValid(T caller) {
+        return true;
+    }
+
+    /**
+     * Gets the {@link Chunk} the caller is in, if any.<br>
+     * Objects registered with {@link Syncer#autoSync(Object)} have all their fields sent to the players that start
+     * watching that chunk.
+     *
+     * @param caller the caller
+     * @return the chunk, or null if the caller is not in a chunk
+     */
+    public default Chunk getChunk(T caller) {
+        return null;
+    }
+
     /**
      * Adds a {@link FieldData} to be handled by this {@link ISyncHandler}.
      *
      * @param fieldData the field data
+     * @deprecated fields are indexed per class by the {@link Syncer}, this method is not called anymore.
      */
-    public void addFieldData(FieldData fieldData);
+    @Deprecated
+    public default void addFieldData(FieldData fieldData) {}
 
     /**
-     * Gets the {@link FieldData} for the specified index (called from the the SyncerMessage.Packet).
+     * Gets the {@link FieldData} for the specified index.<br>
+     * Fields are now indexed per class of the caller, so the handler alone cannot resolve them.
      *
      * @param index the index
-     * @return the field data
+     * @return nothing, always throws
+     * @throws UnsupportedOperationException always
+     * @deprecated use <code>Syncer.get().getFields(caller).get(index)</code> instead.
      */
-    public FieldData getFieldData(int index);
+    @Deprecated
+    public default FieldData getFieldData(int index) {
+        throw new UnsupportedOperationException("Fields are indexed per class of the caller, use "
+                + "Syncer.get().getFields(caller).get(" + index + ") instead.");
+    }
 
     /**
-     * Gets the {@link FieldData} from its name.
+     * Gets the {@link FieldData} from its name.<br>
+     * Fields are now indexed per class of the caller, so the handler alone cannot resolve them.
      *
      * @param name the name
-     * @return the field data
+     * @return nothing, always throws
+     * @throws UnsupportedOperationException always
+     * @deprecated use <code>Syncer.get().getFields(caller).get(name)</code> instead.
      */
-    public FieldData getFieldData(String name);
+    @Deprecated
+    public default FieldData getFieldData(String name) {
+        throw new UnsupportedOperationException("Fields are indexed per class of the caller, use "
+                + "Syncer.get().getFields(caller).get(\"" + name + "\") instead.");
+    }
 
     /**
      * Sends the syncing packet.
@@ -14,26 +14,47 @@
 package net.malisis.core.util.syncer;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
 
 import net.malisis.core.MalisisCore;
 import net.malisis.core.util.DoubleKeyMap;
 import net.malisis.core.util.syncer.handlers.TileEntitySyncHandler;
 import net.malisis.core.util.syncer.message.SyncerMessage;
 import net.malisis.core.util.syncer.message.SyncerMessage.Packet;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.event.world.ChunkWatchEvent;
 
+import com.google.common.collect.MapMaker;
+
+import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.discovery.ASMDataTable;
 import cpw.mods.fml.common.discovery.ASMDataTable.ASMData;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import cpw.mods.fml.relauncher.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 /**
  * This class handles the synchronization between server and client objects. Objects to be synchronized need to have the
  * {@link Syncable} annotation on their classes with a value matching a registered {@link ISyncHandler}.<br>
- * Fields that need to be synchronized need {@link Sync} annotation.<br>
+ * Fields that need to be synchronized need {@link Sync} annotation. They are indexed for each class, ordered by their
+ * {@link Sync} value, so there is no limit on their number.<br>
  * To manually synchronize one or more fields, call {@link Syncer#sync(Object, String...)} with the {@link Sync} values
- * for those fields.
+ * for those fields.<br>
+ * To automatically synchronize the fields, register the object once with {@link Syncer#autoSync(Object)}. The fields
+ * are compared at the end of each server tick, and the ones that changed are sent in a single packet. Players starting
+ * to watch the chunk of the object receive all its fields.
  *
  * @author Ordinastie
  */
@@ -44,7 +65,14 @@ public class Syncer {
     /** Map of {@link ISyncHandler} registered, accessible by the classes annotated by {@link Syncable} */
     private Map<Class<?>, ISyncHandler<?, ? extends ISyncableData>> classToHandler = new HashMap<>();
 
-    private Map<Object, HashMap<String, Object>> syncCache = new HashMap<>();
+    /** {@link FieldData} for each class annotated by {@link Syncable}, accessible by name or index. */
+    private Map<Class<?>, DoubleKeyMap<String, FieldData>> classFields = new HashMap<>();
+    /** Objects registered for automatic synchronization. Weak keys so they are released once unloaded. */
+    private ConcurrentMap<Object, AutoSyncState> autoSynced = new MapMaker().weakKeys().makeMap();
+    /** Players that started watching a chunk during the tick, by chunk. */
+    private Map<Chunk, List<EntityPlayerMP>> newWatchers = new HashMap<>();
+    /** Buffer used to serialize a field value during the comparison. */
+    private ByteBuf compareBuffer = Unpooled.buffer();
 
     /** Syncer instance **/
     private static Syncer instance;
@@ -79,7 +107,7 @@ public class Syncer {
      * @return the handler from id
      */
     public ISyncHandler<?, ? extends ISyncableData> getHandlerFromId(int id) {
-        return handlers.get(id);
+        return id >= 0 && id < handlers.size() ? handlers.get(id) : null;
     }
 
     /**
@@ -99,24 +127,26 @@ public class Syncer {
         return handler;
     }
 
+    /**
+     * Gets the {@link FieldData} of the {@link Sync} fields for the object.
+     *
+     * @param object the object
+     * @return the fields, null if the class of the object is not {@link Syncable}
+     */
+    public DoubleKeyMap<String, FieldData> getFields(Object object) {
+        return object != null ? classFields.get(object.getClass()) : null;
+    }
+
     /**
      * Discovers all the classes with {@link Syncable} annotation and fields with {@link Sync} annotation.<br>
-     * Fields are added the the corresponding {@link ISyncHandler}.
+     * Fields are indexed for their class, with a {@link FieldAccessor} specialized for their type.
      *
      * @param asmDataTable the asm data table
      */
     public void discover(ASMDataTable asmDataTable) {
         for (ASMData data : asmDataTable.getAll(Syncable.class.getName())) {
             try {
-                Class clazz = Class.forName(data.getClassName());
-                Syncable anno = (Syncable) clazz.getAnnotation(Syncable.class);
-                ISyncHandler<?, ? extends ISyncableData> handler = handlers.get(anno.value());
-                classToHandler.put(clazz, handler);
-
-                for (Field f : clazz.getFields()) {
-                    Sync syncAnno = f.getAnnotation(Sync.class);
-                    if (syncAnno != null) handler.addFieldData(new FieldData(0, syncAnno.value(), f));
-                }
+                registerSyncable(Class.forName(data.getClassName()));
             } catch (Exception e) {
                 MalisisCore.log.error("Could not process {} syncable.", data.getClassName(), e);
             }
@@ -124,42 +154,75 @@ public class Syncer {
     }
 
     /**
-     * Gets the indexes of the sync fields into a single integer.
+     * Registers a class with {@link Syncable} annotation, and indexes its {@link Sync} fields.
+     *
+     * @param clazz the clazz
+     * @throws IllegalAccessException if a field is not accessible
+     */
+    void registerSyncable(Class<?> clazz) throws IllegalAccessException {
+        Syncable anno = clazz.getAnnotation(Syncable.class);
+        ISyncHandler<?, ? extends ISyncableData> handler = handlers.get(anno.value());
+        classToHandler.put(clazz, handler);
+        classFields.put(clazz, discoverFields(clazz));
+    }
+
+    /**
+     * Indexes the {@link Sync} fields of the class.<br>
+     * The order of {@link Class#getFields()} is not specified, so fields are sorted by their {@link Sync} value to get
+     * the same indexes on both sides.
+     *
+     * @param clazz the clazz
+     * @return the fields
+     * @throws IllegalAccessException if a field is not accessible
+     */
+    private DoubleKeyMap<String, FieldData> discoverFields(Class<?> clazz) throws IllegalAccessException {
+        List<Field> fields = new ArrayList<>();
+        for (Field f : clazz.getFields()) if (f.getAnnotation(Sync.class) != null) fields.add(f);
+        Collections.sort(fields, new Comparator<Field>() {
+
+            @Override
+            public int compare(Field f1, Field f2) {
+                return f1.getAnnotation(Sync.class).value().compareTo(f2.getAnnotation(Sync.class).value());
+            }
+        });
+
+        DoubleKeyMap<String, FieldData> map = new DoubleKeyMap<>();
+        for (Field f : fields) {
+            String name = f.getAnnotation(Sync.class).value();
+            if (map.get(name) != null) throw new RuntimeException(name + " is already registered");
+            map.put(name, new FieldData(map.size(), name, f));
+        }
+        return map;
+    }
+
+    /**
+     * Gets the indexes of the sync fields.
      *
-     * @param handler   the handler
+     * @param fields    the fields
      * @param syncNames the sync names
      * @return the field indexes
      */
-    private int getFieldIndexes(ISyncHandler<?, ? extends ISyncableData> handler, String... syncNames) {
-        int indexes = 0;
+    private BitSet getFieldIndexes(DoubleKeyMap<String, FieldData> fields, String... syncNames) {
+        BitSet indexes = new BitSet(fields.size());
         for (String str : syncNames) {
-            FieldData fd = handler.getFieldData(str);
-            if (fd != null) indexes |= 1 << fd.getIndex();
+            FieldData fd = fields.get(str);
+            if (fd != null) indexes.set(fd.getIndex());
         }
         return indexes;
     }
 
     /**
-     * Gets the field values for the specified names.
+     * Writes the values of the fields for the specified indexes, in the order of their indexes.
      *
-     * @param caller    the caller
-     * @param handler   the handler
-     * @param syncNames the sync names
-     * @return the field values
-     */
-    private Map<String, Object> getFieldValues(Object caller, ISyncHandler<?, ? extends ISyncableData> handler,
-            String... syncNames) {
-        Map<String, Object> values = new LinkedHashMap<>();
-        try {
-            for (String str : syncNames) {
-                FieldData fd = handler.getFieldData(str);
-                if (fd != null) values.put(str, fd.getField().get(caller));
-            }
-        } catch (IllegalArgumentException | IllegalAccessException e) {
-            e.printStackTrace();
-        }
-
-        return values;
+     * @param caller  the caller
+     * @param fields  the fields
+     * @param indexes the indexes
+     * @param buf     the buf
+     */
+    private void writeFieldValues(Object caller, DoubleKeyMap<String, FieldData> fields, BitSet indexes,
+            ByteBuf buf) {
+        for (int index = indexes.nextSetBit(0); index >= 0; index = indexes.nextSetBit(index + 1))
+            fields.get(index).getAccessor().write(caller, buf);
     }
 
     /**
@@ -171,45 +234,140 @@ public class Syncer {
      */
     private <T> void doSync(T caller, String... syncNames) {
         ISyncHandler<? super T, ? extends ISyncableData> handler = getHandler(caller);
-        if (handler == null) return;
+        DoubleKeyMap<String, FieldData> fields = getFields(caller);
+        if (handler == null || fields == null) return;
 
-        ISyncableData data = handler.getSyncData(caller);
-        int indexes = getFieldIndexes(handler, syncNames);
-        Map<String, Object> values = getFieldValues(caller, handler, syncNames);
+        BitSet indexes = getFieldIndexes(fields, syncNames);
+        ByteBuf values = Unpooled.buffer();
+        writeFieldValues(caller, fields, indexes, values);
 
+        send(caller, handler, indexes, values);
+    }
+
+    /**
+     * Sends the packet for the values already serialized.
+     *
+     * @param <T>     the type of the caller
+     * @param caller  the caller
+     * @param handler the handler
+     * @param indexes the indexes
+     * @param values  the values
+     */
+    private <T> void send(T caller, ISyncHandler<? super T, ? extends ISyncableData> handler, BitSet indexes,
+            ByteBuf values) {
+        ISyncableData data = handler.getSyncData(caller);
         SyncerMessage.Packet<T> packet = new Packet<>(handler, data, indexes, values);
 
         handler.send(caller, packet);
     }
 
+    /**
+     * Registers the object to have its {@link Sync} fields automatically synchronized.<br>
+     * Only server side objects are registered.
+     *
+     * @param caller the caller
+     */
     private void registerAutoSync(Object caller) {
-        if (syncCache.get(caller) != null) return;
+        if (caller == null || autoSynced.containsKey(caller)) return;
+        if (FMLCommonHandler.instance().getEffectiveSide() == Side.CLIENT) return;
+
+        ISyncHandler<?, ? extends ISyncableData> handler = getHandler(caller);
+        DoubleKeyMap<String, FieldData> fields = getFields(caller);
+        if (handler == null || fields == null || fields.size() == 0) return;
 
-        // HashMap<String, Object> values = getFieldValues(caller, handler, syncNames)
+        autoSynced.put(caller, new AutoSyncState(handler, fields));
     }
 
     /**
-     * Update the fields values for the receiver object.
+     * Keeps track of the players starting to watch a chunk, so that they receive all the fields of the objects
+     * registered for automatic synchronization in that chunk at the end of the tick.
+     *
+     * @param event the event
+     */
+    @SubscribeEvent
+    public void onChunkWatch(ChunkWatchEvent.Watch event) {
+        if (autoSynced.isEmpty()) return;
+
+        Chunk chunk = event.player.worldObj.getChunkFromChunkCoords(event.chunk.chunkXPos, event.chunk.chunkZPos);
+        List<EntityPlayerMP> players = newWatchers.get(chunk);
+        if (players == null) {
+            players = new ArrayList<>(1);
+            newWatchers.put(chunk, players);
+        }
+        players.add(event.player);
+    }
+
+    /**
+     * Compares the {@link Sync} fields of the objects registered for automatic synchronization with the values last
+     * sent, and sends the ones that changed.<br>
+     * Objects no longer valid for their {@link ISyncHandler} are released.<br>
+     * Players that started watching the chunk of an object during the tick receive all its fields.<br>
+     * The packets queued during the tick are then sent, grouped by player.
+     *
+     * @param event the event
+     */
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+
+        Iterator<Entry<Object, AutoSyncState>> it = autoSynced.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<Object, AutoSyncState> entry = it.next();
+            Object caller = entry.getKey();
+            AutoSyncState state = entry.getValue();
+            if (!state.handler.isValid(caller)) {
+                it.remove();
+                continue;
+            }
+
+            ByteBuf values = state.update(caller, compareBuffer);
+            if (values != null) send(caller, state.handler, (BitSet) state.dirty.clone(), values);
+
+            if (newWatchers.isEmpty()) continue;
+            List<EntityPlayerMP> players = newWatchers.get(state.handler.getChunk(caller));
+            if (players != null) sendAll(caller, state, players);
+        }
+        newWatchers.clear();
+
+        SyncerMessage.sendQueued();
+    }
+
+    /**
+     * Sends all the values last sent for the object to the players.
+     *
+     * @param caller  the caller
+     * @param state   the state
+     * @param players the players
+     */
+    private void sendAll(Object caller, AutoSyncState state, List<EntityPlayerMP> players) {
+        BitSet indexes = new BitSet(state.values.length);
+        indexes.set(0, state.values.length);
+        ByteBuf values = Unpooled.buffer();
+        for (byte[] value : state.values) values.writeBytes(value);
+
+        SyncerMessage.Packet packet = new Packet<>(state.handler, state.handler.getSyncData(caller), indexes, values);
+        for (EntityPlayerMP player : players) SyncerMessage.queue(packet, player);
+    }
+
+    /**
+     * Update the fields values for the receiver object.<br>
+     * The values are read from the {@link ByteBuf} in the order of their indexes.
      *
      * @param receiver the caller
-     * @param handler  the handler
+     * @param indexes  the indexes
      * @param values   the values
      */
-    public void updateValues(Object receiver, ISyncHandler<?, ? extends ISyncableData> handler,
-            Map<String, Object> values) {
-        if (receiver == null || handler == null) return;
+    public void updateValues(Object receiver, BitSet indexes, ByteBuf values) {
+        DoubleKeyMap<String, FieldData> fields = getFields(receiver);
+        if (fields == null) return;
 
-        for (Entry<String, Object> entry : values.entrySet()) {
-            try {
-                FieldData fd = handler.getFieldData(entry.getKey());
-                if (fd != null) fd.getField().set(receiver, entry.getValue());
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                MalisisCore.log.error(
-                        "Failed to update {} field for {}.",
-                        entry.getKey(),
-                        receiver.getClass().getSimpleName(),
-                        e);
+        for (int index = indexes.nextSetBit(0); index >= 0; index = indexes.nextSetBit(index + 1)) {
+            if (index >= fields.size()) {
+                // the following values can't be located anymore
+                MalisisCore.log.error("No field with index {} for {}.", index, receiver.getClass().getSimpleName());
+                return;
             }
+            fields.get(index).getAccessor().read(receiver, values);
         }
     }
 
@@ -242,7 +400,72 @@ public class Syncer {
         get().doSync(caller, syncNames);
     }
 
+    /**
+     * Registers the object to have its {@link Sync} fields automatically synchronized at the end of each tick, whenever
+     * they change.
+     *
+     * @param caller the caller
+     */
     public static void autoSync(Object caller) {
         get().registerAutoSync(caller);
     }
+
+    /**
+     * Stops the automatic synchronization for the object.
+     *
+     * @param caller the caller
+     */
+    public static void stopAutoSync(Object caller) {
+        if (caller != null) get().autoSynced.remove(caller);
+    }
+
+    /**
+     * Values last sent for an object registered for automatic synchronization.
+     */
+    private static class AutoSyncState {
+
+        private ISyncHandler handler;
+        private DoubleKeyMap<String, FieldData> fields;
+        /** Serialized values, by field index. Null until first sent. */
+        private byte[][] values;
+        /** Indexes of the fields changed during the last update. */
+        private BitSet dirty;
+
+        public AutoSyncState(ISyncHandler<?, ? extends ISyncableData> handler, DoubleKeyMap<String, FieldData> fields) {
+            this.handler = handler;
+            this.fields = fields;
+            this.values = new byte[fields.size()][];
+            this.dirty = new BitSet(fields.size());
+        }
+
+        /**
+         * Serializes the fields of the caller and compares them to the values last sent.
+         *
+         * @param caller the caller
+         * @param buf    the buffer used for the comparison
+         * @return the values of the changed fields, in the order of their indexes, or null if none changed
+         */
+        public ByteBuf update(Object caller, ByteBuf buf) {
+            ByteBuf changed = null;
+            dirty.clear();
+            for (int index = 0; index < values.length; index++) {
+                buf.clear();
+                fields.get(index).getAccessor().write(caller, buf);
+                if (isSame(values[index], buf)) continue;
+
+                values[index] = new byte[buf.readableBytes()];
+                buf.getBytes(buf.readerIndex(), values[index]);
+                if (changed == null) changed = Unpooled.buffer();
+                changed.writeBytes(values[index]);
+                dirty.set(index);
+            }
+            return changed;
+        }
+
+        private boolean isSame(byte[] value, ByteBuf buf) {
+            if (value == null || value.length != buf.readableBytes()) return false;
+            for (int i = 0; i < value.length; i++) if (value[i] != buf.getByte(buf.readerIndex() + i)) return false;
+            return true;
+        }
+    }
 }
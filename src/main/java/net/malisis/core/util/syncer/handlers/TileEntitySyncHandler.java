@@ -13,12 +13,13 @@
 
 package net.malisis.core.util.syncer.handlers;
 
-import net.malisis.core.MalisisCore;
 import net.malisis.core.util.syncer.ISyncableData;
 import net.malisis.core.util.syncer.handlers.TileEntitySyncHandler.TESyncData;
+import net.malisis.core.util.syncer.message.SyncerMessage;
 import net.malisis.core.util.syncer.message.SyncerMessage.Packet;
 import net.minecraft.client.Minecraft;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.chunk.Chunk;
 
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import io.netty.buffer.ByteBuf;
@@ -44,11 +45,24 @@ public class TileEntitySyncHandler extends DefaultSyncHandler<TileEntity, TESync
         return new TESyncData(caller);
     }
 
+    @Override
+    public boolean isValid(TileEntity caller) {
+        if (caller == null || caller.isInvalid()) return false;
+        // not placed yet
+        if (!caller.hasWorldObj()) return true;
+        return caller.getWorldObj().blockExists(caller.xCoord, caller.yCoord, caller.zCoord);
+    }
+
+    @Override
+    public Chunk getChunk(TileEntity caller) {
+        if (!caller.hasWorldObj()) return null;
+        return caller.getWorldObj().getChunkFromChunkCoords(caller.xCoord >> 4, caller.zCoord >> 4);
+    }
+
     @Override
     public void send(TileEntity caller, Packet packet) {
-        MalisisCore.network.sendToPlayersWatchingChunk(
-                packet,
-                caller.getWorldObj().getChunkFromChunkCoords(caller.xCoord >> 4, caller.zCoord >> 4));
+        Chunk chunk = getChunk(caller);
+        if (chunk != null) SyncerMessage.queue(packet, chunk);
     }
 
     public static class TESyncData implements ISyncableData {
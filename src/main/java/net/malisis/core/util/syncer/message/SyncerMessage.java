@@ -13,17 +13,22 @@
 
 package net.malisis.core.util.syncer.message;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import net.malisis.core.MalisisCore;
-import net.malisis.core.inventory.MalisisInventoryContainer;
+import net.malisis.core.network.BulkTransport;
 import net.malisis.core.network.MalisisMessage;
-import net.malisis.core.util.syncer.FieldData;
+import net.malisis.core.util.EntityUtils;
 import net.malisis.core.util.syncer.ISyncHandler;
 import net.malisis.core.util.syncer.ISyncableData;
 import net.malisis.core.util.syncer.Syncer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.chunk.Chunk;
 
 import cpw.mods.fml.common.network.ByteBufUtils;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
@@ -31,9 +36,12 @@ import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
 import cpw.mods.fml.relauncher.Side;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 /**
- * Message to update the slots in the opened {@link MalisisInventoryContainer} on the client.
+ * Message to update the {@link net.malisis.core.util.syncer.Sync} fields of objects on the client.<br>
+ * Packets queued with {@link #queue(Packet, Chunk)} or {@link #queue(Packet, EntityPlayerMP)} are grouped at the end
+ * of the tick into a single {@link BatchPacket} for each player watching their chunks.
  *
  * @author Ordinastie
  *
@@ -41,8 +49,21 @@ import io.netty.buffer.ByteBuf;
 @MalisisMessage
 public class SyncerMessage implements IMessageHandler<SyncerMessage.Packet, IMessage> {
 
+    /** Maximum size of the payload of a packet sent to the client. */
+    private static final int MAX_PAYLOAD = 1 << 20;
+    /** Bytes reserved for the discriminator and the record count of a {@link BatchPacket}. */
+    private static final int BATCH_OVERHEAD = 1024;
+    /** Maximum size of the records sent in a single {@link BatchPacket}, length prefixes included. */
+    static final int MAX_BATCH_SIZE = MAX_PAYLOAD - BATCH_OVERHEAD;
+
+    /** Packets queued during the tick, by chunk. */
+    private static Map<Chunk, List<Packet>> queued = new LinkedHashMap<>();
+    /** Packets queued during the tick for a single player. */
+    private static Map<EntityPlayerMP, List<Packet>> queuedPlayers = new LinkedHashMap<>();
+
     public SyncerMessage() {
         MalisisCore.network.registerMessage(this, Packet.class, Side.CLIENT);
+        MalisisCore.network.registerMessage(new BatchHandler(), BatchPacket.class, Side.CLIENT);
     }
 
     /**
@@ -56,24 +77,122 @@ public class SyncerMessage implements IMessageHandler<SyncerMessage.Packet, IMes
     @Override
     public IMessage onMessage(Packet message, MessageContext ctx) {
         if (ctx.side == Side.CLIENT) {
-            Object caller = message.handler.getReceiver(ctx, message.data);
-            Syncer.get().updateValues(caller, message.handler, message.values);
+            if (message.handler != null) {
+                Object caller = message.handler.getReceiver(ctx, message.data);
+                Syncer.get().updateValues(caller, message.indexes, message.values);
+            }
         }
 
         return null;
     }
 
+    /**
+     * Queues the {@link Packet} to be sent at the end of the tick to the players watching the {@link Chunk}.
+     *
+     * @param packet the packet
+     * @param chunk  the chunk
+     */
+    public static synchronized void queue(Packet packet, Chunk chunk) {
+        List<Packet> packets = queued.get(chunk);
+        if (packets == null) {
+            packets = new ArrayList<>();
+            queued.put(chunk, packets);
+        }
+        packets.add(packet);
+    }
+
+    /**
+     * Queues the {@link Packet} to be sent at the end of the tick to the player only.
+     *
+     * @param packet the packet
+     * @param player the player
+     */
+    public static synchronized void queue(Packet packet, EntityPlayerMP player) {
+        List<Packet> packets = queuedPlayers.get(player);
+        if (packets == null) {
+            packets = new ArrayList<>();
+            queuedPlayers.put(player, packets);
+        }
+        packets.add(packet);
+    }
+
+    /**
+     * Sends the queued {@link Packet packets}.<br>
+     * The players watching each chunk are looked up once, and each player receives a single {@link BatchPacket} holding
+     * all the records for the chunks it watches. Each record is serialized once and shared by all the batches.
+     */
+    public static synchronized void sendQueued() {
+        if (queued.isEmpty() && queuedPlayers.isEmpty()) return;
+
+        Map<EntityPlayerMP, BatchPacket> batches = new LinkedHashMap<>();
+        for (Entry<Chunk, List<Packet>> entry : queued.entrySet()) {
+            List<EntityPlayerMP> players = EntityUtils.getPlayersWatchingChunk(entry.getKey());
+            if (players.isEmpty()) continue;
+
+            for (Packet packet : entry.getValue()) {
+                for (EntityPlayerMP player : players) add(batches, player, packet);
+            }
+        }
+        queued.clear();
+
+        for (Entry<EntityPlayerMP, List<Packet>> entry : queuedPlayers.entrySet()) {
+            for (Packet packet : entry.getValue()) add(batches, entry.getKey(), packet);
+        }
+        queuedPlayers.clear();
+
+        for (Entry<EntityPlayerMP, BatchPacket> entry : batches.entrySet())
+            MalisisCore.network.sendTo(entry.getValue(), entry.getKey());
+    }
+
+    /**
+     * Adds the record of the {@link Packet} to the {@link BatchPacket} of the player. The batch is sent first if the
+     * record does not fit.<br>
+     * Records too large for any batch are sent on their own through the {@link BulkTransport}, after the batch.
+     *
+     * @param batches the batches
+     * @param player  the player
+     * @param packet  the packet
+     */
+    private static void add(Map<EntityPlayerMP, BatchPacket> batches, EntityPlayerMP player, Packet packet) {
+        ByteBuf record = packet.encode();
+        int size = BatchPacket.recordSize(record);
+        BatchPacket batch = batches.get(player);
+        if (batch != null && batch.size + size > MAX_BATCH_SIZE) {
+            MalisisCore.network.sendTo(batch, player);
+            batches.remove(player);
+            batch = null;
+        }
+
+        if (size > MAX_BATCH_SIZE) {
+            if (record.readableBytes() > BulkTransport.MAX_PAYLOAD) MalisisCore.log.error(
+                    "[SyncerMessage] Discarding a record of {} bytes for {}.",
+                    record.readableBytes(),
+                    player.getCommandSenderName());
+            else MalisisCore.network.sendBulkTo(packet, player);
+            return;
+        }
+
+        if (batch == null) {
+            batch = new BatchPacket();
+            batches.put(player, batch);
+        }
+        batch.add(record);
+    }
+
     public static class Packet<T> implements IMessage {
 
         private ISyncHandler<? super T, ? extends ISyncableData> handler;
         private ISyncableData data;
-        private int indexes;
-        private Map<String, Object> values;
+        private BitSet indexes;
+        /** Values of the fields, already serialized in the order of their indexes. */
+        private ByteBuf values;
+        /** Whole packet, serialized once. */
+        private ByteBuf encoded;
 
         public Packet() {}
 
-        public Packet(ISyncHandler<? super T, ? extends ISyncableData> handler, ISyncableData data, int fieldIndexes,
-                Map<String, Object> fieldValues) {
+        public Packet(ISyncHandler<? super T, ? extends ISyncableData> handler, ISyncableData data, BitSet fieldIndexes,
+                ByteBuf fieldValues) {
             this.handler = handler;
             this.data = data;
             this.indexes = fieldIndexes;
@@ -83,7 +202,8 @@ public class SyncerMessage implements IMessageHandler<SyncerMessage.Packet, IMes
         @Override
         public void fromBytes(ByteBuf buf) {
             // handler
-            handler = (ISyncHandler<? super T, ? extends ISyncableData>) Syncer.get().getHandlerFromId(buf.readInt());
+            handler = (ISyncHandler<? super T, ? extends ISyncableData>) Syncer.get()
+                    .getHandlerFromId(ByteBufUtils.readVarInt(buf, 5));
             if (handler == null) return;
 
             // data
@@ -91,76 +211,107 @@ public class SyncerMessage implements IMessageHandler<SyncerMessage.Packet, IMes
             data.fromBytes(buf);
 
             // indexes
-            indexes = buf.readInt();
+            byte[] bytes = new byte[ByteBufUtils.readVarInt(buf, 5)];
+            buf.readBytes(bytes);
+            indexes = BitSet.valueOf(bytes);
 
-            // values
-            values = new HashMap<>();
-
-            int index = 0;
-            Object data;
-            Class<?> clazz;
-            while (indexes > 0) {
-                if ((indexes & 1) != 0) {
-                    data = null;
-                    FieldData fd = handler.getFieldData(index);
-                    clazz = fd.getField().getType();
-
-                    if (ISyncableData.class.isAssignableFrom(clazz)) {
-                        if (buf.readBoolean()) {
-                            try {
-                                data = clazz.newInstance();
-                                ((ISyncableData) data).fromBytes(buf);
-                            } catch (InstantiationException | IllegalAccessException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    } else if (clazz == String.class) {
-                        if (buf.readBoolean()) data = ByteBufUtils.readUTF8String(buf);
-                    } else if (clazz == boolean.class) data = buf.readBoolean();
-                    else if (clazz == byte.class) data = buf.readByte();
-                    else if (clazz == int.class) data = buf.readInt();
-                    else if (clazz == long.class) data = buf.readLong();
-                    else if (clazz == char.class) data = buf.readChar();
-                    else if (clazz == short.class) data = buf.readShort();
-                    else if (clazz == float.class) data = buf.readFloat();
-                    else if (clazz == double.class) data = buf.readDouble();
-
-                    values.put(fd.getName(), data);
-                }
-
-                indexes = indexes >> 1;
-                index++;
-            }
+            // values, read into the fields once the receiver is known
+            values = buf.readBytes(buf.readableBytes());
         }
 
-        @Override
-        public void toBytes(ByteBuf buf) {
+        /**
+         * Serializes this {@link Packet} once.<br>
+         * The returned buffer is shared and must not be read from directly.
+         *
+         * @return the buffer
+         */
+        public ByteBuf encode() {
+            if (encoded != null) return encoded;
+
+            encoded = Unpooled.buffer();
             // handler
-            buf.writeInt(Syncer.get().getHandlerId(handler));
+            ByteBufUtils.writeVarInt(encoded, Syncer.get().getHandlerId(handler), 5);
             // data
-            data.toBytes(buf);
+            data.toBytes(encoded);
             // indexes
-            buf.writeInt(indexes);
-
+            byte[] bytes = indexes.toByteArray();
+            ByteBufUtils.writeVarInt(encoded, bytes.length, 5);
+            encoded.writeBytes(bytes);
             // values
-            for (Entry<String, Object> entry : values.entrySet()) {
-                Object obj = entry.getValue();
-
-                if (obj == null) obj = false;
-                else if (obj instanceof ISyncableData) {
-                    buf.writeBoolean(true);
-                    ((ISyncableData) obj).toBytes(buf);
-                } else if (obj instanceof String) {
-                    buf.writeBoolean(true);
-                    ByteBufUtils.writeUTF8String(buf, (String) obj);
-                } else if (obj instanceof Boolean) buf.writeBoolean((boolean) obj);
-                else if (obj instanceof Byte) buf.writeByte((byte) obj);
-                else if (obj instanceof Integer) buf.writeInt((int) obj);
-                else if (obj instanceof Long) buf.writeLong((long) obj);
-                else if (obj instanceof Character) buf.writeChar((char) obj);
-                else if (obj instanceof Short) buf.writeShort((short) obj);
-                else if (obj instanceof Float) buf.writeFloat((float) obj);
-                else if (obj instanceof Double) buf.writeDouble((double) obj);
+            encoded.writeBytes(values, values.readerIndex(), values.readableBytes());
+            return encoded;
+        }
+
+        @Override
+        public void toBytes(ByteBuf buf) {
+            // the packet can be sent to several players
+            ByteBuf encoded = encode();
+            buf.writeBytes(encoded, encoded.readerIndex(), encoded.readableBytes());
+        }
+    }
+
+    /**
+     * Handles the received {@link BatchPacket} on the client.
+     */
+    public static class BatchHandler implements IMessageHandler<BatchPacket, IMessage> {
+
+        @Override
+        public IMessage onMessage(BatchPacket message, MessageContext ctx) {
+            if (ctx.side != Side.CLIENT) return null;
+
+            for (Packet packet : message.packets) {
+                if (packet.handler == null) continue;
+                Object caller = packet.handler.getReceiver(ctx, packet.data);
+                Syncer.get().updateValues(caller, packet.indexes, packet.values);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Several {@link Packet} records sent at once to a player, each prefixed with its length.
+     */
+    public static class BatchPacket implements IMessage {
+
+        private List<ByteBuf> records = new ArrayList<>();
+        private List<Packet> packets = new ArrayList<>();
+        /** Size of the records, length prefixes included. */
+        private int size = 0;
+
+        public BatchPacket() {}
+
+        void add(ByteBuf record) {
+            records.add(record);
+            size += recordSize(record);
+        }
+
+        /**
+         * Gets the number of bytes written for the record, length prefix included.
+         *
+         * @param record the record
+         * @return the size
+         */
+        static int recordSize(ByteBuf record) {
+            return ByteBufUtils.varIntByteCount(record.readableBytes()) + record.readableBytes();
+        }
+
+        @Override
+        public void fromBytes(ByteBuf buf) {
+            int count = ByteBufUtils.readVarInt(buf, 5);
+            for (int i = 0; i < count; i++) {
+                int length = ByteBufUtils.readVarInt(buf, 5);
+                Packet packet = new Packet();
+                packet.fromBytes(buf.readSlice(length));
+                packets.add(packet);
+            }
+        }
+
+        @Override
+        public void toBytes(ByteBuf buf) {
+            ByteBufUtils.writeVarInt(buf, records.size(), 5);
+            for (ByteBuf record : records) {
+                ByteBufUtils.writeVarInt(buf, record.readableBytes(), 5);
+                buf.writeBytes(record, record.readerIndex(), record.readableBytes());
             }
         }
     }
@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.inventory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.malisis.core.inventory.message.UpdateInventorySlotsMessage;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import org.junit.jupiter.api.Test;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Updates of a {@link MalisisInventory} shared by the containers of several players.
+ *
+ * @author Ordinastie
+ *
+ */
+public class MalisisInventoryTest {
+
+    private static final int SIZE = 27;
+    private static final int VIEWERS = 50;
+
+    private static Item item = new Item();
+
+    /**
+     * Simulates the shared inventory part of a {@link MalisisInventoryContainer}, the same way
+     * {@link MalisisInventoryContainer#detectSharedInventoryChanges} does.
+     */
+    private static class Viewer {
+
+        private int sentVersion = -1;
+
+        private UpdateInventorySlotsMessage.Packet update(MalisisInventory inventory, int tick) {
+            inventory.updateOpenedContainers(tick);
+            UpdateInventorySlotsMessage.Packet packet = new UpdateInventorySlotsMessage.Packet(1);
+            sentVersion = inventory.addUpdate(packet, sentVersion);
+            return packet;
+        }
+    }
+
+    private static MalisisInventory createInventory() {
+        MalisisInventory inventory = new MalisisInventory(null, SIZE);
+        inventory.setInventoryId(1);
+        return inventory;
+    }
+
+    private static List<Viewer> createViewers() {
+        List<Viewer> viewers = new ArrayList<>();
+        for (int i = 0; i < VIEWERS; i++) viewers.add(new Viewer());
+        return viewers;
+    }
+
+    /**
+     * Gets the slot numbers of the records of the packet, as serialized.<br>
+     * The test items are not registered, so the itemStacks are skipped using the encoding cached in the slot.
+     */
+    private static int[] slotNumbers(MalisisInventory inventory, UpdateInventorySlotsMessage.Packet packet) {
+        ByteBuf buf = Unpooled.buffer();
+        packet.toBytes(buf);
+        buf.readInt();
+        int[] slots = new int[ByteBufUtils.readVarInt(buf, 5)];
+        for (int i = 0; i < slots.length; i++) {
+            assertEquals(1, ByteBufUtils.readVarInt(buf, 5));
+            slots[i] = ByteBufUtils.readVarInt(buf, 5);
+            if (buf.readBoolean()) ByteBufUtils.readVarInt(buf, 5);
+            else buf.skipBytes(inventory.getSlot(slots[i]).getEncodedItemStack().length);
+        }
+        return slots;
+    }
+
+    private static int[] allSlots() {
+        int[] slots = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) slots[i] = i;
+        return slots;
+    }
+
+    @Test
+    public void testFirstUpdateSendsEverything() {
+        MalisisInventory inventory = createInventory();
+        for (Viewer viewer : createViewers())
+            assertArrayEquals(allSlots(), slotNumbers(inventory, viewer.update(inventory, 0)));
+    }
+
+    @Test
+    public void testChangesSharedByAllViewers() {
+        MalisisInventory inventory = createInventory();
+        List<Viewer> viewers = createViewers();
+        for (Viewer viewer : viewers) viewer.update(inventory, 0);
+
+        inventory.getSlot(3).setItemStack(new ItemStack(item, 10));
+        inventory.getSlot(7).setItemStack(new ItemStack(item, 1));
+        for (Viewer viewer : viewers)
+            assertArrayEquals(new int[] { 3, 7 }, slotNumbers(inventory, viewer.update(inventory, 1)));
+
+        // detected and serialized once for all the viewers
+        assertEquals(1, inventory.getUpdateVersion());
+        assertEquals(2, inventory.getSharedUpdate().getCount());
+
+        // nothing changed
+        for (Viewer viewer : viewers)
+            assertEquals(0, slotNumbers(inventory, viewer.update(inventory, 2)).length);
+        assertEquals(1, inventory.getUpdateVersion());
+    }
+
+    @Test
+    public void testSizeChangeOnly() {
+        MalisisInventory inventory = createInventory();
+        Viewer viewer = new Viewer();
+        ItemStack itemStack = new ItemStack(item, 10);
+        inventory.getSlot(5).setItemStack(itemStack);
+        viewer.update(inventory, 0);
+
+        // modified in place, only caught by the full check
+        itemStack.stackSize = 20;
+        for (int tick = 1; tick < MalisisInventoryContainer.FULL_CHECK_INTERVAL; tick++)
+            assertEquals(0, slotNumbers(inventory, viewer.update(inventory, tick)).length);
+        int tick = MalisisInventoryContainer.FULL_CHECK_INTERVAL;
+        assertArrayEquals(new int[] { 5 }, slotNumbers(inventory, viewer.update(inventory, tick)));
+    }
+
+    @Test
+    public void testMissedVersionSendsEverything() {
+        MalisisInventory inventory = createInventory();
+        List<Viewer> viewers = createViewers();
+        for (Viewer viewer : viewers) viewer.update(inventory, 0);
+
+        // the last viewer is not updated on tick 1, like a player whose container was not ticked
+        inventory.getSlot(0).setItemStack(new ItemStack(item, 1));
+        for (Viewer viewer : viewers.subList(0, VIEWERS - 1)) viewer.update(inventory, 1);
+
+        inventory.getSlot(1).setItemStack(new ItemStack(item, 2));
+        for (Viewer viewer : viewers.subList(0, VIEWERS - 1))
+            assertArrayEquals(new int[] { 1 }, slotNumbers(inventory, viewer.update(inventory, 2)));
+
+        Viewer late = viewers.get(VIEWERS - 1);
+        assertArrayEquals(allSlots(), slotNumbers(inventory, late.update(inventory, 2)));
+        // back in sync afterwards
+        inventory.getSlot(2).setItemStack(new ItemStack(item, 3));
+        assertArrayEquals(new int[] { 2 }, slotNumbers(inventory, late.update(inventory, 3)));
+    }
+
+    @Test
+    public void testViewerOpenedLater() {
+        MalisisInventory inventory = createInventory();
+        Viewer first = new Viewer();
+        first.update(inventory, 0);
+        inventory.getSlot(4).setItemStack(new ItemStack(item, 4));
+        first.update(inventory, 1);
+
+        Viewer second = new Viewer();
+        assertArrayEquals(allSlots(), slotNumbers(inventory, second.update(inventory, 1)));
+    }
+}
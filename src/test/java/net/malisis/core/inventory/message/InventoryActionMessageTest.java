@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.inventory.message;
+
+import static net.malisis.core.inventory.MalisisInventoryContainer.ActionType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.malisis.core.inventory.MalisisInventoryContainer;
+import net.malisis.core.inventory.MalisisInventoryContainer.ActionType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Limits applied by the {@link InventoryActionMessage.ActionLimiter} to the actions sent by a player.
+ *
+ * @author Ordinastie
+ *
+ */
+public class InventoryActionMessageTest {
+
+    private static final long MS = 1000000L;
+    private static final int SPREAD = MalisisInventoryContainer.DRAG_TYPE_SPREAD;
+    private static final int PICKUP = MalisisInventoryContainer.DRAG_TYPE_PICKUP;
+
+    /** Action recorded from a client, with the time it was received and the drag type of the container then. */
+    private static class RecordedAction {
+
+        private final long time;
+        private final ActionType action;
+        private final int dragType;
+
+        private RecordedAction(long time, ActionType action, int dragType) {
+            this.time = time;
+            this.action = action;
+            this.dragType = dragType;
+        }
+    }
+
+    /**
+     * Builds the action stream of a player sorting a chest: clicks, drags spreading stacks over the 27 slots of the
+     * chest with the mouse moved back and forth, and a burst of shift clicks.
+     */
+    private static List<RecordedAction> recordedStream() {
+        List<RecordedAction> stream = new ArrayList<>();
+        long time = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 4; i++)
+                stream.add(new RecordedAction(time += 150 * MS, i % 2 == 0 ? LEFT_CLICK : RIGHT_CLICK, -1));
+
+            stream.add(new RecordedAction(time += 100 * MS, DRAG_START_LEFT_CLICK, -1));
+            for (int pass = 0; pass < 4; pass++)
+                for (int slot = 0; slot < 27; slot++)
+                    stream.add(new RecordedAction(time += 2 * MS, DRAG_ADD_SLOT, SPREAD));
+            stream.add(new RecordedAction(time += 50 * MS, DRAG_END, SPREAD));
+
+            for (int i = 0; i < 30; i++)
+                stream.add(new RecordedAction(time += 10 * MS, SHIFT_LEFT_CLICK, -1));
+        }
+        return stream;
+    }
+
+    @Test
+    public void testBurstLimit() {
+        InventoryActionMessage.ActionLimiter limiter = new InventoryActionMessage.ActionLimiter(0);
+        for (int i = 0; i < InventoryActionMessage.maxActions; i++)
+            assertTrue(limiter.tryAcquire(LEFT_CLICK, -1, 0));
+        assertFalse(limiter.tryAcquire(LEFT_CLICK, -1, 0));
+
+        // refilled over time
+        long refill = 1000 * MS / InventoryActionMessage.actionsPerSecond;
+        assertTrue(limiter.tryAcquire(LEFT_CLICK, -1, refill));
+        assertFalse(limiter.tryAcquire(LEFT_CLICK, -1, refill));
+    }
+
+    @Test
+    public void testDraggedSlotsNotCharged() {
+        InventoryActionMessage.ActionLimiter limiter = new InventoryActionMessage.ActionLimiter(0);
+        for (int i = 0; i < 1000; i++)
+            assertTrue(limiter.tryAcquire(DRAG_ADD_SLOT, SPREAD, 0));
+
+        // the whole burst is still available
+        for (int i = 0; i < InventoryActionMessage.maxActions; i++)
+            assertTrue(limiter.tryAcquire(LEFT_CLICK, -1, 0));
+        assertFalse(limiter.tryAcquire(LEFT_CLICK, -1, 0));
+
+        // picking up stacks while dragging modifies the slots, so it is charged
+        assertFalse(limiter.tryAcquire(DRAG_ADD_SLOT, PICKUP, 0));
+        assertFalse(limiter.tryAcquire(DRAG_ADD_SLOT, -1, 0));
+    }
+
+    @Test
+    public void testDragEndNeverDropped() {
+        InventoryActionMessage.ActionLimiter limiter = new InventoryActionMessage.ActionLimiter(0);
+        for (int i = 0; i < InventoryActionMessage.maxActions; i++)
+            assertTrue(limiter.tryAcquire(LEFT_CLICK, -1, 0));
+
+        assertTrue(limiter.tryAcquire(DRAG_END, SPREAD, 0));
+        assertTrue(limiter.tryAcquire(DRAG_RESET, SPREAD, 0));
+        assertFalse(limiter.tryAcquire(DRAG_START_LEFT_CLICK, -1, 0));
+    }
+
+    @Test
+    public void testRecordedStream() {
+        InventoryActionMessage.ActionLimiter limiter = new InventoryActionMessage.ActionLimiter(0);
+        for (RecordedAction a : recordedStream())
+            assertTrue(limiter.tryAcquire(a.action, a.dragType, a.time), a.action + " dropped at " + a.time / MS);
+    }
+
+    /**
+     * Replays the recorded stream through the limiter. Run with MALISIS_BENCHMARK=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MALISIS_BENCHMARK", matches = "true")
+    public void benchmarkRecordedStream() {
+        List<RecordedAction> stream = recordedStream();
+        int charged = 0;
+        int rounds = 2000;
+        long start = 0;
+        for (int round = -200; round < rounds; round++) {
+            if (round == 0) start = System.nanoTime();
+            InventoryActionMessage.ActionLimiter limiter = new InventoryActionMessage.ActionLimiter(0);
+            for (RecordedAction a : stream)
+                if (limiter.tryAcquire(a.action, a.dragType, a.time) && a.action != DRAG_ADD_SLOT) charged++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("Replayed %d actions: %.1f ns per action, %d charged per replay",
+                stream.size(),
+                (double) elapsed / rounds / stream.size(),
+                charged / (rounds + 200)));
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.network;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.malisis.core.MalisisCore;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.relauncher.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Split and reassembly of the messages sent through the {@link BulkTransport}, and limits of the server.
+ *
+ * @author Ordinastie
+ *
+ */
+public class BulkTransportTest {
+
+    private BulkTransport transport;
+    /** Sender of the server bound messages, as a player would be. */
+    private Object sender = new Object();
+
+    public static class DataMessage implements IMessage {
+
+        private byte[] data;
+
+        public DataMessage() {}
+
+        public DataMessage(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public void fromBytes(ByteBuf buf) {
+            data = new byte[buf.readInt()];
+            buf.readBytes(data);
+        }
+
+        @Override
+        public void toBytes(ByteBuf buf) {
+            buf.writeInt(data.length);
+            buf.writeBytes(data);
+        }
+    }
+
+    @BeforeAll
+    public static void setUpLog() {
+        if (MalisisCore.log == null) MalisisCore.log = LogManager.getLogger("BulkTransportTest");
+    }
+
+    @BeforeEach
+    public void setUp() {
+        transport = new BulkTransport(null);
+        transport.register(0, DataMessage.class, null, null, Side.SERVER);
+        transport.register(1, DataMessage.class, null, null, Side.CLIENT);
+        transport.setServerBound(true);
+    }
+
+    private List<BulkTransport.BulkPacket> encode(byte[] data) {
+        return transport.encode(new DataMessage(data), Side.SERVER);
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] repeated(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i % 7);
+        return data;
+    }
+
+    /** Serializes the part the way the channel would. */
+    private static BulkTransport.BulkPacket send(BulkTransport.BulkPacket packet) {
+        ByteBuf buf = Unpooled.buffer();
+        packet.toBytes(buf);
+        BulkTransport.BulkPacket read = new BulkTransport.BulkPacket();
+        read.fromBytes(buf);
+        assertFalse(buf.isReadable());
+        return read;
+    }
+
+    private IMessage receiveAll(List<BulkTransport.BulkPacket> packets) {
+        IMessage message = null;
+        for (int i = 0; i < packets.size(); i++) {
+            message = transport.receive(sender, send(packets.get(i)));
+            if (i < packets.size() - 1) assertNull(message);
+        }
+        return message;
+    }
+
+    private static void assertData(byte[] expected, IMessage message) {
+        assertTrue(message instanceof DataMessage);
+        assertArrayEquals(expected, ((DataMessage) message).data);
+    }
+
+    @Test
+    public void testSmallMessageSentAsIs() {
+        assertNull(encode(random(100)));
+        assertNull(transport.encode(new DataMessage(random(100)), Side.CLIENT));
+    }
+
+    @Test
+    public void testServerBoundDisabled() {
+        transport.setServerBound(false);
+        assertNull(encode(random(100000)));
+        assertNotNull(transport.encode(new DataMessage(random(100000)), Side.CLIENT));
+    }
+
+    @Test
+    public void testCompressed() {
+        byte[] data = repeated(200000);
+        List<BulkTransport.BulkPacket> packets = encode(data);
+        assertNotNull(packets);
+        assertData(data, receiveAll(packets));
+        assertEquals(0, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testSplit() {
+        // random data does not compress, so it is sent in several parts
+        byte[] data = random(100000);
+        List<BulkTransport.BulkPacket> packets = encode(data);
+        assertEquals(4, packets.size());
+        assertData(data, receiveAll(packets));
+        assertEquals(0, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testOutOfOrder() {
+        byte[] data = random(100000);
+        List<BulkTransport.BulkPacket> packets = encode(data);
+        Collections.reverse(packets);
+        assertData(data, receiveAll(packets));
+
+        packets = encode(data);
+        Collections.shuffle(packets, new Random(1));
+        assertData(data, receiveAll(packets));
+        assertEquals(0, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testDuplicatePart() {
+        byte[] data = random(100000);
+        List<BulkTransport.BulkPacket> packets = encode(data);
+        assertNull(transport.receive(sender, send(packets.get(0))));
+        assertNull(transport.receive(sender, send(packets.get(0))));
+        assertData(data, receiveAll(packets.subList(1, packets.size())));
+    }
+
+    @Test
+    public void testInterleaved() {
+        byte[] first = random(100000);
+        byte[] second = random(70000);
+        List<BulkTransport.BulkPacket> a = encode(first);
+        List<BulkTransport.BulkPacket> b = encode(second);
+        assertEquals(4, a.size());
+        assertEquals(3, b.size());
+
+        for (int i = 0; i < 3; i++) assertNull(transport.receive(sender, send(a.get(i))));
+        assertNull(transport.receive(sender, send(b.get(0))));
+        assertNull(transport.receive(sender, send(b.get(1))));
+        assertData(second, transport.receive(sender, send(b.get(2))));
+        assertData(first, transport.receive(sender, send(a.get(3))));
+    }
+
+    @Test
+    public void testDroppedPart() {
+        byte[] data = random(100000);
+        List<BulkTransport.BulkPacket> packets = encode(data);
+        for (int i = 0; i < packets.size() - 1; i++) assertNull(transport.receive(sender, send(packets.get(i))));
+        assertEquals(1, transport.getPendingCount(sender));
+
+        // the next transfer goes through despite the incomplete one
+        byte[] next = random(50000);
+        assertData(next, receiveAll(encode(next)));
+        assertEquals(1, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testDroppedPartTimeout() {
+        List<BulkTransport.BulkPacket> packets = encode(random(100000));
+        assertNull(transport.receive(sender, send(packets.get(1))));
+        assertEquals(1, transport.getPendingCount(sender));
+
+        // the incomplete transfer is discarded when the next part is received
+        transport.setTimeout(0);
+        byte[] next = repeated(50000);
+        List<BulkTransport.BulkPacket> single = encode(next);
+        assertEquals(1, single.size());
+        assertData(next, transport.receive(sender, send(single.get(0))));
+        assertEquals(0, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testSendersSeparated() {
+        byte[] data = random(100000);
+        List<BulkTransport.BulkPacket> packets = encode(data);
+        BulkTransport.BulkPacket last = packets.get(packets.size() - 1);
+        Object other = new Object();
+
+        for (int i = 0; i < packets.size() - 1; i++) assertNull(transport.receive(sender, send(packets.get(i))));
+        assertNull(transport.receive(other, send(last)));
+        assertEquals(1, transport.getPendingCount(other));
+        assertData(data, transport.receive(sender, send(last)));
+    }
+
+    @Test
+    public void testServerPayloadLimit() {
+        assertNull(encode(random(2 << 20)));
+
+        // forged header announcing more than the server accepts
+        byte[] part = new byte[100];
+        assertNull(transport.receive(sender, new BulkTransport.BulkPacket(1, 1, 0, 0, false, 0, part)));
+        assertEquals(1, transport.getPendingCount(sender));
+        assertNull(transport.receive(sender, new BulkTransport.BulkPacket(1, 0, 200, 0, false, 4 << 20, part)));
+        assertEquals(0, transport.getPendingCount(sender));
+
+        // parts beyond the maximum payload
+        assertNull(transport.receive(sender, new BulkTransport.BulkPacket(2, 100, 0, 0, false, 0, part)));
+        assertEquals(0, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testWrongSideType() {
+        // messages handled on the client can't be sent to the server
+        List<BulkTransport.BulkPacket> packets = transport.encode(new DataMessage(random(100000)), Side.CLIENT);
+        Collections.reverse(packets);
+        for (BulkTransport.BulkPacket packet : packets) assertNull(transport.receive(sender, send(packet)));
+        assertEquals(0, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testServerPendingLimit() {
+        byte[] part = new byte[100];
+        assertNull(transport.receive(sender, new BulkTransport.BulkPacket(1, 1, 0, 0, false, 0, part)));
+        assertNull(transport.receive(sender, new BulkTransport.BulkPacket(2, 1, 0, 0, false, 0, part)));
+        assertEquals(2, transport.getPendingCount(sender));
+
+        assertNull(transport.receive(sender, new BulkTransport.BulkPacket(3, 1, 0, 0, false, 0, part)));
+        assertEquals(0, transport.getPendingCount(sender));
+    }
+
+    @Test
+    public void testServerBufferedLimit() {
+        byte[] part = new byte[30000];
+        for (int i = 1; i < 35; i++)
+            assertNull(transport.receive(sender, new BulkTransport.BulkPacket(1, i, 0, 0, false, 0, part)));
+        assertEquals(1, transport.getPendingCount(sender));
+
+        // over 1 MB buffered for the same player
+        assertNull(transport.receive(sender, new BulkTransport.BulkPacket(2, 1, 0, 0, false, 0, part)));
+        assertEquals(0, transport.getPendingCount(sender));
+
+        // other players are not affected
+        byte[] data = random(100000);
+        sender = new Object();
+        assertData(data, receiveAll(encode(data)));
+    }
+
+    @Test
+    public void testClientLimits() {
+        // the client accepts larger transfers from the server
+        byte[] data = random(2 << 20);
+        List<BulkTransport.BulkPacket> packets = transport.encode(new DataMessage(data), Side.CLIENT);
+        assertNotNull(packets);
+        IMessage message = null;
+        for (BulkTransport.BulkPacket packet : packets) message = transport.receive(transport, send(packet));
+        assertData(data, message);
+    }
+
+    @Test
+    public void testClientDisconnection() {
+        // the client side transfers are keyed by the transport itself
+        List<BulkTransport.BulkPacket> packets = transport.encode(new DataMessage(random(100000)), Side.CLIENT);
+        assertNull(transport.receive(transport, send(packets.get(0))));
+        assertEquals(1, transport.getPendingCount(transport));
+
+        transport.onClientDisconnection(null);
+        assertEquals(0, transport.getPendingCount(transport));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import net.malisis.core.renderer.element.Vertex;
+import net.malisis.core.renderer.element.shape.Cube;
+import net.malisis.core.renderer.icon.MalisisIcon;
+import net.minecraft.util.AxisAlignedBB;
+import net.minecraftforge.common.util.ForgeDirection;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Validity of the {@link BakedShape} depending on the {@link RenderParameters} used.
+ *
+ * @author Ordinastie
+ *
+ */
+public class BakedShapeTest {
+
+    private static RenderParameters params() {
+        RenderParameters params = new RenderParameters();
+        params.useBlockBounds.set(false);
+        params.renderBounds.set(AxisAlignedBB.getBoundingBox(0, 0, 0, 1, 0.5F, 1));
+        params.icon.set(new MalisisIcon());
+        return params;
+    }
+
+    private static BakedShape bake(RenderParameters params) {
+        BakedShape baked = new BakedShape(new Cube());
+        baked.setParameters(params);
+        return baked;
+    }
+
+    @Test
+    public void testLightingParametersKeepBake() {
+        RenderParameters params = params();
+        BakedShape baked = bake(params);
+
+        params.brightness.set(983055);
+        params.alpha.set(128);
+        params.colorMultiplier.set(0xFF0000);
+        params.calculateAOColor.set(false);
+        assertTrue(baked.isBakedWith(params));
+    }
+
+    @Test
+    public void testSameValuesKeepBake() {
+        RenderParameters params = params();
+        BakedShape baked = bake(params);
+
+        // other instances with equal values, as set for each block
+        RenderParameters other = new RenderParameters();
+        other.useBlockBounds.set(false);
+        other.renderBounds.set(AxisAlignedBB.getBoundingBox(0, 0, 0, 1, 0.5F, 1));
+        other.icon.set(params.icon.get());
+        other.brightness.set(1000);
+        assertTrue(baked.isBakedWith(other));
+
+        params.renderBounds.set(AxisAlignedBB.getBoundingBox(0, 0, 0, 1, 0.5F, 1));
+        assertTrue(baked.isBakedWith(params));
+    }
+
+    @Test
+    public void testGeometryParametersInvalidateBake() {
+        RenderParameters params = params();
+        BakedShape baked = bake(params);
+        params.flipU.set(true);
+        assertFalse(baked.isBakedWith(params));
+
+        params = params();
+        baked = bake(params);
+        params.renderBounds.set(AxisAlignedBB.getBoundingBox(0, 0, 0, 1, 1, 1));
+        assertFalse(baked.isBakedWith(params));
+
+        params = params();
+        baked = bake(params);
+        params.icon.set(new MalisisIcon());
+        assertFalse(baked.isBakedWith(params));
+
+        params = params();
+        baked = bake(params);
+        params.direction.set(ForgeDirection.NORTH);
+        assertFalse(baked.isBakedWith(params));
+    }
+
+    /**
+     * Renderer only calculating the lighting of the vertexes, as the tessellator requires an OpenGL context.
+     */
+    private static class CountingRenderer extends MalisisRenderer {
+
+        private int vertexes;
+        private double sum;
+
+        @Override
+        protected void drawVertex(Vertex vertex, int number) {
+            int[][] aoMatrix = params.getAoMatrix(number);
+            sum += calcVertexBrightness(vertex, aoMatrix) + calcVertexColor(vertex, aoMatrix);
+            sum += vertex.getX() + vertex.getY() + vertex.getZ() + vertex.getU() + vertex.getV();
+            vertexes++;
+        }
+
+        @Override
+        protected void drawBakedVertex(Vertex vertex, int number, float[] data, int offset) {
+            int[][] aoMatrix = params.getAoMatrix(number);
+            sum += calcVertexBrightness(vertex, aoMatrix) + calcVertexColor(vertex, aoMatrix);
+            for (int i = 0; i < BakedShape.VERTEX_SIZE; i++) sum += data[offset + i];
+            vertexes++;
+        }
+    }
+
+    private static long drawUnbaked(CountingRenderer renderer, Cube cube, RenderParameters params, int blocks) {
+        long start = System.nanoTime();
+        for (int i = 0; i < blocks; i++) {
+            params.brightness.set(i & 0xFF);
+            cube.resetState();
+            renderer.drawShape(cube, params);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long drawBaked(CountingRenderer renderer, Cube cube, RenderParameters params, int blocks) {
+        BakedShape baked = renderer.bakeShape(cube, params);
+        long start = System.nanoTime();
+        for (int i = 0; i < blocks; i++) {
+            // the lighting parameters change for each block
+            params.brightness.set(i & 0xFF);
+            if (!baked.isBakedWith(params)) {
+                cube.resetState();
+                baked = renderer.bakeShape(cube, params);
+            }
+            renderer.drawBakedShape(baked, params);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Compares the vertexes drawn per millisecond with and without baking. Run with MALISIS_BENCHMARK=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MALISIS_BENCHMARK", matches = "true")
+    public void benchmarkBakedVertexes() {
+        CountingRenderer renderer = new CountingRenderer();
+        Cube cube = new Cube();
+        RenderParameters params = params();
+        int blocks = 200000;
+
+        drawUnbaked(renderer, cube, params, blocks);
+        drawBaked(renderer, cube, params, blocks);
+
+        renderer.vertexes = 0;
+        long unbaked = drawUnbaked(renderer, cube, params, blocks);
+        int unbakedVertexes = renderer.vertexes;
+        renderer.vertexes = 0;
+        long baked = drawBaked(renderer, cube, params, blocks);
+        int bakedVertexes = renderer.vertexes;
+
+        assertEquals(unbakedVertexes, bakedVertexes);
+        System.out.println(String.format("Unbaked: %.0f vertexes/ms, baked: %.0f vertexes/ms (%s)",
+                unbakedVertexes * 1000000D / unbaked,
+                bakedVertexes * 1000000D / baked,
+                renderer.sum));
+    }
+}
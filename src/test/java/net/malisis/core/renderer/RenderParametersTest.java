@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Invalidation of the compiled values of {@link RenderParameters}.
+ *
+ * @author Ordinastie
+ *
+ */
+public class RenderParametersTest {
+
+    @Test
+    public void testCompiledValues() {
+        RenderParameters rp = new RenderParameters();
+        assertFalse(rp.is(RenderParameters.FLIP_U));
+        assertEquals(255, rp.getAlpha());
+
+        rp.flipU.set(true);
+        rp.alpha.set(128);
+        assertTrue(rp.is(RenderParameters.FLIP_U));
+        assertEquals(128, rp.getAlpha());
+
+        rp.reset();
+        assertFalse(rp.is(RenderParameters.FLIP_U));
+        assertEquals(255, rp.getAlpha());
+    }
+
+    @Test
+    public void testMergeOnlyInvalidatesTarget() {
+        RenderParameters base = new RenderParameters();
+        RenderParameters override = new RenderParameters();
+        base.alpha.set(100);
+        override.flipV.set(true);
+        base.is(0);
+        override.is(0);
+        int baseVersion = base.version;
+        int overrideVersion = override.version;
+
+        RenderParameters params = new RenderParameters();
+        params.merge(base, override);
+        assertEquals(baseVersion, base.version);
+        assertEquals(overrideVersion, override.version);
+        assertEquals(100, params.getAlpha());
+        assertTrue(params.is(RenderParameters.FLIP_V));
+
+        // merging the same values again leaves the compiled values valid
+        int version = params.version;
+        params.merge(base, override);
+        assertEquals(version, params.version);
+    }
+
+    @Test
+    public void testSetEqualValue() {
+        RenderParameters params = new RenderParameters();
+        params.brightness.set(15728640);
+        params.colorFactor.set(0.8F);
+        int version = params.version;
+
+        // equal values boxed into different instances
+        params.brightness.set(new Integer(15728640));
+        params.colorFactor.set(new Float(0.8F));
+        assertEquals(version, params.version);
+
+        params.brightness.set(983055);
+        assertNotEquals(version, params.version);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.renderer.element;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import net.minecraft.util.AxisAlignedBB;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+ * Copy-on-write, pending transformations and stored states of {@link PackedVertexes}.
+ *
+ * @author Ordinastie
+ *
+ */
+public class PackedVertexesTest {
+
+    private static final float DELTA = 1E-5F;
+
+    private static PackedVertexes create() {
+        PackedVertexes packed = new PackedVertexes(4);
+        for (int i = 0; i < 4; i++) {
+            packed.setX(i, i);
+            packed.setY(i, i * 2);
+            packed.setZ(i, i * 3);
+            packed.setU(i, i / 4F);
+            packed.setV(i, 1 - i / 4F);
+            packed.setColor(i, 0x100 * i);
+            packed.setAlpha(i, 255 - i);
+            packed.setBrightness(i, 15 * i);
+        }
+        return packed;
+    }
+
+    private static void assertPosition(PackedVertexes packed, int index, float x, float y, float z) {
+        assertEquals(x, packed.getX(index), DELTA);
+        assertEquals(y, packed.getY(index), DELTA);
+        assertEquals(z, packed.getZ(index), DELTA);
+    }
+
+    private static void assertSameValues(PackedVertexes expected, PackedVertexes actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertPosition(actual, i, expected.getX(i), expected.getY(i), expected.getZ(i));
+            assertEquals(expected.getU(i), actual.getU(i), DELTA);
+            assertEquals(expected.getV(i), actual.getV(i), DELTA);
+            assertEquals(expected.getColor(i), actual.getColor(i));
+            assertEquals(expected.getAlpha(i), actual.getAlpha(i));
+            assertEquals(expected.getBrightness(i), actual.getBrightness(i));
+        }
+    }
+
+    private static Matrix4f translation(float x, float y, float z) {
+        Matrix4f m = new Matrix4f();
+        m.translate(new Vector3f(x, y, z));
+        return m;
+    }
+
+    private static Matrix4f scale(float factor) {
+        Matrix4f m = new Matrix4f();
+        m.scale(new Vector3f(factor, factor, factor));
+        return m;
+    }
+
+    @Test
+    public void testCopy() {
+        PackedVertexes packed = create();
+        assertSameValues(packed, new PackedVertexes(packed));
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        PackedVertexes packed = create();
+        PackedVertexes copy = new PackedVertexes(packed);
+
+        copy.setX(1, 10);
+        copy.setU(1, 0.9F);
+        copy.setColor(1, 0xFF0000);
+        assertEquals(1, packed.getX(1), DELTA);
+        assertEquals(0.25F, packed.getU(1), DELTA);
+        assertEquals(0x100, packed.getColor(1));
+        assertEquals(10, copy.getX(1), DELTA);
+        assertEquals(0.9F, copy.getU(1), DELTA);
+        assertEquals(0xFF0000, copy.getColor(1));
+
+        // the other values are still the same
+        assertPosition(copy, 2, 2, 4, 6);
+        assertEquals(254, copy.getAlpha(1));
+    }
+
+    @Test
+    public void testOriginalModifiedAfterCopy() {
+        PackedVertexes packed = create();
+        PackedVertexes copy = new PackedVertexes(packed);
+
+        packed.setY(2, 50);
+        packed.setV(2, 0);
+        packed.setBrightness(2, 0);
+        assertSameValues(create(), copy);
+    }
+
+    @Test
+    public void testTransform() {
+        PackedVertexes packed = create();
+        packed.transform(translation(1, 2, 3));
+        assertPosition(packed, 0, 1, 2, 3);
+        assertPosition(packed, 3, 4, 8, 12);
+
+        // UVs and colors are not affected
+        assertEquals(0.75F, packed.getU(3), DELTA);
+        assertEquals(0x300, packed.getColor(3));
+    }
+
+    @Test
+    public void testTransformOrder() {
+        PackedVertexes packed = create();
+        packed.transform(translation(1, 1, 1));
+        packed.transform(scale(2));
+        // translated first, then scaled
+        assertPosition(packed, 1, 4, 6, 8);
+    }
+
+    @Test
+    public void testTransformNotShared() {
+        PackedVertexes packed = create();
+        PackedVertexes before = new PackedVertexes(packed);
+        packed.transform(translation(1, 0, 0));
+        PackedVertexes after = new PackedVertexes(packed);
+
+        assertPosition(before, 1, 1, 2, 3);
+        assertPosition(after, 1, 2, 2, 3);
+
+        after.transform(translation(1, 0, 0));
+        assertPosition(packed, 1, 2, 2, 3);
+        assertPosition(after, 1, 3, 2, 3);
+    }
+
+    @Test
+    public void testSetWithPendingTransform() {
+        PackedVertexes packed = create();
+        PackedVertexes copy = new PackedVertexes(packed);
+        copy.transform(translation(0, 0, 10));
+
+        // setting a value applies the pending transformation to the other vertexes
+        copy.setX(0, 5);
+        assertPosition(copy, 0, 5, 0, 10);
+        assertPosition(copy, 2, 2, 4, 16);
+        assertPosition(packed, 2, 2, 4, 6);
+
+        // new transformations apply to the value set
+        copy.transform(translation(1, 0, 0));
+        assertPosition(copy, 0, 6, 0, 10);
+    }
+
+    @Test
+    public void testInterpolateCoord() {
+        PackedVertexes packed = new PackedVertexes(2);
+        packed.setX(1, 1);
+        packed.setY(1, 0.5F);
+        packed.setZ(1, 0.25F);
+        packed.interpolateCoord(AxisAlignedBB.getBoundingBox(1, 2, 3, 3, 6, 7));
+        assertPosition(packed, 0, 1, 2, 3);
+        assertPosition(packed, 1, 3, 4, 4);
+
+        // interpolation applies after the pending transformation
+        packed = new PackedVertexes(1);
+        packed.transform(translation(0.5F, 0.5F, 0.5F));
+        packed.interpolateCoord(AxisAlignedBB.getBoundingBox(0, 0, 0, 2, 4, 8));
+        assertPosition(packed, 0, 1, 2, 4);
+    }
+
+    @Test
+    public void testResetWithoutState() {
+        PackedVertexes packed = create();
+        packed.setX(0, 10);
+        packed.resetState();
+        packed.resetState(0);
+        assertEquals(10, packed.getX(0), DELTA);
+    }
+
+    @Test
+    public void testStoreAndResetState() {
+        PackedVertexes packed = create();
+        packed.storeState();
+
+        packed.setX(0, 10);
+        packed.setU(1, 0.5F);
+        packed.setAlpha(2, 0);
+        packed.transform(translation(1, 1, 1));
+        packed.resetState();
+        assertSameValues(create(), packed);
+
+        // the stored state is not modified through the shared arrays
+        packed.setX(0, 20);
+        packed.setColor(3, 0);
+        packed.resetState();
+        assertSameValues(create(), packed);
+    }
+
+    @Test
+    public void testStoreStateWithPendingTransform() {
+        PackedVertexes packed = create();
+        packed.transform(translation(1, 0, 0));
+        packed.storeState();
+        packed.transform(translation(1, 0, 0));
+        assertPosition(packed, 1, 3, 2, 3);
+
+        packed.resetState();
+        assertPosition(packed, 1, 2, 2, 3);
+    }
+
+    @Test
+    public void testStoreAndResetSingleState() {
+        PackedVertexes packed = create();
+        packed.storeState();
+
+        packed.setX(0, 10);
+        packed.setX(1, 10);
+        packed.storeState(1);
+        packed.setX(1, 20);
+        packed.setColor(1, 0);
+        packed.setZ(2, 30);
+
+        packed.resetState(1);
+        assertEquals(10, packed.getX(1), DELTA);
+        assertEquals(0x100, packed.getColor(1));
+        // the other vertexes are left as is
+        assertEquals(10, packed.getX(0), DELTA);
+        assertEquals(30, packed.getZ(2), DELTA);
+
+        packed.resetState();
+        assertPosition(packed, 0, 0, 0, 0);
+        assertPosition(packed, 1, 10, 2, 3);
+        assertPosition(packed, 2, 2, 4, 6);
+    }
+
+    @Test
+    public void testCopyKeepsStoredState() {
+        PackedVertexes packed = create();
+        packed.storeState();
+        packed.setX(0, 10);
+
+        PackedVertexes copy = new PackedVertexes(packed);
+        assertEquals(10, copy.getX(0), DELTA);
+        copy.resetState();
+        assertSameValues(create(), copy);
+
+        // resetting the copy does not reset the original
+        assertEquals(10, packed.getX(0), DELTA);
+        packed.resetState();
+        assertSameValues(create(), packed);
+    }
+}
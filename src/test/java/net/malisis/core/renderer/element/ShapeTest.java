@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.renderer.element;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+
+import net.malisis.core.renderer.RenderParameters;
+import net.malisis.core.renderer.element.shape.Cube;
+import net.minecraftforge.common.util.ForgeDirection;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Sharing of the {@link RenderParameters} and vertexes between copies of {@link Shape Shapes}.
+ *
+ * @author Ordinastie
+ *
+ */
+public class ShapeTest {
+
+    @Test
+    public void testParametersShared() {
+        Shape shape = new Cube();
+        Shape copy = new Shape(shape);
+        for (int i = 0; i < shape.getFaces().length; i++)
+            assertSame(shape.getFaces()[i].readParameters(), copy.getFaces()[i].readParameters());
+
+        shape.pack();
+        copy = new Shape(shape);
+        for (int i = 0; i < shape.getFaces().length; i++)
+            assertSame(shape.getFaces()[i].readParameters(), copy.getFaces()[i].readParameters());
+    }
+
+    @Test
+    public void testCopyParametersModified() {
+        Shape shape = new Cube();
+        Shape copy = new Shape(shape);
+
+        copy.getFaces()[0].getParameters().alpha.set(100);
+        assertEquals(100, copy.getFaces()[0].readParameters().getAlpha());
+        assertEquals(255, shape.getFaces()[0].readParameters().getAlpha());
+        // the values of the original are kept
+        assertEquals(ForgeDirection.NORTH, copy.getFaces()[0].readParameters().direction.get());
+        // the other faces are still shared
+        assertSame(shape.getFaces()[1].readParameters(), copy.getFaces()[1].readParameters());
+    }
+
+    @Test
+    public void testOriginalParametersModified() {
+        Shape shape = new Cube().pack();
+        Shape copy = new Shape(shape);
+        Shape other = new Shape(shape);
+
+        shape.setParameters(new RenderParameters(), true);
+        shape.getFaces()[0].getParameters().flipU.set(true);
+        assertTrue(shape.getFaces()[0].readParameters().flipU.get());
+        assertFalse(copy.getFaces()[0].readParameters().flipU.get());
+        assertFalse(other.getFaces()[0].readParameters().flipU.get());
+        assertSame(copy.getFaces()[0].readParameters(), other.getFaces()[0].readParameters());
+    }
+
+    @Test
+    public void testSetParametersNotShared() {
+        Shape shape = new Cube();
+        Shape copy = new Shape(shape);
+        RenderParameters params = new RenderParameters();
+        copy.getFaces()[0].setParameters(params);
+
+        assertSame(params, copy.getFaces()[0].getParameters());
+    }
+
+    /**
+     * Draws 1000 instances of an animated model, copied from the same model each frame.
+     *
+     * @param model the model
+     * @param frame the frame
+     * @return the number of vertexes, so the copies are not optimized away
+     */
+    private static int animate(Shape model, int frame) {
+        int count = 0;
+        for (int i = 0; i < 1000; i++) {
+            Shape s = new Shape(model);
+            s.rotate(frame + i, 0, 1, 0, 0.5F, 0.5F, 0.5F);
+            s.translate(0, (frame % 20) / 20F, 0);
+            s.applyMatrix();
+            for (Face f : s.getFaces()) count += f.getVertexes().length + f.readParameters().getAlpha();
+        }
+        return count;
+    }
+
+    private static long allocatedPerFrame(Shape model) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int frames = 200;
+        int count = 0;
+        for (int frame = 0; frame < frames; frame++) count += animate(model, frame);
+
+        long start = bean.getThreadAllocatedBytes(thread);
+        for (int frame = 0; frame < frames; frame++) count += animate(model, frame);
+        long allocated = bean.getThreadAllocatedBytes(thread) - start;
+
+        assertTrue(count > 0);
+        return allocated / frames;
+    }
+
+    /**
+     * Measures the bytes allocated per frame to draw 1000 animated instances of a shape, packed and not packed. Run
+     * with MALISIS_BENCHMARK=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MALISIS_BENCHMARK", matches = "true")
+    public void benchmarkAllocatedPerFrame() {
+        long unpacked = allocatedPerFrame(new Cube());
+        long packed = allocatedPerFrame(new Cube().pack());
+
+        System.out.println(String.format("1000 animated cubes: %d bytes per frame unpacked, %d bytes per frame packed",
+                unpacked,
+                packed));
+    }
+}
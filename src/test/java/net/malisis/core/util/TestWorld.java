@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import net.minecraft.block.Block;
+import net.minecraft.client.multiplayer.ChunkProviderClient;
+import net.minecraft.entity.Entity;
+import net.minecraft.init.Blocks;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProvider;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.chunk.IChunkProvider;
+
+import gnu.trove.iterator.TLongLongIterator;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import sun.misc.Unsafe;
+
+/**
+ * {@link World} for tests, only holding blocks, metadata and scheduled updates.<br>
+ * The world constructor requires the whole game to be bootstrapped, so instances are allocated without it with
+ * {@link #create()}, and only the fields used here are set.
+ *
+ * @author Ordinastie
+ *
+ */
+public class TestWorld extends World {
+
+    private TLongObjectHashMap<Block> blocks;
+    private TLongIntHashMap metadata;
+    /** Tick at which each scheduled update is due, by coordinate. */
+    private TLongLongHashMap scheduled;
+    private long time;
+    private int blockChanges;
+
+    private TestWorld() {
+        super(null, null, (WorldProvider) null, (WorldSettings) null, null);
+    }
+
+    /**
+     * Creates a new empty {@link TestWorld}.
+     *
+     * @return the test world
+     */
+    public static TestWorld create() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            TestWorld world = (TestWorld) ((Unsafe) field.get(null)).allocateInstance(TestWorld.class);
+            world.blocks = new TLongObjectHashMap<>();
+            world.metadata = new TLongIntHashMap();
+            world.scheduled = new TLongLongHashMap();
+            return world;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new RuntimeException("Could not create the test world", e);
+        }
+    }
+
+    /**
+     * Loads the chunks within <b>radius</b> of the chunk 0,0. Chunks not loaded are the shared empty chunk.
+     *
+     * @param radius the radius
+     */
+    public void loadChunks(int radius) {
+        ChunkProviderClient provider = new ChunkProviderClient(this);
+        for (int cx = -radius; cx <= radius; cx++) {
+            for (int cz = -radius; cz <= radius; cz++) provider.loadChunk(cx, cz);
+        }
+        chunkProvider = provider;
+    }
+
+    /**
+     * Gets the number of blocks or metadata changed through {@link #setBlock(int, int, int, Block, int, int)}.
+     *
+     * @return the block changes
+     */
+    public int getBlockChanges() {
+        return blockChanges;
+    }
+
+    /**
+     * Gets the number of updates scheduled and not yet run.
+     *
+     * @return the scheduled count
+     */
+    public int getScheduledCount() {
+        return scheduled.size();
+    }
+
+    /**
+     * Advances the time by one tick and runs the scheduled updates due.
+     *
+     * @param rand the rand
+     * @return the number of updates run
+     */
+    public int tick(Random rand) {
+        time++;
+        TLongArrayList due = new TLongArrayList();
+        for (TLongLongIterator it = scheduled.iterator(); it.hasNext();) {
+            it.advance();
+            if (it.value() <= time) due.add(it.key());
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            long coord = due.get(i);
+            scheduled.remove(coord);
+            Block block = blocks.get(coord);
+            if (block != null)
+                block.updateTick(this, BlockPos.getX(coord), BlockPos.getY(coord), BlockPos.getZ(coord), rand);
+        }
+        return due.size();
+    }
+
+    @Override
+    public Block getBlock(int x, int y, int z) {
+        Block block = blocks.get(BlockPos.toLong(x, y, z));
+        return block != null ? block : Blocks.air;
+    }
+
+    @Override
+    public int getBlockMetadata(int x, int y, int z) {
+        return metadata.get(BlockPos.toLong(x, y, z));
+    }
+
+    @Override
+    public boolean setBlock(int x, int y, int z, Block block, int meta, int flags) {
+        long coord = BlockPos.toLong(x, y, z);
+        if (block == Blocks.air) block = null;
+        if (blocks.get(coord) == block && metadata.get(coord) == meta) return false;
+
+        if (block == null) blocks.remove(coord);
+        else blocks.put(coord, block);
+        metadata.put(coord, meta);
+        blockChanges++;
+        return true;
+    }
+
+    @Override
+    public boolean setBlockToAir(int x, int y, int z) {
+        return setBlock(x, y, z, Blocks.air, 0, 3);
+    }
+
+    @Override
+    public void scheduleBlockUpdate(int x, int y, int z, Block block, int delay) {
+        long coord = BlockPos.toLong(x, y, z);
+        // same coordinate already scheduled, as the world does for the same block
+        if (!scheduled.containsKey(coord)) scheduled.put(coord, time + delay);
+    }
+
+    @Override
+    public long getTotalWorldTime() {
+        return time;
+    }
+
+    @Override
+    protected IChunkProvider createChunkProvider() {
+        return chunkProvider;
+    }
+
+    @Override
+    public Entity getEntityByID(int id) {
+        return null;
+    }
+
+    @Override
+    protected int func_152379_p() {
+        return 0;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkblock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.malisis.core.util.BlockPos;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Round trips of {@link ChunkBlockCodec}.
+ *
+ * @author Ordinastie
+ *
+ */
+public class ChunkBlockCodecTest {
+
+    private static ChunkBlockIndex roundTrip(int chunkX, int chunkZ, ChunkBlockIndex index) {
+        ByteBuf buf = Unpooled.buffer();
+        ChunkBlockCodec.write(buf, chunkX, chunkZ, index);
+
+        ChunkBlockIndex read = new ChunkBlockIndex();
+        assertTrue(ChunkBlockCodec.read(buf, chunkX, chunkZ, read));
+        assertEquals(0, buf.readableBytes());
+        return read;
+    }
+
+    private static void assertSameIndex(ChunkBlockIndex expected, ChunkBlockIndex actual) {
+        long[] coords = expected.toArray();
+        long[] readCoords = actual.toArray();
+        Arrays.sort(coords);
+        Arrays.sort(readCoords);
+        assertArrayEquals(coords, readCoords);
+        for (long coord : coords) assertEquals(expected.getRange(coord), actual.getRange(coord));
+    }
+
+    @Test
+    public void testEmpty() {
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        assertTrue(roundTrip(3, -7, index).isEmpty());
+    }
+
+    @Test
+    public void testSingle() {
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        index.add(BlockPos.toLong(-100, 64, 37), 2);
+        assertSameIndex(index, roundTrip(-7, 2, index));
+    }
+
+    @Test
+    public void testRangesAndBounds() {
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        // corners of the chunk, with unknown and known ranges
+        index.add(BlockPos.toLong(16, 0, 32), ChunkBlockIndex.UNKNOWN_RANGE);
+        index.add(BlockPos.toLong(31, 255, 47), 0);
+        index.add(BlockPos.toLong(16, 255, 32), 15);
+        index.add(BlockPos.toLong(31, 0, 47), 3);
+        assertSameIndex(index, roundTrip(1, 2, index));
+    }
+
+    @Test
+    public void testDenseRandom() {
+        Random rand = new Random(1234);
+        int chunkX = -31250, chunkZ = 31250;
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        for (int i = 0; i < 2000; i++) {
+            int x = (chunkX << 4) + rand.nextInt(16);
+            int z = (chunkZ << 4) + rand.nextInt(16);
+            index.add(BlockPos.toLong(x, rand.nextInt(256), z), rand.nextInt(20) - 1);
+        }
+        assertSameIndex(index, roundTrip(chunkX, chunkZ, index));
+    }
+
+    @Test
+    public void testSmallerThanLegacy() {
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        for (int y = 0; y < 16; y++) for (int z = 0; z < 16; z++) for (int x = 0; x < 16; x++)
+            index.add(BlockPos.toLong(x, y, z), 1);
+
+        ByteBuf buf = Unpooled.buffer();
+        ChunkBlockCodec.write(buf, 0, 0, index);
+        assertTrue(buf.readableBytes() < index.size() * 8);
+    }
+
+    @Test
+    public void testLegacy() {
+        long[] coords = { BlockPos.toLong(3, 64, -5), BlockPos.toLong(-20, 0, 7), BlockPos.toLong(0, 255, 0) };
+        ByteBuf buf = Unpooled.buffer();
+        for (long coord : coords) buf.writeLong(coord);
+        assertArrayEquals(coords, ChunkBlockCodec.readLegacy(buf));
+    }
+
+    private static ChunkBlockIndex randomIndex(Random rand, int chunkX, int chunkZ, int count) {
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        while (index.size() < count) {
+            int x = (chunkX << 4) + rand.nextInt(16);
+            int z = (chunkZ << 4) + rand.nextInt(16);
+            index.add(BlockPos.toLong(x, rand.nextInt(256), z), rand.nextInt(4));
+        }
+        return index;
+    }
+
+    /**
+     * Saves and loads the index the way {@link ChunkBlockHandler} does.
+     *
+     * @return the number of bytes saved
+     */
+    private static int saveLoad(int chunkX, int chunkZ, ChunkBlockIndex index) {
+        ByteBuf bytes = Unpooled.buffer(index.size() * 4 + 8);
+        ChunkBlockCodec.write(bytes, chunkX, chunkZ, index);
+        byte[] data = new byte[bytes.readableBytes()];
+        bytes.readBytes(data);
+
+        ChunkBlockCodec.read(Unpooled.wrappedBuffer(data), chunkX, chunkZ, new ChunkBlockIndex());
+        return data.length;
+    }
+
+    /**
+     * Saves and loads the index with the legacy raw long format.
+     *
+     * @return the number of bytes saved
+     */
+    private static int saveLoadLegacy(ChunkBlockIndex index) {
+        ByteBuf bytes = Unpooled.buffer(index.size() * 8);
+        for (long coord : index.toArray()) bytes.writeLong(coord);
+        byte[] data = new byte[bytes.readableBytes()];
+        bytes.readBytes(data);
+
+        new ChunkBlockIndex(ChunkBlockCodec.readLegacy(Unpooled.wrappedBuffer(data)));
+        return data.length;
+    }
+
+    /**
+     * Compares the size and the save and load time of the compact and legacy formats for several densities. Run with
+     * MALISIS_BENCHMARK=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MALISIS_BENCHMARK", matches = "true")
+    public void benchmarkSaveLoad() {
+        Random rand = new Random(42);
+        int chunkX = 120, chunkZ = -45;
+        for (int count : new int[] { 16, 256, 4096 }) {
+            ChunkBlockIndex index = randomIndex(rand, chunkX, chunkZ, count);
+            int iterations = 2000000 / count;
+            for (int i = 0; i < iterations; i++) {
+                saveLoad(chunkX, chunkZ, index);
+                saveLoadLegacy(index);
+            }
+
+            int size = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) size = saveLoad(chunkX, chunkZ, index);
+            long time = System.nanoTime() - start;
+
+            int legacySize = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) legacySize = saveLoadLegacy(index);
+            long legacyTime = System.nanoTime() - start;
+
+            System.out.println(String.format("%d coords: %d bytes, %.1f us to save and load (legacy %d bytes, %.1f us)",
+                    count,
+                    size,
+                    time / 1000D / iterations,
+                    legacySize,
+                    legacyTime / 1000D / iterations));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkblock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.malisis.core.util.BlockPos;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.procedure.TLongIntProcedure;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Storage, range culling and thread safety of {@link ChunkBlockIndex}.
+ *
+ * @author Ordinastie
+ *
+ */
+public class ChunkBlockIndexTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int COORDS_PER_WRITER = 500;
+    private static final int ITERATIONS = 20000;
+
+    /** Coordinates of the writer, in its own columns of the chunk so the writers never share a coordinate. */
+    private static long coord(int writer, int i) {
+        return BlockPos.toLong(writer * 4 + i % 4, i / 4 % 256, i / 1024);
+    }
+
+    private static TLongHashSet query(ChunkBlockIndex index, int minY, int maxY) {
+        final TLongHashSet found = new TLongHashSet();
+        index.forEach(new TLongIntProcedure() {
+
+            @Override
+            public boolean execute(long coord, int range) {
+                found.add(coord);
+                return true;
+            }
+        }, minY, maxY);
+        return found;
+    }
+
+    @Test
+    public void testAddRemove() {
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        long coord = BlockPos.toLong(1, 70, 2);
+        index.add(coord, 3);
+        index.add(coord, 3);
+        assertEquals(1, index.size());
+        assertTrue(index.contains(coord));
+        assertEquals(3, index.getRange(coord));
+
+        assertTrue(index.remove(coord));
+        assertFalse(index.remove(coord));
+        assertTrue(index.isEmpty());
+        assertEquals(ChunkBlockIndex.UNKNOWN_RANGE, index.getRange(coord));
+    }
+
+    @Test
+    public void testSectionCulling() {
+        ChunkBlockIndex index = new ChunkBlockIndex();
+        long low = BlockPos.toLong(0, 10, 0);
+        long high = BlockPos.toLong(0, 100, 0);
+        index.add(low, 0);
+        index.add(high, 0);
+
+        assertTrue(query(index, 0, 15).contains(low));
+        assertFalse(query(index, 0, 15).contains(high));
+        assertFalse(query(index, 50, 60).contains(low));
+
+        // the margin reaches the next section
+        assertTrue(query(index, 16 + ChunkBlockIndex.RANGE_MARGIN - 1, 20).contains(low));
+    }
+
+    @Test
+    public void testUnknownRangeAlwaysVisited() {
+        long coord = BlockPos.toLong(0, 10, 0);
+        ChunkBlockIndex index = new ChunkBlockIndex(new long[] { coord });
+        assertEquals(ChunkBlockIndex.UNKNOWN_RANGE, index.getRange(coord));
+        assertEquals(1, query(index, 200, 210).size());
+
+        index.setRange(coord, 2);
+        assertEquals(2, index.getRange(coord));
+    }
+
+    @Test
+    public void testModifiedWhileIterating() {
+        final ChunkBlockIndex index = new ChunkBlockIndex();
+        for (int i = 0; i < 100; i++) index.add(coord(0, i), 1);
+
+        final List<Long> visited = new ArrayList<>();
+        index.forEach(new TLongIntProcedure() {
+
+            @Override
+            public boolean execute(long coord, int range) {
+                visited.add(coord);
+                index.remove(coord);
+                // reentrant iteration
+                query(index, 0, 255);
+                return true;
+            }
+        }, 0, 255);
+
+        assertEquals(100, visited.size());
+        assertTrue(index.isEmpty());
+    }
+
+    /**
+     * Several threads add and remove their own coordinates while others query the whole chunk.
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ChunkBlockIndex index = new ChunkBlockIndex();
+        final TLongHashSet[] expected = new TLongHashSet[WRITERS];
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            expected[w] = new TLongHashSet();
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        Random random = new Random(writer);
+                        start.await();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            long coord = coord(writer, random.nextInt(COORDS_PER_WRITER));
+                            if (random.nextBoolean()) {
+                                index.add(coord, random.nextInt(3));
+                                expected[writer].add(coord);
+                            } else {
+                                assertEquals(expected[writer].remove(coord), index.remove(coord));
+                            }
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    } finally {
+                        writersDone.countDown();
+                    }
+                }
+            });
+        }
+
+        for (int r = 0; r < READERS; r++) {
+            final int reader = r;
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        Random random = new Random(-reader);
+                        start.await();
+                        while (running.get()) {
+                            int y = random.nextInt(256);
+                            for (long coord : query(index, y, y + 16).toArray()) {
+                                // only the coordinates of the writers are ever added
+                                int writer = BlockPos.getX(coord) / 4;
+                                assertTrue(writer >= 0 && writer < WRITERS);
+                            }
+                            int size = index.size();
+                            assertTrue(size >= 0 && size <= WRITERS * COORDS_PER_WRITER);
+                            assertTrue(index.toArray().length <= WRITERS * COORDS_PER_WRITER);
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue(writersDone.await(60, TimeUnit.SECONDS));
+        running.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        if (error.get() != null) throw new AssertionError(error.get());
+
+        TLongHashSet all = new TLongHashSet();
+        for (TLongHashSet set : expected) all.addAll(set);
+        assertEquals(all.size(), index.size());
+        assertEquals(all, new TLongHashSet(index.toArray()));
+        assertEquals(all, query(index, Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkcollision;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.malisis.core.MalisisCore;
+import net.malisis.core.block.BoundingBoxType;
+import net.malisis.core.util.Point;
+import net.malisis.core.util.TestWorld;
+import net.malisis.core.util.chunkblock.ChunkBlockHandler;
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.AxisAlignedBB;
+import net.minecraft.util.MovingObjectPosition;
+import net.minecraft.util.MovingObjectPosition.MovingObjectType;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.chunk.Chunk;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Results and allocations of the {@link ChunkCollision} hooks.
+ *
+ * @author Ordinastie
+ *
+ */
+public class ChunkCollisionTest {
+
+    private static final int CALLS = 200000;
+
+    private static TestWorld world;
+    private static TestBlock block;
+
+    /**
+     * Full block registered as {@link IChunkCollidable}, with its boxes cached.
+     */
+    private static class TestBlock extends Block implements ICachedCollidable {
+
+        public TestBlock() {
+            super(Material.rock);
+        }
+
+        @Override
+        public int blockRange() {
+            return 1;
+        }
+
+        @Override
+        public AxisAlignedBB[] getBoundingBox(IBlockAccess world, int x, int y, int z, BoundingBoxType type) {
+            return new AxisAlignedBB[] { AxisAlignedBB.getBoundingBox(0, 0, 0, 1, 1, 1) };
+        }
+
+        @Override
+        public AxisAlignedBB[] getPlacedBoundingBox(IBlockAccess world, int x, int y, int z, int side,
+                EntityPlayer entity, ItemStack itemStack) {
+            return getBoundingBox(world, x, y, z, BoundingBoxType.CHUNKCOLLISION);
+        }
+
+        @Override
+        public Dependency getBoundingBoxDependency() {
+            return Dependency.METADATA;
+        }
+    }
+
+    private static void putBlock(int x, int y, int z, Block block) {
+        world.setBlock(x, y, z, block, 0, 3);
+        Chunk chunk = world.getChunkFromChunkCoords(x >> 4, z >> 4);
+        ChunkBlockHandler.get().updateCoordinates(chunk, x, y, z, null, block);
+    }
+
+    @BeforeAll
+    public static void setup() {
+        if (MalisisCore.log == null) MalisisCore.log = LogManager.getLogger("ChunkCollisionTest");
+        world = TestWorld.create();
+        world.loadChunks(1);
+        block = new TestBlock();
+        // blocks in the loaded chunks, out of range of the queries expected to find nothing
+        putBlock(5, 64, 5, block);
+        putBlock(12, 70, 3, block);
+        putBlock(20, 64, 20, block);
+    }
+
+    private static List<AxisAlignedBB> collide(AxisAlignedBB mask) {
+        List<AxisAlignedBB> list = new ArrayList<>();
+        ChunkCollision.get().getCollisionBoundingBoxes(world, mask, list, null);
+        return list;
+    }
+
+    private static MovingObjectPosition rayTrace(Point src, Point dest) {
+        ChunkCollision.get().setRayTraceInfos(src, dest);
+        return ChunkCollision.get().getRayTraceResult(world, null);
+    }
+
+    @Test
+    public void testCollisionBoundingBoxes() {
+        List<AxisAlignedBB> list = collide(AxisAlignedBB.getBoundingBox(4.5, 64.5, 4.5, 5.5, 66, 5.5));
+        assertEquals(1, list.size());
+        assertEquals(5, list.get(0).minX);
+        assertEquals(64, list.get(0).minY);
+        assertEquals(6, list.get(0).maxZ);
+
+        assertTrue(collide(AxisAlignedBB.getBoundingBox(0, 64, 0, 2, 66, 2)).isEmpty());
+        assertTrue(collide(AxisAlignedBB.getBoundingBox(5, 100, 5, 6, 101, 6)).isEmpty());
+    }
+
+    @Test
+    public void testCollisionBoxesCopied() {
+        AxisAlignedBB mask = AxisAlignedBB.getBoundingBox(4.5, 64.5, 4.5, 5.5, 66, 5.5);
+        collide(mask).get(0).offset(10, 10, 10);
+        assertEquals(5, collide(mask).get(0).minX);
+    }
+
+    @Test
+    public void testRayTrace() {
+        MovingObjectPosition mop = rayTrace(new Point(5.5, 70, 5.5), new Point(5.5, 60, 5.5));
+        assertNotNull(mop);
+        assertEquals(MovingObjectType.BLOCK, mop.typeOfHit);
+        assertEquals(64, mop.blockY);
+        assertEquals(1, mop.sideHit);
+        assertEquals(65, mop.hitVec.yCoord, 0.0001);
+
+        assertNull(rayTrace(new Point(0.5, 70, 0.5), new Point(0.5, 60, 0.5)));
+    }
+
+    /**
+     * Gets the bytes allocated by the current thread for each call of the {@link Runnable}.
+     */
+    private static double allocatedPerCall(Runnable runnable) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < CALLS; i++) runnable.run();
+
+        long start = bean.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++) runnable.run();
+        return (double) (bean.getThreadAllocatedBytes(thread) - start) / CALLS;
+    }
+
+    /**
+     * Measures the bytes allocated per call by the collision and ray trace hooks, in a loaded chunk holding
+     * {@link IChunkCollidable} blocks. Queries that only find coordinates out of range must not allocate; candidates in
+     * range still build their {@link net.malisis.core.util.BlockState} and, for the collisions, the copies added to
+     * the list. Run with MALISIS_BENCHMARK=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MALISIS_BENCHMARK", matches = "true")
+    public void benchmarkAllocatedPerCall() {
+        final List<AxisAlignedBB> list = new ArrayList<>();
+        final AxisAlignedBB miss = AxisAlignedBB.getBoundingBox(0.2, 64, 0.2, 0.8, 65.8, 0.8);
+        final AxisAlignedBB hit = AxisAlignedBB.getBoundingBox(4.7, 64.5, 4.7, 5.3, 66.3, 5.3);
+        final Point src = new Point(0.5, 70, 0.5);
+        final Point dest = new Point(0.5, 60, 0.5);
+        final Point hitSrc = new Point(5.5, 70, 5.5);
+        final Point hitDest = new Point(5.5, 60, 5.5);
+
+        double collisionMiss = allocatedPerCall(new Runnable() {
+
+            @Override
+            public void run() {
+                ChunkCollision.get().getCollisionBoundingBoxes(world, miss, list, null);
+            }
+        });
+        double rayTraceMiss = allocatedPerCall(new Runnable() {
+
+            @Override
+            public void run() {
+                ChunkCollision.get().setRayTraceInfos(src, dest);
+                ChunkCollision.get().getRayTraceResult(world, null);
+            }
+        });
+        double collisionHit = allocatedPerCall(new Runnable() {
+
+            @Override
+            public void run() {
+                list.clear();
+                ChunkCollision.get().getCollisionBoundingBoxes(world, hit, list, null);
+            }
+        });
+        double rayTraceHit = allocatedPerCall(new Runnable() {
+
+            @Override
+            public void run() {
+                ChunkCollision.get().setRayTraceInfos(hitSrc, hitDest);
+                ChunkCollision.get().getRayTraceResult(world, null);
+            }
+        });
+
+        System.out.println(String.format("Bytes per call, no candidate in range: collision %.2f, ray trace %.2f",
+                collisionMiss,
+                rayTraceMiss));
+        System.out.println(String.format("Bytes per call, one candidate in range: collision %.2f, ray trace %.2f",
+                collisionHit,
+                rayTraceHit));
+        assertTrue(collisionMiss < 1, "Collision query without candidate allocated " + collisionMiss + " bytes");
+        assertTrue(rayTraceMiss < 1, "Ray trace without candidate allocated " + rayTraceMiss + " bytes");
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.finiteliquid;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import net.malisis.core.MalisisCore;
+import net.malisis.core.util.TestWorld;
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * Spreading of a {@link FiniteLiquid} in a basin, and time spent per tick flooding a large one.
+ *
+ * @author Ordinastie
+ *
+ */
+public class FiniteLiquidTest {
+
+    private static final int Y = 64;
+    private static final int MAX_TICKS = 20000;
+
+    private static FiniteLiquid liquid;
+    private static Block stone;
+
+    @BeforeAll
+    public static void setup() {
+        if (MalisisCore.log == null) MalisisCore.log = LogManager.getLogger("FiniteLiquidTest");
+        liquid = new FiniteLiquid(Material.water) {};
+        stone = new Block(Material.rock) {};
+    }
+
+    /**
+     * Creates a world with an empty basin of <b>size</b> x <b>size</b> blocks, from 0,0 at {@link #Y}, with a stone
+     * floor and walls.
+     */
+    private static TestWorld createBasin(int size) {
+        TestWorld world = TestWorld.create();
+        for (int x = -1; x <= size; x++) {
+            for (int z = -1; z <= size; z++) {
+                world.setBlock(x, Y - 1, z, stone, 0, 3);
+                if (x == -1 || z == -1 || x == size || z == size) world.setBlock(x, Y, z, stone, 0, 3);
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Fills the square from <b>from</b> to <b>to</b> excluded with full liquid blocks.
+     */
+    private static void pour(TestWorld world, int from, int to) {
+        for (int x = from; x < to; x++) {
+            for (int z = from; z < to; z++) liquid.setAmount(world, x, Y, z, 16);
+        }
+    }
+
+    private static int totalAmount(TestWorld world, int size) {
+        int total = 0;
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                if (world.getBlock(x, Y, z) == liquid) total += world.getBlockMetadata(x, Y, z) + 1;
+            }
+        }
+        return total;
+    }
+
+    private static int liquidBlocks(TestWorld world, int size) {
+        int count = 0;
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                if (world.getBlock(x, Y, z) == liquid) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ticks the world until no update is left, or {@link #MAX_TICKS} is reached.
+     */
+    private static void settle(TestWorld world) {
+        Random rand = new Random(0);
+        for (int i = 0; i < MAX_TICKS && world.getScheduledCount() > 0; i++) world.tick(rand);
+    }
+
+    @Test
+    public void testSpread() {
+        TestWorld world = createBasin(8);
+        pour(world, 3, 4);
+        settle(world);
+
+        assertEquals(0, world.getScheduledCount());
+        assertTrue(liquidBlocks(world, 8) > 1, "Liquid did not spread");
+        assertEquals(16, totalAmount(world, 8));
+    }
+
+    @Test
+    public void testAmountConserved() {
+        TestWorld world = createBasin(8);
+        pour(world, 0, 2);
+        liquid.setAmount(world, 7, Y, 7, 16);
+
+        Random rand = new Random(0);
+        for (int i = 0; i < 200 && world.getScheduledCount() > 0; i++) {
+            world.tick(rand);
+            assertEquals(5 * 16, totalAmount(world, 8));
+        }
+    }
+
+    @Test
+    public void testAmountConservedWhenSuspended() {
+        TestWorld world = createBasin(16);
+        pour(world, 4, 12);
+        // every fill runs out of time and resumes on the next tick
+        FiniteLiquid.setTickBudget(1);
+        try {
+            Random rand = new Random(0);
+            for (int i = 0; i < 200 && world.getScheduledCount() > 0; i++) {
+                world.tick(rand);
+                assertEquals(64 * 16, totalAmount(world, 16));
+            }
+        } finally {
+            FiniteLiquid.setTickBudget(2000000L);
+        }
+    }
+
+    /**
+     * Floods a 64x64 basin from its full 16x16 center, with the default tick budget, and reports the ticks and time
+     * needed to settle and the worst time spent in a tick. Run with MALISIS_BENCHMARK=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MALISIS_BENCHMARK", matches = "true")
+    public void benchmarkFloodBasin() {
+        int size = 64;
+        long budget = 2000000L;
+        FiniteLiquid.setTickBudget(budget);
+
+        // warm up on a separate world
+        TestWorld warmup = createBasin(size);
+        pour(warmup, 24, 40);
+        settle(warmup);
+
+        TestWorld world = createBasin(size);
+        pour(world, 24, 40);
+        int changes = world.getBlockChanges();
+        Random rand = new Random(0);
+        int ticks = 0;
+        long updates = 0;
+        long worst = 0;
+        long overBudget = 0;
+        long start = System.nanoTime();
+        while (world.getScheduledCount() > 0 && ticks < MAX_TICKS) {
+            long tickStart = System.nanoTime();
+            updates += world.tick(rand);
+            long time = System.nanoTime() - tickStart;
+            worst = Math.max(worst, time);
+            if (time > budget) overBudget++;
+            ticks++;
+        }
+        long total = System.nanoTime() - start;
+
+        assertEquals(0, world.getScheduledCount(), "Basin not settled after " + MAX_TICKS + " ticks");
+        assertEquals(16 * 16 * 16, totalAmount(world, size));
+        System.out.println(String.format("%d ticks, %.1f ms, worst tick %.2f ms (%d over %.1f ms budget)",
+                ticks,
+                total / 1000000D,
+                worst / 1000000D,
+                overBudget,
+                budget / 1000000D));
+        System.out.println(String.format("%d updates, %d block changes, %d liquid blocks",
+                updates,
+                world.getBlockChanges() - changes,
+                liquidBlocks(world, size)));
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.syncer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.malisis.core.MalisisCore;
+import net.malisis.core.util.syncer.message.SyncerMessage;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import cpw.mods.fml.relauncher.Side;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Round trip and size of the {@link Sync} fields sent by the {@link Syncer}.
+ *
+ * @author Ordinastie
+ *
+ */
+public class SyncerTest {
+
+    private static final String[] ALL = { "bool", "byte", "char", "double", "float", "int", "long", "short", "string" };
+
+    private static TestHandler handler = new TestHandler();
+
+    @Syncable("SyncerTest")
+    public static class Synced {
+
+        @Sync("bool")
+        public boolean bool;
+        @Sync("byte")
+        public byte b;
+        @Sync("char")
+        public char c;
+        @Sync("double")
+        public double d;
+        @Sync("float")
+        public float f;
+        @Sync("int")
+        public int i;
+        @Sync("long")
+        public long l;
+        @Sync("short")
+        public short s;
+        @Sync("string")
+        public String str;
+    }
+
+    public static class TestData implements ISyncableData {
+
+        @Override
+        public void fromBytes(ByteBuf buf) {}
+
+        @Override
+        public void toBytes(ByteBuf buf) {}
+    }
+
+    /**
+     * Handler keeping the packets sent instead of sending them, and updating a single receiver.
+     */
+    private static class TestHandler implements ISyncHandler<Synced, TestData> {
+
+        private Synced receiver;
+        private List<SyncerMessage.Packet> sent = new ArrayList<>();
+
+        @Override
+        public String getName() {
+            return "SyncerTest";
+        }
+
+        @Override
+        public Synced getReceiver(MessageContext ctx, TestData data) {
+            return receiver;
+        }
+
+        @Override
+        public TestData getSyncData(Synced caller) {
+            return new TestData();
+        }
+
+        @Override
+        public void send(Synced caller, SyncerMessage.Packet packet) {
+            sent.add(packet);
+        }
+    }
+
+    @BeforeAll
+    public static void setup() throws IllegalAccessException {
+        if (MalisisCore.log == null) MalisisCore.log = LogManager.getLogger("SyncerTest");
+        Syncer.registerHandler(handler);
+        Syncer.get().registerSyncable(Synced.class);
+    }
+
+    @BeforeEach
+    public void reset() {
+        handler.receiver = new Synced();
+        handler.sent.clear();
+    }
+
+    /**
+     * Sends the packet to the client the way {@link SyncerMessage#sendQueued()} does, inside a batch.
+     */
+    private static void receive(SyncerMessage.Packet packet) {
+        ByteBuf record = packet.encode();
+        ByteBuf buf = Unpooled.buffer();
+        ByteBufUtils.writeVarInt(buf, 1, 5);
+        ByteBufUtils.writeVarInt(buf, record.readableBytes(), 5);
+        buf.writeBytes(record, record.readerIndex(), record.readableBytes());
+
+        SyncerMessage.BatchPacket batch = new SyncerMessage.BatchPacket();
+        batch.fromBytes(buf);
+        new SyncerMessage.BatchHandler().onMessage(batch, new MessageContext(null, Side.CLIENT));
+    }
+
+    private static SyncerMessage.Packet sync(Synced caller, String... names) {
+        Syncer.sync(caller, names);
+        assertEquals(1, handler.sent.size());
+        return handler.sent.remove(0);
+    }
+
+    private static Synced synced(int seed) {
+        Synced synced = new Synced();
+        synced.bool = seed % 2 == 0;
+        synced.b = (byte) -seed;
+        synced.c = (char) (0x4E00 + seed);
+        synced.d = seed * -1.5D;
+        synced.f = seed * 0.25F;
+        synced.i = -seed * 1000;
+        synced.l = Long.MIN_VALUE + seed;
+        synced.s = (short) (seed - 100);
+        synced.str = "Value " + seed;
+        return synced;
+    }
+
+    private static void assertSynced(Synced expected, Synced actual) {
+        assertEquals(expected.bool, actual.bool);
+        assertEquals(expected.b, actual.b);
+        assertEquals(expected.c, actual.c);
+        assertEquals(expected.d, actual.d);
+        assertEquals(expected.f, actual.f);
+        assertEquals(expected.i, actual.i);
+        assertEquals(expected.l, actual.l);
+        assertEquals(expected.s, actual.s);
+        assertEquals(expected.str, actual.str);
+    }
+
+    @Test
+    public void testFieldsIndexedByName() {
+        for (int i = 0; i < ALL.length; i++) assertEquals(i, Syncer.get().getFields(new Synced()).getIndex(ALL[i]));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Synced caller = synced(7);
+        receive(sync(caller, ALL));
+        assertSynced(caller, handler.receiver);
+    }
+
+    @Test
+    public void testExtremeValues() {
+        Synced caller = new Synced();
+        caller.c = Character.MAX_VALUE;
+        caller.i = Integer.MIN_VALUE;
+        caller.l = Long.MAX_VALUE;
+        caller.s = Short.MIN_VALUE;
+        caller.d = Double.NaN;
+        caller.str = null;
+        handler.receiver.str = "not null";
+
+        receive(sync(caller, ALL));
+        assertSynced(caller, handler.receiver);
+    }
+
+    @Test
+    public void testOnlySelectedFields() {
+        Synced caller = synced(3);
+        receive(sync(caller, "int", "string", "unknown"));
+
+        assertEquals(caller.i, handler.receiver.i);
+        assertEquals(caller.str, handler.receiver.str);
+        assertEquals(0, handler.receiver.l);
+        assertEquals(0, handler.receiver.b);
+    }
+
+    /**
+     * A small int field takes a single byte, the whole record four: handler id, field indexes and the value.
+     */
+    @Test
+    public void testRecordSize() {
+        Synced caller = new Synced();
+        caller.i = -1;
+        assertEquals(4, sync(caller, "int").encode().readableBytes());
+
+        caller.i = 1000;
+        assertEquals(5, sync(caller, "int").encode().readableBytes());
+    }
+
+    /**
+     * Gets the size of the record with fixed width handler id, field indexes and integral values.
+     */
+    private static int fixedWidthSize(Synced synced) {
+        ByteBuf buf = Unpooled.buffer();
+        ByteBufUtils.writeUTF8String(buf, synced.str);
+        // handler id + indexes + bool + byte + char + double + float + int + long + short + string
+        return 4 + 4 + 1 + 1 + 2 + 8 + 4 + 4 + 8 + 2 + 1 + buf.readableBytes();
+    }
+
+    /**
+     * Measures the size of the records and the round trips per millisecond, for typical small values. Run with
+     * MALISIS_BENCHMARK=true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "MALISIS_BENCHMARK", matches = "true")
+    public void benchmarkRoundTrip() {
+        int count = 500000;
+        Synced[] callers = new Synced[256];
+        for (int i = 0; i < callers.length; i++) {
+            callers[i] = synced(i);
+            callers[i].l = i * 20L;
+        }
+
+        for (int i = 0; i < count; i++) receive(sync(callers[i & 0xFF], ALL));
+
+        long size = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            SyncerMessage.Packet packet = sync(callers[i & 0xFF], ALL);
+            size += packet.encode().readableBytes();
+            receive(packet);
+        }
+        long time = System.nanoTime() - start;
+
+        long fixedSize = 0;
+        for (int i = 0; i < count; i++) fixedSize += fixedWidthSize(callers[i & 0xFF]);
+
+        assertSynced(callers[(count - 1) & 0xFF], handler.receiver);
+        System.out.println(String.format("%.1f bytes per record (%.1f with fixed width values), %.0f round trips/ms",
+                (double) size / count,
+                (double) fixedSize / count,
+                count * 1000000D / time));
+    }
+}
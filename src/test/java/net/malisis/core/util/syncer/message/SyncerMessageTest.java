@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT) Copyright (c) 2014 Ordinastie Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions: The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.malisis.core.util.syncer.message;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import net.malisis.core.util.syncer.message.SyncerMessage.BatchPacket;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Size of the {@link BatchPacket BatchPackets} sent by the {@link SyncerMessage}.
+ *
+ * @author Ordinastie
+ *
+ */
+public class SyncerMessageTest {
+
+    /** Limit of the payload of a custom packet, the discriminator included. */
+    private static final int PAYLOAD_LIMIT = 1 << 20;
+
+    private static ByteBuf record(int size) {
+        return Unpooled.wrappedBuffer(new byte[size]);
+    }
+
+    private static void assertFits(BatchPacket batch) {
+        ByteBuf buf = Unpooled.buffer();
+        batch.toBytes(buf);
+        // the discriminator is written before the batch
+        assertTrue(buf.readableBytes() + 1 < PAYLOAD_LIMIT, "Batch of " + buf.readableBytes() + " bytes");
+    }
+
+    @Test
+    public void testRecordSize() {
+        assertEquals(1 + 127, BatchPacket.recordSize(record(127)));
+        assertEquals(2 + 128, BatchPacket.recordSize(record(128)));
+        assertEquals(3 + 20000, BatchPacket.recordSize(record(20000)));
+    }
+
+    @Test
+    public void testFullBatchOfSmallRecords() {
+        // small records have the largest framing overhead
+        BatchPacket batch = new BatchPacket();
+        ByteBuf record = record(128);
+        int size = 0;
+        while (size + BatchPacket.recordSize(record) <= SyncerMessage.MAX_BATCH_SIZE) {
+            batch.add(record);
+            size += BatchPacket.recordSize(record);
+        }
+        assertFits(batch);
+    }
+
+    @Test
+    public void testFullBatchOfMixedRecords() {
+        BatchPacket batch = new BatchPacket();
+        int size = 0;
+        for (int i = 0;; i++) {
+            ByteBuf record = record(i % 2 == 0 ? 100 : 16384);
+            if (size + BatchPacket.recordSize(record) > SyncerMessage.MAX_BATCH_SIZE) break;
+            batch.add(record);
+            size += BatchPacket.recordSize(record);
+        }
+        assertFits(batch);
+    }
+
+    @Test
+    public void testLargestRecord() {
+        BatchPacket batch = new BatchPacket();
+        batch.add(record(SyncerMessage.MAX_BATCH_SIZE - 3));
+        assertFits(batch);
+    }
+}